@@ -0,0 +1,65 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.config.JacksonConfiguration;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+
+/**
+ * Objects shared by the benchmarks, built the way the application builds them.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @return an {@link ObjectMapper} with the modules of {@link JacksonConfiguration}, as Spring Boot configures it.
+     */
+    static ObjectMapper objectMapper() {
+        JacksonConfiguration jacksonConfiguration = new JacksonConfiguration();
+        return Jackson2ObjectMapperBuilder.json()
+            .modules(jacksonConfiguration.javaTimeModule(), jacksonConfiguration.jdk8TimeModule(),
+                jacksonConfiguration.hibernate5Module(), jacksonConfiguration.problemModule(),
+                jacksonConfiguration.constraintViolationProblemModule())
+            .build();
+    }
+
+    /**
+     * @param id the id of the cidadao, or {@code null} for a new one.
+     * @return a cidadao with an endereco and two telefones, the typical registration payload.
+     */
+    static Cidadao cidadao(Long id) {
+        Cidadao cidadao = new Cidadao()
+            .nome("Maria da Silva")
+            .sexo(Sexo.FEMININO)
+            .email("maria.silva@bomdestino.gov.br")
+            .nascimento(LocalDate.of(1985, 3, 14))
+            .endereco(new Endereco()
+                .logradouro("Rua das Flores, 123")
+                .complemento("Apto 42")
+                .bairro("Centro")
+                .cidade("Bom Destino")
+                .estado(UF.DF)
+                .cep("35000000"));
+        cidadao.setId(id);
+        if (id != null) {
+            cidadao.getEndereco().setId(id);
+            cidadao.addTelefones(telefone(id * 10, "31", "999990000"));
+            cidadao.addTelefones(telefone(id * 10 + 1, "31", "33330000"));
+        }
+        return cidadao;
+    }
+
+    private static Telefone telefone(Long id, String ddd, String numero) {
+        Telefone telefone = new Telefone().ddd(ddd).numero(numero);
+        telefone.setId(id);
+        return telefone;
+    }
+}
@@ -0,0 +1,43 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of a {@link Cidadao} with its endereco and telefones, as done for every REST call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CidadaoJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Cidadao cidadao;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        cidadao = BenchmarkFixtures.cidadao(1051L);
+        json = objectMapper.writeValueAsBytes(cidadao);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(cidadao);
+    }
+
+    @Benchmark
+    public Cidadao deserialize() throws IOException {
+        return objectMapper.readValue(json, Cidadao.class);
+    }
+}
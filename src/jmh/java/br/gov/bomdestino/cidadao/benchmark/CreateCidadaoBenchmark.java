@@ -0,0 +1,107 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.web.rest.CidadaoResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.test.context.TestContextManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * End-to-end {@code POST /api/cidadaos} through {@link CidadaoResource#createCidadao}, on the embedded H2 database.
+ * <p>
+ * The application is started with the test configuration, so Elasticsearch is replaced by the mocks of the
+ * test {@code repository.search} package and indexing runs synchronously after commit. Kafka is not needed:
+ * the outbox relay is disabled there, so the events stay in the outbox table, and the listener containers
+ * are stopped.
+ * <p>
+ * {@code statistics} runs it with and without {@code hibernate.generate_statistics}, which the main configuration
+ * enables for the persistence metrics, to measure what they cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@SpringBootTest(classes = CidadaoApp.class)
+@AutoConfigureMockMvc
+public class CreateCidadaoBenchmark {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Param({"false", "true"})
+    private boolean statistics;
+
+    private TestContextManager testContextManager;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Each fork starts its own application, system properties override the test configuration
+        System.setProperty("spring.jpa.properties.hibernate.generate_statistics", String.valueOf(statistics));
+        testContextManager = new TestContextManager(CreateCidadaoBenchmark.class);
+        testContextManager.prepareTestInstance(this);
+        kafkaListenerEndpointRegistry.stop();
+        body = objectMapper.writeValueAsBytes(BenchmarkFixtures.cidadao(null));
+        int status = createCidadao().getResponse().getStatus();
+        if (status != HttpStatus.CREATED.value()) {
+            throw new IllegalStateException("POST /api/cidadaos answered " + status);
+        }
+    }
+
+    @Benchmark
+    public MvcResult createCidadao() throws Exception {
+        return mockMvc.perform(post("/api/cidadaos")
+            .with(user("benchmark"))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+            .andReturn();
+    }
+
+    /**
+     * Keeps the tables at the same size from one iteration to the next.
+     */
+    @TearDown(Level.Iteration)
+    public void clean() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.update("delete from outbox_event");
+            jdbcTemplate.update("delete from cidadao");
+            return jdbcTemplate.update("delete from endereco");
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        testContextManager.getTestContext().markApplicationContextDirty(null);
+    }
+}
@@ -0,0 +1,45 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.config.ElasticsearchConfiguration;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of a {@link Cidadao} into an Elasticsearch document by {@link ElasticsearchConfiguration.CustomEntityMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityMapperBenchmark {
+
+    private EntityMapper entityMapper;
+
+    private Cidadao cidadao;
+
+    @Setup
+    public void setUp() {
+        entityMapper = new ElasticsearchConfiguration(BenchmarkFixtures.objectMapper()).getEntityMapper();
+        cidadao = BenchmarkFixtures.cidadao(1051L);
+    }
+
+    @Benchmark
+    public Map<String, Object> mapObject() {
+        return entityMapper.mapObject(cidadao);
+    }
+
+    /**
+     * The JSON serialization alone, which {@code mapObject} follows with a parse into a map.
+     */
+    @Benchmark
+    public String mapToString() throws IOException {
+        return entityMapper.mapToString(cidadao);
+    }
+}
@@ -0,0 +1,78 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.aop.logging.LoggingAspect;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.service.BenchmarkEchoService;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link LoggingAspect#logAround} on a service call, compared with the plain call.
+ * <p>
+ * {@code INFO} is the production level, where the aspect only checks the level and times a sample of the calls;
+ * at {@code DEBUG} the arguments and results are formatted. {@code logAroundSkippedPackage} is the cost of the
+ * proxy alone, with the package switched off. The logger has no appender, so no I/O is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+    @Param({"INFO", "DEBUG"})
+    public String level;
+
+    private BenchmarkEchoService target;
+
+    private BenchmarkEchoService advised;
+
+    private BenchmarkEchoService skipped;
+
+    private Cidadao cidadao;
+
+    @Setup
+    public void setUp() {
+        Logger logger = (Logger) LoggerFactory.getLogger(BenchmarkEchoService.class);
+        logger.setLevel(Level.toLevel(level));
+        logger.setAdditive(false);
+
+        target = new BenchmarkEchoService();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new LoggingAspect(new StandardEnvironment(), new ApplicationProperties(), new SimpleMeterRegistry()));
+        advised = proxyFactory.getProxy();
+
+        AspectJProxyFactory skippedProxyFactory = new AspectJProxyFactory(target);
+        skippedProxyFactory.setProxyTargetClass(true);
+        LoggingAspect skippingAspect = new LoggingAspect(new StandardEnvironment(), new ApplicationProperties(), new SimpleMeterRegistry());
+        skippingAspect.setPackageEnabled(BenchmarkEchoService.class.getPackage().getName(), false);
+        skippedProxyFactory.addAspect(skippingAspect);
+        skipped = skippedProxyFactory.getProxy();
+        cidadao = BenchmarkFixtures.cidadao(1051L);
+    }
+
+    @Benchmark
+    public Cidadao direct() {
+        return target.echo(cidadao);
+    }
+
+    @Benchmark
+    public Cidadao logAround() {
+        return advised.echo(cidadao);
+    }
+
+    @Benchmark
+    public Cidadao logAroundSkippedPackage() {
+        return skipped.echo(cidadao);
+    }
+}
@@ -0,0 +1,100 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.test.context.TestContextManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code hibernate.generate_statistics}, with the {@code TimedStatisticsFactory} of the main configuration,
+ * on the persistence operations where it weighs the most: those served from the second-level and query caches,
+ * which do no I/O but still open a session and a transaction and report every load and cache access, and a
+ * small query on the embedded H2 database, which is also timed per query.
+ * <p>
+ * Unlike {@link CreateCidadaoBenchmark}, whose request time varies more than the statistics cost, the difference
+ * between the two values of {@code statistics} is measured on operations of a few microseconds, an upper bound of
+ * their share in a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@SpringBootTest(classes = CidadaoApp.class)
+public class PersistenceStatisticsBenchmark {
+
+    @Autowired
+    private CidadaoRepository cidadaoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Param({"false", "true"})
+    private boolean statistics;
+
+    private TestContextManager testContextManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Cidadao cidadao;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Each fork starts its own application, system properties override the test configuration
+        System.setProperty("spring.jpa.properties.hibernate.generate_statistics", String.valueOf(statistics));
+        System.setProperty("spring.jpa.properties.hibernate.cache.use_second_level_cache", "true");
+        System.setProperty("spring.jpa.properties.hibernate.cache.use_query_cache", "true");
+        System.setProperty("spring.jpa.properties.hibernate.cache.region.factory_class",
+            "com.hazelcast.hibernate.HazelcastCacheRegionFactory");
+        System.setProperty("spring.jpa.properties.hibernate.cache.hazelcast.instance_name", "cidadao");
+        testContextManager = new TestContextManager(PersistenceStatisticsBenchmark.class);
+        testContextManager.prepareTestInstance(this);
+        kafkaListenerEndpointRegistry.stop();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        cidadao = new TransactionTemplate(transactionManager).execute(status -> cidadaoRepository.save(BenchmarkFixtures.cidadao(null)));
+    }
+
+    /**
+     * An entity found in the second-level cache.
+     */
+    @Benchmark
+    public Optional<Cidadao> findByIdCached() {
+        return transactionTemplate.execute(status -> cidadaoRepository.findById(cidadao.getId()));
+    }
+
+    /**
+     * A lookup answered by the query cache, its entities by the second-level cache.
+     */
+    @Benchmark
+    public List<Cidadao> findByEmailCached() {
+        return transactionTemplate.execute(status -> cidadaoRepository.findByEmail(cidadao.getEmail()));
+    }
+
+    /**
+     * A query run on the database, timed as {@code hibernate.query.execution}.
+     */
+    @Benchmark
+    public Optional<Cidadao> findOneWithTelefones() {
+        return transactionTemplate.execute(status -> cidadaoRepository.findOneWithTelefonesById(cidadao.getId()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        testContextManager.getTestContext().markApplicationContextDirty(null);
+    }
+}
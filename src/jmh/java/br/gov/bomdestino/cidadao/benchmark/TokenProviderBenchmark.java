@@ -0,0 +1,73 @@
+package br.gov.bomdestino.cidadao.benchmark;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import br.gov.bomdestino.cidadao.security.jwt.TokenProvider;
+import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT checks run by the {@code JWTFilter} on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private static final String BASE64_SECRET =
+        "YjRjMWU0ZTkwYTBiMWY1YWUyZWJlZTAwZTJjZTVkODhmNmFiNGExMDJhYzYzMGI5ZTkxYzI5OWE4N2EzZTFmMzE2ZWM5MWUxZDNlZjRlZGU5ZWNiN2VhYmVmZWIxODQ0MDE3NTZmZjc4MDI2MDkwNGYyYjYwNjdmZDhmOWE5MmY=";
+
+    private TokenProvider tokenProvider;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), new SimpleMeterRegistry());
+        tokenProvider.init();
+        Authentication authentication = new UsernamePasswordAuthenticationToken("admin", "admin", Arrays.asList(
+            new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN), new SimpleGrantedAuthority(AuthoritiesConstants.USER)));
+        token = tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return tokenProvider.getAuthentication(token);
+    }
+
+    /**
+     * What the {@code JWTFilter} used to do for each request: two parses of the token.
+     */
+    @Benchmark
+    public Authentication validateAndGetAuthentication() {
+        return tokenProvider.validateToken(token) ? tokenProvider.getAuthentication(token) : null;
+    }
+
+    /**
+     * What the {@code JWTFilter} does for each request: a cache lookup once the token has been verified. With
+     * {@code -prof gc}, {@code gc.alloc.rate.norm} is what a request allocates to authenticate: the digest of the
+     * token and the {@link Optional}, the cached {@link Authentication} being shared.
+     */
+    @Benchmark
+    public Optional<Authentication> authenticate() {
+        return tokenProvider.authenticate(token);
+    }
+}
@@ -0,0 +1,43 @@
+package br.gov.bomdestino.cidadao.security.jwt;
+
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Authorities of a token: split on every request, as {@link TokenProvider} used to do, against the
+ * {@link AuthoritySetRegistry} lookup. Run with {@code -prof gc} (the default of the benchmark profile)
+ * and compare {@code gc.alloc.rate.norm}, the bytes allocated per call.
+ * <p>
+ * Lives in the {@code security.jwt} package because the registry is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthoritySetRegistryBenchmark {
+
+    private final String claim = AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER;
+
+    private final AuthoritySetRegistry registry = new AuthoritySetRegistry(1024);
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> splitPerCall() {
+        return Arrays.stream(claim.split(","))
+            .map(SimpleGrantedAuthority::new)
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> interned() {
+        return registry.intern(claim);
+    }
+}
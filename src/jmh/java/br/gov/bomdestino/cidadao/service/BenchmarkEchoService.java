@@ -0,0 +1,16 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stand-in service for {@code LoggingAspectBenchmark}: it lives in the service package and is a {@link Service},
+ * so the {@code LoggingAspect} pointcuts match it exactly as they match the application services.
+ */
+@Service
+public class BenchmarkEchoService {
+
+    public Cidadao echo(Cidadao cidadao) {
+        return cidadao;
+    }
+}
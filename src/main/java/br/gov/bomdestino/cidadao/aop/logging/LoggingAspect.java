@@ -1,32 +1,67 @@
 package br.gov.bomdestino.cidadao.aop.logging;
 
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
 import io.github.jhipster.config.JHipsterConstants;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
 
-import java.util.Arrays;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Aspect for logging execution of service and repository Spring components.
  *
- * By default, it only runs with the "dev" profile.
+ * By default, it only runs with the "dev" profile; set {@code application.aop-logging.enabled} to run it
+ * elsewhere. The logger of each method is resolved once, arguments are only rendered when logged, truncated to
+ * {@code max-argument-length} and at most {@code argument-logs-per-second} times per second, and a
+ * {@code sample-rate} share of the calls is timed as {@code method.sampled}. The advice can be switched off per
+ * package at runtime, see {@link LoggingAspectEndpoint}.
  */
 @Aspect
 public class LoggingAspect {
 
-    private final Environment env;
+    private final boolean development;
 
-    public LoggingAspect(Environment env) {
-        this.env = env;
+    private final ApplicationProperties.AopLogging properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Method, AdvisedMethod> methods = new ConcurrentHashMap<>();
+
+    private final Set<String> disabledPackages = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong argumentLogWindow = new AtomicLong();
+
+    private final AtomicLong argumentLogCount = new AtomicLong();
+
+    public LoggingAspect(Environment env, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.development = env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT));
+        this.properties = applicationProperties.getAopLogging();
+        this.meterRegistry = meterRegistry;
+        this.disabledPackages.addAll(properties.getDisabledPackages());
     }
 
     /**
@@ -50,13 +85,46 @@ public class LoggingAspect {
     }
 
     /**
-     * Retrieves the {@link Logger} associated to the given {@link JoinPoint}.
+     * @return the packages, and their sub-packages, whose methods are not advised.
+     */
+    public Set<String> getDisabledPackages() {
+        return Collections.unmodifiableSet(new TreeSet<>(disabledPackages));
+    }
+
+    /**
+     * Stops or resumes advising the methods of a package and its sub-packages.
      *
-     * @param joinPoint join point we want the logger for.
-     * @return {@link Logger} associated to the given {@link JoinPoint}.
+     * @param packageName the package.
+     * @param enabled     whether its methods are advised.
      */
-    private Logger logger(JoinPoint joinPoint) {
-        return LoggerFactory.getLogger(joinPoint.getSignature().getDeclaringTypeName());
+    public void setPackageEnabled(String packageName, boolean enabled) {
+        if (enabled) {
+            disabledPackages.remove(packageName);
+        } else {
+            disabledPackages.add(packageName);
+        }
+        methods.clear();
+    }
+
+    /**
+     * Retrieves the state kept for the method of the given {@link JoinPoint}, with its {@link Logger}.
+     *
+     * @param joinPoint join point we want the method for.
+     * @return the advised method of the given {@link JoinPoint}.
+     */
+    private AdvisedMethod advisedMethod(JoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        AdvisedMethod advised = methods.get(method);
+        if (advised == null) {
+            advised = methods.computeIfAbsent(method, this::createAdvisedMethod);
+        }
+        return advised;
+    }
+
+    private AdvisedMethod createAdvisedMethod(Method method) {
+        String typeName = method.getDeclaringClass().getName();
+        boolean enabled = disabledPackages.stream().noneMatch(packageName -> typeName.startsWith(packageName + "."));
+        return new AdvisedMethod(method, LoggerFactory.getLogger(typeName), enabled);
     }
 
     /**
@@ -67,20 +135,24 @@ public class LoggingAspect {
      */
     @AfterThrowing(pointcut = "applicationPackagePointcut() && springBeanPointcut()", throwing = "e")
     public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
-        if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT))) {
-            logger(joinPoint)
+        AdvisedMethod method = advisedMethod(joinPoint);
+        if (!method.enabled) {
+            return;
+        }
+        if (development) {
+            method.logger
                 .error(
                     "Exception in {}() with cause = \'{}\' and exception = \'{}\'",
-                    joinPoint.getSignature().getName(),
+                    method.name,
                     e.getCause() != null ? e.getCause() : "NULL",
                     e.getMessage(),
                     e
                 );
         } else {
-            logger(joinPoint)
+            method.logger
                 .error(
                     "Exception in {}() with cause = {}",
-                    joinPoint.getSignature().getName(),
+                    method.name,
                     e.getCause() != null ? e.getCause() : "NULL"
                 );
         }
@@ -95,19 +167,169 @@ public class LoggingAspect {
      */
     @Around("applicationPackagePointcut() && springBeanPointcut()")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        Logger log = logger(joinPoint);
+        AdvisedMethod method = advisedMethod(joinPoint);
+        if (!method.enabled) {
+            return joinPoint.proceed();
+        }
+        Logger log = method.logger;
         if (log.isDebugEnabled()) {
-            log.debug("Enter: {}() with argument[s] = {}", joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
+            log.debug("Enter: {}() with argument[s] = {}", method.name, arguments(joinPoint));
         }
+        boolean sampled = properties.getSampleRate() > 0 && ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+        long start = sampled ? System.nanoTime() : 0;
         try {
             Object result = joinPoint.proceed();
             if (log.isDebugEnabled()) {
-                log.debug("Exit: {}() with result = {}", joinPoint.getSignature().getName(), result);
+                log.debug("Exit: {}() with result = {}", method.name, new Truncated(result, properties.getMaxArgumentLength()));
             }
             return result;
         } catch (IllegalArgumentException e) {
-            log.error("Illegal argument: {} in {}()", Arrays.toString(joinPoint.getArgs()), joinPoint.getSignature().getName());
+            log.error("Illegal argument: {} in {}()", arguments(joinPoint), method.name);
             throw e;
+        } finally {
+            if (sampled) {
+                method.timer(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return the arguments of the join point, rendered when logged, or a placeholder once the rate is exceeded.
+     */
+    private Object arguments(JoinPoint joinPoint) {
+        if (!acquireArgumentLog()) {
+            return "[omitted]";
+        }
+        return new Truncated(joinPoint.getArgs(), properties.getMaxArgumentLength());
+    }
+
+    private boolean acquireArgumentLog() {
+        long second = System.currentTimeMillis() / 1000;
+        long window = argumentLogWindow.get();
+        if (window != second && argumentLogWindow.compareAndSet(window, second)) {
+            argumentLogCount.set(0);
+        }
+        return argumentLogCount.incrementAndGet() <= properties.getArgumentLogsPerSecond();
+    }
+
+    /**
+     * Logger, timer and state of one advised method.
+     */
+    private static final class AdvisedMethod {
+
+        private final Method method;
+
+        private final String name;
+
+        private final Logger logger;
+
+        private final boolean enabled;
+
+        private volatile Timer timer;
+
+        private AdvisedMethod(Method method, Logger logger, boolean enabled) {
+            this.method = method;
+            this.name = method.getName();
+            this.logger = logger;
+            this.enabled = enabled;
+        }
+
+        private Timer timer(MeterRegistry registry) {
+            Timer current = timer;
+            if (current == null) {
+                current = Timer.builder("method.sampled")
+                    .description("Execution time of a sample of the calls to the advised methods")
+                    .tag("class", method.getDeclaringClass().getSimpleName())
+                    .tag("method", name)
+                    .register(registry);
+                timer = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Renders a value when logged, up to a maximum length: arrays and collections are walked element by element,
+     * and their rendering stops at the first element past the maximum, so a large argument is not rendered whole.
+     */
+    static final class Truncated {
+
+        private static final String ELLIPSIS = "...";
+
+        private final Object value;
+
+        private final int maxLength;
+
+        Truncated(Object value, int maxLength) {
+            this.value = value;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder rendered = new StringBuilder(Math.min(maxLength, 256) + ELLIPSIS.length());
+            if (append(rendered, value)) {
+                return rendered.toString();
+            }
+            rendered.setLength(maxLength);
+            return rendered.append(ELLIPSIS).toString();
+        }
+
+        /**
+         * @return whether the rendering still fits in the maximum length.
+         */
+        private boolean append(StringBuilder rendered, Object value) {
+            if (room(rendered) <= 0) {
+                return false;
+            }
+            Iterator<?> elements = elements(value);
+            if (elements == null) {
+                // One character past the maximum tells that the rendering was truncated
+                String string = String.valueOf(value);
+                rendered.append(string, 0, Math.min(string.length(), room(rendered)));
+                return room(rendered) > 0;
+            }
+            rendered.append('[');
+            for (boolean first = true; elements.hasNext(); first = false) {
+                if (!first) {
+                    rendered.append(", ");
+                }
+                if (!append(rendered, elements.next())) {
+                    return false;
+                }
+            }
+            rendered.append(']');
+            return room(rendered) > 0;
+        }
+
+        private int room(StringBuilder rendered) {
+            return maxLength + 1 - rendered.length();
+        }
+
+        private static Iterator<?> elements(Object value) {
+            if (value instanceof Collection) {
+                return ((Collection<?>) value).iterator();
+            }
+            if (value == null || !value.getClass().isArray()) {
+                return null;
+            }
+            return new Iterator<Object>() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < Array.getLength(value);
+                }
+
+                @Override
+                public Object next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return Array.get(value, index++);
+                }
+            };
         }
     }
 }
@@ -0,0 +1,34 @@
+package br.gov.bomdestino.cidadao.aop.logging;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Set;
+
+/**
+ * {@code /management/loggingaspect}: the packages whose methods the {@link LoggingAspect} skips.
+ * <p>
+ * {@code POST /management/loggingaspect/<package>} with {@code {"enabled": false}} stops advising the package
+ * and its sub-packages, {@code {"enabled": true}} resumes; the change is lost on restart.
+ */
+@Endpoint(id = "loggingaspect")
+public class LoggingAspectEndpoint {
+
+    private final LoggingAspect loggingAspect;
+
+    public LoggingAspectEndpoint(LoggingAspect loggingAspect) {
+        this.loggingAspect = loggingAspect;
+    }
+
+    @ReadOperation
+    public Set<String> disabledPackages() {
+        return loggingAspect.getDisabledPackages();
+    }
+
+    @WriteOperation
+    public void setPackageEnabled(@Selector String packageName, boolean enabled) {
+        loggingAspect.setPackageEnabled(packageName, enabled);
+    }
+}
@@ -1,7 +1,16 @@
 package br.gov.bomdestino.cidadao.config;
 
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties specific to Cidadao.
  * <p>
@@ -10,4 +19,941 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Outbox outbox = new Outbox();
+
+    private final SearchIndexing searchIndexing = new SearchIndexing();
+
+    private final Elasticsearch elasticsearch = new Elasticsearch();
+
+    private final Export export = new Export();
+
+    private final BulkImport bulkImport = new BulkImport();
+
+    private final TokenCache tokenCache = new TokenCache();
+
+    private final EventStream eventStream = new EventStream();
+
+    private final Publish publish = new Publish();
+
+    private final Consumer consumer = new Consumer();
+
+    private final Producer producer = new Producer();
+
+    private final SchemaRegistry schemaRegistry = new SchemaRegistry();
+
+    private final NearCache nearCache = new NearCache();
+
+    private final QueryCache queryCache = new QueryCache();
+
+    private final QueryTelemetry queryTelemetry = new QueryTelemetry();
+
+    private final AopLogging aopLogging = new AopLogging();
+
+    private final AsyncLogging asyncLogging = new AsyncLogging();
+
+    private final Slo slo = new Slo();
+
+    private final Profiling profiling = new Profiling();
+
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public SearchIndexing getSearchIndexing() {
+        return searchIndexing;
+    }
+
+    public Elasticsearch getElasticsearch() {
+        return elasticsearch;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    public EventStream getEventStream() {
+        return eventStream;
+    }
+
+    public Publish getPublish() {
+        return publish;
+    }
+
+    public Consumer getConsumer() {
+        return consumer;
+    }
+
+    public Producer getProducer() {
+        return producer;
+    }
+
+    public SchemaRegistry getSchemaRegistry() {
+        return schemaRegistry;
+    }
+
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    public QueryTelemetry getQueryTelemetry() {
+        return queryTelemetry;
+    }
+
+    public AopLogging getAopLogging() {
+        return aopLogging;
+    }
+
+    public AsyncLogging getAsyncLogging() {
+        return asyncLogging;
+    }
+
+    public Slo getSlo() {
+        return slo;
+    }
+
+    public Profiling getProfiling() {
+        return profiling;
+    }
+
+    public VirtualThreads getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public static class Outbox {
+
+        private boolean enabled = true;
+
+        private int batchSize = 100;
+
+        private long pollIntervalMs = 500;
+
+        private long sendTimeoutMs = 30000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public long getSendTimeoutMs() {
+            return sendTimeoutMs;
+        }
+
+        public void setSendTimeoutMs(long sendTimeoutMs) {
+            this.sendTimeoutMs = sendTimeoutMs;
+        }
+    }
+
+    public static class SearchIndexing {
+
+        private boolean async = true;
+
+        private int bulkSize = 500;
+
+        private long flushIntervalMs = 1000;
+
+        private int maxPending = 10000;
+
+        private long offerTimeoutMs = 1000;
+
+        private int maxRetries = 3;
+
+        private long retryBackoffMs = 1000;
+
+        private long maxRetryBackoffMs = 60000;
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public int getBulkSize() {
+            return bulkSize;
+        }
+
+        public void setBulkSize(int bulkSize) {
+            this.bulkSize = bulkSize;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public long getOfferTimeoutMs() {
+            return offerTimeoutMs;
+        }
+
+        public void setOfferTimeoutMs(long offerTimeoutMs) {
+            this.offerTimeoutMs = offerTimeoutMs;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+
+        public long getMaxRetryBackoffMs() {
+            return maxRetryBackoffMs;
+        }
+
+        public void setMaxRetryBackoffMs(long maxRetryBackoffMs) {
+            this.maxRetryBackoffMs = maxRetryBackoffMs;
+        }
+    }
+
+    public static class Elasticsearch {
+
+        private int maxConnTotal = 30;
+
+        private int maxConnPerRoute = 10;
+
+        private long keepAliveMs = 60000;
+
+        private long connectionRequestTimeoutMs = 1000;
+
+        public int getMaxConnTotal() {
+            return maxConnTotal;
+        }
+
+        public void setMaxConnTotal(int maxConnTotal) {
+            this.maxConnTotal = maxConnTotal;
+        }
+
+        public int getMaxConnPerRoute() {
+            return maxConnPerRoute;
+        }
+
+        public void setMaxConnPerRoute(int maxConnPerRoute) {
+            this.maxConnPerRoute = maxConnPerRoute;
+        }
+
+        public long getKeepAliveMs() {
+            return keepAliveMs;
+        }
+
+        public void setKeepAliveMs(long keepAliveMs) {
+            this.keepAliveMs = keepAliveMs;
+        }
+
+        public long getConnectionRequestTimeoutMs() {
+            return connectionRequestTimeoutMs;
+        }
+
+        public void setConnectionRequestTimeoutMs(long connectionRequestTimeoutMs) {
+            this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+        }
+    }
+
+    public static class Export {
+
+        private int pageSize = 500;
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+    }
+
+    public static class BulkImport {
+
+        private int chunkSize = 1000;
+
+        private int maxErrors = 1000;
+
+        private int maxJobs = 100;
+
+        private int maxSizeMb = 100;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        public void setMaxErrors(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        public int getMaxJobs() {
+            return maxJobs;
+        }
+
+        public void setMaxJobs(int maxJobs) {
+            this.maxJobs = maxJobs;
+        }
+
+        public int getMaxSizeMb() {
+            return maxSizeMb;
+        }
+
+        public void setMaxSizeMb(int maxSizeMb) {
+            this.maxSizeMb = maxSizeMb;
+        }
+    }
+
+    public static class TokenCache {
+
+        private int maxSize = 10000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class EventStream {
+
+        /**
+         * What to do with a record when the buffer of a subscriber is full.
+         */
+        public enum SlowSubscriberPolicy {
+            DROP_OLDEST, DROP_NEWEST, DISCONNECT
+        }
+
+        private int maxSubscribers = 500;
+
+        private int bufferSize = 256;
+
+        private SlowSubscriberPolicy slowSubscriberPolicy = SlowSubscriberPolicy.DROP_OLDEST;
+
+        private int dispatcherThreads = 4;
+
+        private long pollTimeoutMs = 1000;
+
+        private long heartbeatIntervalMs = 5000;
+
+        private String autoOffsetReset = "latest";
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public SlowSubscriberPolicy getSlowSubscriberPolicy() {
+            return slowSubscriberPolicy;
+        }
+
+        public void setSlowSubscriberPolicy(SlowSubscriberPolicy slowSubscriberPolicy) {
+            this.slowSubscriberPolicy = slowSubscriberPolicy;
+        }
+
+        public int getDispatcherThreads() {
+            return dispatcherThreads;
+        }
+
+        public void setDispatcherThreads(int dispatcherThreads) {
+            this.dispatcherThreads = dispatcherThreads;
+        }
+
+        public long getPollTimeoutMs() {
+            return pollTimeoutMs;
+        }
+
+        public void setPollTimeoutMs(long pollTimeoutMs) {
+            this.pollTimeoutMs = pollTimeoutMs;
+        }
+
+        public long getHeartbeatIntervalMs() {
+            return heartbeatIntervalMs;
+        }
+
+        public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+            this.heartbeatIntervalMs = heartbeatIntervalMs;
+        }
+
+        public String getAutoOffsetReset() {
+            return autoOffsetReset;
+        }
+
+        public void setAutoOffsetReset(String autoOffsetReset) {
+            this.autoOffsetReset = autoOffsetReset;
+        }
+    }
+
+    public static class Publish {
+
+        private int maxBatchSize = 100000;
+
+        private long sendTimeoutMs = 30000;
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public long getSendTimeoutMs() {
+            return sendTimeoutMs;
+        }
+
+        public void setSendTimeoutMs(long sendTimeoutMs) {
+            this.sendTimeoutMs = sendTimeoutMs;
+        }
+    }
+
+    public static class Consumer {
+
+        private int concurrency = 3;
+
+        private int maxPollRecords = 500;
+
+        private long retryIntervalMs = 5000;
+
+        private long deadLetterTimeoutMs = 10000;
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getMaxPollRecords() {
+            return maxPollRecords;
+        }
+
+        public void setMaxPollRecords(int maxPollRecords) {
+            this.maxPollRecords = maxPollRecords;
+        }
+
+        public long getRetryIntervalMs() {
+            return retryIntervalMs;
+        }
+
+        public void setRetryIntervalMs(long retryIntervalMs) {
+            this.retryIntervalMs = retryIntervalMs;
+        }
+
+        public long getDeadLetterTimeoutMs() {
+            return deadLetterTimeoutMs;
+        }
+
+        public void setDeadLetterTimeoutMs(long deadLetterTimeoutMs) {
+            this.deadLetterTimeoutMs = deadLetterTimeoutMs;
+        }
+    }
+
+    public static class Producer {
+
+        /**
+         * Sets of producer properties applied before the {@code kafka.producer} ones, which take precedence.
+         */
+        public enum Preset {
+            /**
+             * Only the {@code kafka.producer} properties.
+             */
+            NONE,
+            /**
+             * Idempotent, acknowledged by all the in-sync replicas, lz4-compressed, lingering 5 ms for batches of up to 64 KiB.
+             */
+            RELIABLE,
+            /**
+             * Acknowledged by the leader only, lz4-compressed, lingering 20 ms for batches of up to 256 KiB.
+             */
+            THROUGHPUT
+        }
+
+        private Preset preset = Preset.RELIABLE;
+
+        public Preset getPreset() {
+            return preset;
+        }
+
+        public void setPreset(Preset preset) {
+            this.preset = preset;
+        }
+    }
+
+    public static class SchemaRegistry {
+
+        /**
+         * Directory holding the schema files, as a Spring resource location ({@code classpath:} or {@code file:}).
+         */
+        private String location = "classpath:config/schemas/";
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location;
+        }
+    }
+
+    public static class NearCache {
+
+        private boolean enabled = true;
+
+        private InMemoryFormat inMemoryFormat = InMemoryFormat.OBJECT;
+
+        private boolean invalidateOnChange = true;
+
+        private int invalidationBatchSize = 100;
+
+        private int invalidationBatchFrequencySeconds = 10;
+
+        private int maxSize = 10000;
+
+        private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+        private int timeToLiveSeconds = 0;
+
+        private int maxIdleSeconds = 0;
+
+        private boolean cacheLocalEntries = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public InMemoryFormat getInMemoryFormat() {
+            return inMemoryFormat;
+        }
+
+        public void setInMemoryFormat(InMemoryFormat inMemoryFormat) {
+            this.inMemoryFormat = inMemoryFormat;
+        }
+
+        public boolean isInvalidateOnChange() {
+            return invalidateOnChange;
+        }
+
+        public void setInvalidateOnChange(boolean invalidateOnChange) {
+            this.invalidateOnChange = invalidateOnChange;
+        }
+
+        public int getInvalidationBatchSize() {
+            return invalidationBatchSize;
+        }
+
+        public void setInvalidationBatchSize(int invalidationBatchSize) {
+            this.invalidationBatchSize = invalidationBatchSize;
+        }
+
+        public int getInvalidationBatchFrequencySeconds() {
+            return invalidationBatchFrequencySeconds;
+        }
+
+        public void setInvalidationBatchFrequencySeconds(int invalidationBatchFrequencySeconds) {
+            this.invalidationBatchFrequencySeconds = invalidationBatchFrequencySeconds;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public EvictionPolicy getEvictionPolicy() {
+            return evictionPolicy;
+        }
+
+        public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+        }
+
+        /**
+         * @return the time an entry stays in the near-cache, {@code 0} for the time-to-live of its map.
+         */
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public int getMaxIdleSeconds() {
+            return maxIdleSeconds;
+        }
+
+        public void setMaxIdleSeconds(int maxIdleSeconds) {
+            this.maxIdleSeconds = maxIdleSeconds;
+        }
+
+        public boolean isCacheLocalEntries() {
+            return cacheLocalEntries;
+        }
+
+        public void setCacheLocalEntries(boolean cacheLocalEntries) {
+            this.cacheLocalEntries = cacheLocalEntries;
+        }
+    }
+
+    public static class QueryCache {
+
+        private int maxSize = 10000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class QueryTelemetry {
+
+        private int maxQueries = 200;
+
+        private long slowQueryThresholdMs = 500;
+
+        private int slowestQueries = 10;
+
+        public int getMaxQueries() {
+            return maxQueries;
+        }
+
+        public void setMaxQueries(int maxQueries) {
+            this.maxQueries = maxQueries;
+        }
+
+        public long getSlowQueryThresholdMs() {
+            return slowQueryThresholdMs;
+        }
+
+        public void setSlowQueryThresholdMs(long slowQueryThresholdMs) {
+            this.slowQueryThresholdMs = slowQueryThresholdMs;
+        }
+
+        public int getSlowestQueries() {
+            return slowestQueries;
+        }
+
+        public void setSlowestQueries(int slowestQueries) {
+            this.slowestQueries = slowestQueries;
+        }
+    }
+
+    public static class AopLogging {
+
+        private boolean enabled = false;
+
+        private double sampleRate = 0.01;
+
+        private int maxArgumentLength = 500;
+
+        private int argumentLogsPerSecond = 100;
+
+        private List<String> disabledPackages = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public int getMaxArgumentLength() {
+            return maxArgumentLength;
+        }
+
+        public void setMaxArgumentLength(int maxArgumentLength) {
+            this.maxArgumentLength = maxArgumentLength;
+        }
+
+        public int getArgumentLogsPerSecond() {
+            return argumentLogsPerSecond;
+        }
+
+        public void setArgumentLogsPerSecond(int argumentLogsPerSecond) {
+            this.argumentLogsPerSecond = argumentLogsPerSecond;
+        }
+
+        public List<String> getDisabledPackages() {
+            return disabledPackages;
+        }
+
+        public void setDisabledPackages(List<String> disabledPackages) {
+            this.disabledPackages = disabledPackages;
+        }
+    }
+
+    public static class AsyncLogging {
+
+        /**
+         * What a DEBUG or INFO event does when the queue is full.
+         */
+        public enum OverflowPolicy {
+            /**
+             * Dropped at once.
+             */
+            DROP,
+            /**
+             * Waits up to {@code max-block-ms}, like WARN and ERROR events, then is dropped.
+             */
+            WAIT
+        }
+
+        private boolean enabled = true;
+
+        private int queueSize = 8192;
+
+        private int batchSize = 256;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        private long maxBlockMs = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public long getMaxBlockMs() {
+            return maxBlockMs;
+        }
+
+        public void setMaxBlockMs(long maxBlockMs) {
+            this.maxBlockMs = maxBlockMs;
+        }
+    }
+
+    public static class Slo {
+
+        private List<Duration> defaultBoundaries = new ArrayList<>(Arrays.asList(Duration.ofMillis(50),
+            Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(2)));
+
+        private Map<String, List<Duration>> endpoints = new HashMap<>();
+
+        public List<Duration> getDefaultBoundaries() {
+            return defaultBoundaries;
+        }
+
+        public void setDefaultBoundaries(List<Duration> defaultBoundaries) {
+            this.defaultBoundaries = defaultBoundaries;
+        }
+
+        public Map<String, List<Duration>> getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(Map<String, List<Duration>> endpoints) {
+            this.endpoints = endpoints;
+        }
+    }
+
+    public static class Profiling {
+
+        private boolean continuous = false;
+
+        private String settings = "default";
+
+        private long maxAgeMinutes = 60;
+
+        private long maxSizeMb = 100;
+
+        private long maxDurationSeconds = 600;
+
+        private int maxRecordings = 4;
+
+        private String directory;
+
+        public boolean isContinuous() {
+            return continuous;
+        }
+
+        public void setContinuous(boolean continuous) {
+            this.continuous = continuous;
+        }
+
+        public String getSettings() {
+            return settings;
+        }
+
+        public void setSettings(String settings) {
+            this.settings = settings;
+        }
+
+        public long getMaxAgeMinutes() {
+            return maxAgeMinutes;
+        }
+
+        public void setMaxAgeMinutes(long maxAgeMinutes) {
+            this.maxAgeMinutes = maxAgeMinutes;
+        }
+
+        public long getMaxSizeMb() {
+            return maxSizeMb;
+        }
+
+        public void setMaxSizeMb(long maxSizeMb) {
+            this.maxSizeMb = maxSizeMb;
+        }
+
+        public long getMaxDurationSeconds() {
+            return maxDurationSeconds;
+        }
+
+        public void setMaxDurationSeconds(long maxDurationSeconds) {
+            this.maxDurationSeconds = maxDurationSeconds;
+        }
+
+        public int getMaxRecordings() {
+            return maxRecordings;
+        }
+
+        public void setMaxRecordings(int maxRecordings) {
+            this.maxRecordings = maxRecordings;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+    }
+
+    public static class VirtualThreads {
+
+        private boolean enabled = false;
+
+        private String tracePinnedThreads = "short";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getTracePinnedThreads() {
+            return tracePinnedThreads;
+        }
+
+        public void setTracePinnedThreads(String tracePinnedThreads) {
+            this.tracePinnedThreads = tracePinnedThreads;
+        }
+    }
 }
@@ -0,0 +1,45 @@
+package br.gov.bomdestino.cidadao.config;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+
+/**
+ * {@link DeadLetterPublishingRecoverer} that waits for the dead-letter record to be acknowledged by the broker, and
+ * throws a {@link KafkaException} if it is not within the timeout, so the batch of the record is not acknowledged
+ * either. The parent class only logs the failures of its asynchronous send.
+ */
+public class BlockingDeadLetterPublishingRecoverer extends DeadLetterPublishingRecoverer {
+
+    private final long timeoutMs;
+
+    public BlockingDeadLetterPublishingRecoverer(KafkaTemplate<?, ?> template,
+                                                 BiFunction<ConsumerRecord<?, ?>, Exception, TopicPartition> destinationResolver,
+                                                 long timeoutMs) {
+        super(template, destinationResolver);
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    protected void publish(ProducerRecord<Object, Object> outRecord, KafkaOperations<Object, Object> kafkaTemplate) {
+        try {
+            kafkaTemplate.send(outRecord).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while sending to " + outRecord.topic(), e);
+        } catch (ExecutionException e) {
+            throw new KafkaException("Could not send to " + outRecord.topic(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new KafkaException("Timed out after " + timeoutMs + " ms sending to " + outRecord.topic(), e);
+        }
+    }
+}
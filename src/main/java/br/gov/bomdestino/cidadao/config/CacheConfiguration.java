@@ -6,7 +6,16 @@ import io.github.jhipster.config.JHipsterProperties;
 import com.hazelcast.config.*;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.IMap;
+import com.hazelcast.monitor.NearCacheStats;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.HazelcastCacheMetrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,10 +37,18 @@ import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
 
 import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
+    private static final String DOMAIN_MAPS = "br.gov.bomdestino.cidadao.domain.";
+
+    private static final String HIBERNATE_CACHE_MANAGER = "hibernate";
+
+    private static final String QUERY_MAPS = "br.gov.bomdestino.cidadao.query.";
+
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
 
@@ -43,12 +60,16 @@ public class CacheConfiguration {
 
     private final DiscoveryClient discoveryClient;
 
+    private final ApplicationProperties applicationProperties;
+
     private Registration registration;
 
-    public CacheConfiguration(Environment env, ServerProperties serverProperties, DiscoveryClient discoveryClient) {
+    public CacheConfiguration(Environment env, ServerProperties serverProperties, DiscoveryClient discoveryClient,
+                              ApplicationProperties applicationProperties) {
         this.env = env;
         this.serverProperties = serverProperties;
         this.discoveryClient = discoveryClient;
+        this.applicationProperties = applicationProperties;
     }
 
     @Autowired(required = false)
@@ -113,7 +134,13 @@ public class CacheConfiguration {
 
         // Full reference is available at: https://docs.hazelcast.org/docs/management-center/3.9/manual/html/Deploying_and_Starting.html
         config.setManagementCenterConfig(initializeDefaultManagementCenterConfig(jHipsterProperties));
-        config.getMapConfigs().put("br.gov.bomdestino.cidadao.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(DOMAIN_MAPS + "*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(QUERY_MAPS + "*", initializeQueryMapConfig(jHipsterProperties));
+
+        // Near-cache entries changed on other members are invalidated in batches
+        ApplicationProperties.NearCache nearCache = applicationProperties.getNearCache();
+        config.setProperty("hazelcast.map.invalidation.batch.size", String.valueOf(nearCache.getInvalidationBatchSize()));
+        config.setProperty("hazelcast.map.invalidation.batchfrequency.seconds", String.valueOf(nearCache.getInvalidationBatchFrequencySeconds()));
         return Hazelcast.newHazelcastInstance(config);
     }
 
@@ -158,9 +185,80 @@ public class CacheConfiguration {
     private MapConfig initializeDomainMapConfig(JHipsterProperties jHipsterProperties) {
         MapConfig mapConfig = new MapConfig();
         mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
+        mapConfig.setStatisticsEnabled(true);
+        if (applicationProperties.getNearCache().isEnabled()) {
+            mapConfig.setNearCacheConfig(initializeNearCacheConfig(mapConfig.getTimeToLiveSeconds()));
+        }
+        return mapConfig;
+    }
+
+    /*
+    The query cache regions are kept locally by each member. Their results are
+    checked against the distributed update timestamps region before being used.
+    */
+    private MapConfig initializeQueryMapConfig(JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = new MapConfig();
+        mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(applicationProperties.getQueryCache().getMaxSize(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
         return mapConfig;
     }
 
+    /*
+    Second-level cache hits are served from the memory of this member,
+    without the network hop to the member owning the entry. An entry changed
+    on another member is read stale until its batched invalidation arrives.
+    */
+    private NearCacheConfig initializeNearCacheConfig(int mapTimeToLiveSeconds) {
+        ApplicationProperties.NearCache properties = applicationProperties.getNearCache();
+        NearCacheConfig nearCacheConfig = new NearCacheConfig();
+        nearCacheConfig.setInMemoryFormat(properties.getInMemoryFormat());
+        nearCacheConfig.setInvalidateOnChange(properties.isInvalidateOnChange());
+        nearCacheConfig.setTimeToLiveSeconds(properties.getTimeToLiveSeconds() > 0 ? properties.getTimeToLiveSeconds() : mapTimeToLiveSeconds);
+        nearCacheConfig.setMaxIdleSeconds(properties.getMaxIdleSeconds());
+        nearCacheConfig.setCacheLocalEntries(properties.isCacheLocalEntries());
+        nearCacheConfig.setEvictionConfig(new EvictionConfig(properties.getMaxSize(), EvictionConfig.MaxSizePolicy.ENTRY_COUNT,
+            properties.getEvictionPolicy()));
+        return nearCacheConfig;
+    }
+
+    /**
+     * Publishes the statistics of the domain maps as the {@code cache.*} metrics (near-cache hits and misses:
+     * {@code cache.near.requests}) and their near-cache hit ratio as {@code cache.near.hit.ratio}.
+     * <p>
+     * The maps are those of the second-level cache regions, all created by Hibernate while building the
+     * {@link EntityManagerFactory}, so their meters are registered as soon as this binder is bound. None without the
+     * second-level cache.
+     */
+    @Bean
+    public MeterBinder domainCacheMetrics(HazelcastInstance hazelcastInstance, EntityManagerFactory entityManagerFactory) {
+        Set<String> regionNames = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache().getCacheRegionNames();
+        if (regionNames == null) {
+            return registry -> { };
+        }
+        return registry -> regionNames.stream()
+            .filter(regionName -> regionName.startsWith(DOMAIN_MAPS))
+            .forEach(regionName -> monitorDomainMap(registry, hazelcastInstance.getMap(regionName)));
+    }
+
+    private static void monitorDomainMap(MeterRegistry registry, IMap<?, ?> map) {
+        // Same tag keys as the Spring caches bound by Spring Boot, Prometheus rejects meters whose keys differ
+        Tags tags = Tags.of("cacheManager", HIBERNATE_CACHE_MANAGER, "name", map.getName());
+        HazelcastCacheMetrics.monitor(registry, map, tags);
+        Gauge.builder("cache.near.hit.ratio", map, CacheConfiguration::nearCacheHitRatio)
+            .description("Share of the reads served by the near-cache")
+            .tag("cache", map.getName())
+            .tags(tags)
+            .register(registry);
+    }
+
+    private static double nearCacheHitRatio(IMap<?, ?> map) {
+        NearCacheStats stats = map.getLocalMapStats().getNearCacheStats();
+        if (stats == null || stats.getHits() + stats.getMisses() == 0) {
+            return 0;
+        }
+        return (double) stats.getHits() / (stats.getHits() + stats.getMisses());
+    }
+
     @Autowired(required = false)
     public void setGitProperties(GitProperties gitProperties) {
         this.gitProperties = gitProperties;
@@ -7,6 +7,10 @@ public final class Constants {
 
     public static final String SYSTEM_ACCOUNT = "system";
 
+    public static final String CIDADAO_CADASTRADO_TOPIC = "cidadaoCadastrado";
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private Constants() {
     }
 }
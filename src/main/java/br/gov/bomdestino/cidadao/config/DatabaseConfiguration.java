@@ -1,7 +1,14 @@
 package br.gov.bomdestino.cidadao.config;
 
+import br.gov.bomdestino.cidadao.config.hibernate.QueryCacheMetrics;
+import br.gov.bomdestino.cidadao.config.hibernate.QueryExecutionMetrics;
+import br.gov.bomdestino.cidadao.config.hibernate.SecondLevelCacheMetrics;
+import br.gov.bomdestino.cidadao.config.hibernate.SequenceAllocationMetrics;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.h2.H2ConfigurationHelper;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +21,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import javax.persistence.EntityManagerFactory;
 import java.sql.SQLException;
 
 @Configuration
@@ -45,6 +53,29 @@ public class DatabaseConfiguration {
         return H2ConfigurationHelper.createServer(port);
     }
 
+    @Bean
+    public MeterBinder sequenceAllocationMetrics() {
+        return SequenceAllocationMetrics.getInstance();
+    }
+
+    @Bean
+    public MeterBinder queryCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return new QueryCacheMetrics(entityManagerFactory.unwrap(SessionFactory.class).getStatistics(), CidadaoRepository.QUERY_CACHES);
+    }
+
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return new SecondLevelCacheMetrics(entityManagerFactory.unwrap(SessionFactory.class).getStatistics());
+    }
+
+    @Bean
+    public MeterBinder queryExecutionMetrics(ApplicationProperties applicationProperties) {
+        ApplicationProperties.QueryTelemetry properties = applicationProperties.getQueryTelemetry();
+        QueryExecutionMetrics metrics = QueryExecutionMetrics.getInstance();
+        metrics.configure(properties.getMaxQueries(), properties.getSlowQueryThresholdMs());
+        return metrics;
+    }
+
     private String getValidPortForH2() {
         int port = Integer.parseInt(env.getProperty("server.port"));
         if (port < 10000) {
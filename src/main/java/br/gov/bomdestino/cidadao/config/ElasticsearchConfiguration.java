@@ -3,29 +3,49 @@ package br.gov.bomdestino.cidadao.config;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.github.vanroy.springdata.jest.JestElasticsearchTemplate;
-import com.github.vanroy.springdata.jest.mapper.DefaultJestResultsMapper;
-import io.searchbox.client.JestClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.boot.autoconfigure.data.elasticsearch.ElasticsearchProperties;
+import org.springframework.boot.autoconfigure.elasticsearch.rest.RestClientProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.elasticsearch.core.DefaultResultMapper;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.EntityMapper;
 import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
 import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
 import org.springframework.data.mapping.MappingException;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.ToDoubleFunction;
 
+/**
+ * Elasticsearch is reached through a single pooled {@link RestHighLevelClient}, shared by the Spring Data
+ * repositories and the async search calls. The pool is sized by {@code application.elasticsearch.*}.
+ */
 @Configuration
-@EnableConfigurationProperties(ElasticsearchProperties.class)
+@EnableConfigurationProperties({ElasticsearchProperties.class, RestClientProperties.class})
 public class ElasticsearchConfiguration {
 
     private ObjectMapper mapper;
@@ -39,16 +59,93 @@ public class ElasticsearchConfiguration {
         return new CustomEntityMapper(mapper);
     }
 
+    @Bean
+    public SimpleElasticsearchMappingContext elasticsearchMappingContext() {
+        return new SimpleElasticsearchMappingContext();
+    }
+
+    @Bean
+    public ElasticsearchConverter elasticsearchConverter(SimpleElasticsearchMappingContext mappingContext) {
+        return new MappingElasticsearchConverter(mappingContext);
+    }
+
+    @Bean
+    public RestClientBuilder elasticsearchRestClientBuilder(RestClientProperties restClientProperties,
+                                                            ApplicationProperties applicationProperties,
+                                                            MeterRegistry meterRegistry) {
+        ApplicationProperties.Elasticsearch properties = applicationProperties.getElasticsearch();
+        PoolingNHttpClientConnectionManager connectionManager = createConnectionManager(properties);
+        registerPoolGauges(connectionManager, meterRegistry);
+
+        HttpHost[] hosts = restClientProperties.getUris().stream().map(HttpHost::create).toArray(HttpHost[]::new);
+        return RestClient.builder(hosts)
+            .setRequestConfigCallback(requestConfig -> requestConfig
+                .setConnectTimeout((int) restClientProperties.getConnectionTimeout().toMillis())
+                .setSocketTimeout((int) restClientProperties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) properties.getConnectionRequestTimeoutMs()))
+            .setHttpClientConfigCallback(httpClient -> {
+                httpClient.setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy((response, context) -> properties.getKeepAliveMs());
+                if (restClientProperties.getUsername() != null) {
+                    CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+                    credentialsProvider.setCredentials(AuthScope.ANY,
+                        new UsernamePasswordCredentials(restClientProperties.getUsername(), restClientProperties.getPassword()));
+                    httpClient.setDefaultCredentialsProvider(credentialsProvider);
+                }
+                return timed(httpClient, meterRegistry);
+            });
+    }
+
+    /**
+     * @return a builder of the configured client, wrapped in a {@link TimedHttpAsyncClient}: unlike the response
+     * interceptors, it also sees the requests that fail without a response.
+     */
+    private static HttpAsyncClientBuilder timed(HttpAsyncClientBuilder httpClient, MeterRegistry meterRegistry) {
+        return new HttpAsyncClientBuilder() {
+            @Override
+            public CloseableHttpAsyncClient build() {
+                return new TimedHttpAsyncClient(httpClient.build(), meterRegistry);
+            }
+        };
+    }
+
+    private static PoolingNHttpClientConnectionManager createConnectionManager(ApplicationProperties.Elasticsearch properties) {
+        try {
+            PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT));
+            connectionManager.setMaxTotal(properties.getMaxConnTotal());
+            connectionManager.setDefaultMaxPerRoute(properties.getMaxConnPerRoute());
+            return connectionManager;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Could not create the Elasticsearch connection pool", e);
+        }
+    }
+
+    private static void registerPoolGauges(PoolingNHttpClientConnectionManager connectionManager, MeterRegistry meterRegistry) {
+        registerPoolGauge(connectionManager, meterRegistry, "leased", PoolStats::getLeased);
+        registerPoolGauge(connectionManager, meterRegistry, "available", PoolStats::getAvailable);
+        registerPoolGauge(connectionManager, meterRegistry, "pending", PoolStats::getPending);
+        registerPoolGauge(connectionManager, meterRegistry, "max", PoolStats::getMax);
+    }
+
+    private static void registerPoolGauge(PoolingNHttpClientConnectionManager connectionManager, MeterRegistry meterRegistry,
+                                          String state, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("elasticsearch.client.connections", connectionManager, manager -> value.applyAsDouble(manager.getTotalStats()))
+            .description("Connections of the Elasticsearch client pool")
+            .tag("state", state)
+            .register(meterRegistry);
+    }
+
     @Bean
     @Primary
-    public ElasticsearchOperations elasticsearchTemplate(JestClient jestClient,
+    public ElasticsearchOperations elasticsearchTemplate(RestHighLevelClient client,
                                                          ElasticsearchConverter elasticsearchConverter,
                                                          SimpleElasticsearchMappingContext mappingContext,
                                                          EntityMapper entityMapper) {
-        return new JestElasticsearchTemplate(
-            jestClient,
+        return new ElasticsearchRestTemplate(
+            client,
             elasticsearchConverter,
-            new DefaultJestResultsMapper(mappingContext, entityMapper));
+            new DefaultResultMapper(mappingContext, entityMapper));
     }
 
     public class CustomEntityMapper implements EntityMapper {
@@ -0,0 +1,124 @@
+package br.gov.bomdestino.cidadao.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.SeekToCurrentBatchErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka clients of the application, built from the {@code kafka.*} properties.
+ * <p>
+ * Records are sent through one {@link KafkaTemplate}, with one shared producer (see
+ * {@link MeteredKafkaProducerFactory}) whose defaults come from {@code application.producer.preset}.
+ * Values are sent as bytes: the schema-versioned events of the outbox as encoded, and text values
+ * encoded in UTF-8 by their senders, as the {@code StringSerializer} would.
+ * <p>
+ * Listeners receive the values as bytes, to decode themselves, in whole polls as batches and
+ * acknowledge them manually once processed. A batch
+ * whose processing fails is redelivered after {@code application.consumer.retry-interval-ms}; records
+ * that can never be processed are sent to the dead-letter topic instead, by the listener itself.
+ */
+@Configuration
+public class KafkaConfiguration {
+
+    public static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchListenerContainerFactory";
+
+    public static final String DEAD_LETTER_TOPIC_SUFFIX = ".DLT";
+
+    @Bean
+    public ConsumerFactory<String, byte[]> consumerFactory(KafkaProperties kafkaProperties, ApplicationProperties applicationProperties) {
+        Map<String, Object> consumerProps = kafkaProperties.getConsumerProps();
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, applicationProperties.getConsumer().getMaxPollRecords());
+        return new DefaultKafkaConsumerFactory<>(consumerProps, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @Bean
+    public ProducerFactory<String, byte[]> producerFactory(KafkaProperties kafkaProperties, ApplicationProperties applicationProperties,
+                                                           MeterRegistry meterRegistry) {
+        return new MeteredKafkaProducerFactory<>(producerProperties(kafkaProperties, applicationProperties),
+            new StringSerializer(), new ByteArraySerializer(), meterRegistry);
+    }
+
+    private static Map<String, Object> producerProperties(KafkaProperties kafkaProperties, ApplicationProperties applicationProperties) {
+        Map<String, Object> producerProps = presetProperties(applicationProperties.getProducer().getPreset());
+        producerProps.putAll(kafkaProperties.getProducerProps());
+        return producerProps;
+    }
+
+    static Map<String, Object> presetProperties(ApplicationProperties.Producer.Preset preset) {
+        Map<String, Object> properties = new HashMap<>();
+        switch (preset) {
+            case RELIABLE:
+                properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+                properties.put(ProducerConfig.ACKS_CONFIG, "all");
+                properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+                properties.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+                properties.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
+                break;
+            case THROUGHPUT:
+                properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+                properties.put(ProducerConfig.ACKS_CONFIG, "1");
+                properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+                properties.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+                properties.put(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+                break;
+            default:
+                break;
+        }
+        return properties;
+    }
+
+    /**
+     * Sends with the shared producer, created on the first send and flushed and closed by the factory on shutdown.
+     */
+    @Bean
+    public KafkaTemplate<String, byte[]> kafkaTemplate(ProducerFactory<String, byte[]> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Publishes a record, as received, to {@code <topic>.DLT}, with the exception in its headers, and waits up to
+     * {@code application.consumer.dead-letter-timeout-ms} for the broker. The partition is left to the producer, so
+     * the dead-letter topic needs no more than one partition.
+     */
+    @Bean
+    public ConsumerRecordRecoverer deadLetterRecoverer(KafkaTemplate<String, byte[]> kafkaTemplate, ApplicationProperties applicationProperties) {
+        return new BlockingDeadLetterPublishingRecoverer(kafkaTemplate,
+            (record, exception) -> new TopicPartition(record.topic() + DEAD_LETTER_TOPIC_SUFFIX, -1),
+            applicationProperties.getConsumer().getDeadLetterTimeoutMs());
+    }
+
+    @Bean(name = BATCH_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> batchListenerContainerFactory(
+        ConsumerFactory<String, byte[]> consumerFactory, ApplicationProperties applicationProperties) {
+        ApplicationProperties.Consumer properties = applicationProperties.getConsumer();
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(properties.getConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        SeekToCurrentBatchErrorHandler errorHandler = new SeekToCurrentBatchErrorHandler();
+        errorHandler.setBackOff(new FixedBackOff(properties.getRetryIntervalMs(), FixedBackOff.UNLIMITED_ATTEMPTS));
+        factory.setBatchErrorHandler(errorHandler);
+        return factory;
+    }
+}
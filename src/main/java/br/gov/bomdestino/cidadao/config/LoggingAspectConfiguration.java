@@ -1,19 +1,28 @@
 package br.gov.bomdestino.cidadao.config;
 
 import br.gov.bomdestino.cidadao.aop.logging.LoggingAspect;
+import br.gov.bomdestino.cidadao.aop.logging.LoggingAspectEndpoint;
 
-import io.github.jhipster.config.JHipsterConstants;
-
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
+/**
+ * Enabled by {@code application.aop-logging.enabled}, set in the "dev" profile.
+ */
 @Configuration
 @EnableAspectJAutoProxy
+@ConditionalOnProperty(prefix = "application.aop-logging", name = "enabled", havingValue = "true")
 public class LoggingAspectConfiguration {
 
     @Bean
-    @Profile(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT)
-    public LoggingAspect loggingAspect(Environment env) {
-        return new LoggingAspect(env);
+    public LoggingAspect loggingAspect(Environment env, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        return new LoggingAspect(env, applicationProperties, meterRegistry);
+    }
+
+    @Bean
+    public LoggingAspectEndpoint loggingAspectEndpoint(LoggingAspect loggingAspect) {
+        return new LoggingAspectEndpoint(loggingAspect);
     }
 }
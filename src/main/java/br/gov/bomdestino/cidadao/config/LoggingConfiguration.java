@@ -1,14 +1,25 @@
 package br.gov.bomdestino.cidadao.config;
 
+import br.gov.bomdestino.cidadao.config.logging.AsyncConsoleAppender;
+import br.gov.bomdestino.cidadao.config.logging.AsyncLoggingMetrics;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.spi.ContextAwareBase;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.HashMap;
@@ -23,9 +34,16 @@ import static io.github.jhipster.config.logging.LoggingUtils.*;
 @RefreshScope
 public class LoggingConfiguration {
 
+    private static final String CONSOLE_APPENDER_NAME = "CONSOLE";
+
+    private static final String ASYNC_CONSOLE_APPENDER_NAME = "ASYNC_CONSOLE";
+
+    private final AsyncLoggingMetrics asyncLoggingMetrics = new AsyncLoggingMetrics();
+
     public LoggingConfiguration(@Value("${spring.application.name}") String appName,
                                 @Value("${server.port}") String serverPort,
                                 JHipsterProperties jHipsterProperties,
+                                ApplicationProperties applicationProperties,
                                 ObjectProvider<BuildProperties> buildProperties,
                                 ObjectMapper mapper) throws JsonProcessingException {
 
@@ -52,5 +70,82 @@ public class LoggingConfiguration {
         if (jHipsterProperties.getMetrics().getLogs().isEnabled()) {
             setMetricsMarkerLogbackFilter(context, loggingProperties.isUseJsonFormat());
         }
+        // The Logstash appender already has its own non-blocking ring buffer, only the console is made asynchronous
+        ApplicationProperties.AsyncLogging asyncLogging = applicationProperties.getAsyncLogging();
+        if (asyncLogging.isEnabled() && addAsyncConsoleAppender(context, asyncLogging, asyncLoggingMetrics)) {
+            AsyncConsoleListener listener = new AsyncConsoleListener(asyncLogging, asyncLoggingMetrics);
+            listener.setContext(context);
+            context.addListener(listener);
+        }
+    }
+
+    @Bean
+    public MeterBinder asyncLoggingMetrics() {
+        return asyncLoggingMetrics;
+    }
+
+    /**
+     * Replaces the console appender of the root logger, from Spring Boot or {@link #addJsonConsoleAppender},
+     * with an {@link AsyncConsoleAppender} using the same encoder and filters.
+     *
+     * @return whether there was a console appender to replace.
+     */
+    private static boolean addAsyncConsoleAppender(LoggerContext context, ApplicationProperties.AsyncLogging properties,
+                                                AsyncLoggingMetrics metrics) {
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        Appender<ILoggingEvent> appender = root.getAppender(CONSOLE_APPENDER_NAME);
+        if (!(appender instanceof ConsoleAppender)) {
+            return false;
+        }
+        ConsoleAppender<ILoggingEvent> console = (ConsoleAppender<ILoggingEvent>) appender;
+        // Stops the console appender once detached, with the asynchronous one
+        AsyncConsoleAppender asyncConsole = new AsyncConsoleAppender(console, properties, metrics);
+        asyncConsole.setContext(context);
+        asyncConsole.setName(ASYNC_CONSOLE_APPENDER_NAME);
+        console.getCopyOfAttachedFiltersList().forEach(asyncConsole::addFilter);
+        asyncConsole.start();
+        root.addAppender(asyncConsole);
+        root.detachAppender(console);
+        return true;
+    }
+
+    /**
+     * Makes the console asynchronous again after Logback is reconfigured.
+     */
+    private static class AsyncConsoleListener extends ContextAwareBase implements LoggerContextListener {
+
+        private final ApplicationProperties.AsyncLogging properties;
+
+        private final AsyncLoggingMetrics metrics;
+
+        private AsyncConsoleListener(ApplicationProperties.AsyncLogging properties, AsyncLoggingMetrics metrics) {
+            this.properties = properties;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean isResetResistant() {
+            return true;
+        }
+
+        @Override
+        public void onStart(LoggerContext context) {
+            addAsyncConsoleAppender(context, properties, metrics);
+        }
+
+        @Override
+        public void onReset(LoggerContext context) {
+            addAsyncConsoleAppender(context, properties, metrics);
+        }
+
+        @Override
+        public void onStop(LoggerContext context) {
+            // Nothing to do
+        }
+
+        @Override
+        public void onLevelChange(Logger logger, Level level) {
+            // Nothing to do
+        }
     }
 }
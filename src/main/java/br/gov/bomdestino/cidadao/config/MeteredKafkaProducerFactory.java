@@ -0,0 +1,67 @@
+package br.gov.bomdestino.cidadao.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.kafka.KafkaClientMetrics;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Producer factory whose producers publish their client metrics ({@code kafka.producer.*}: batch size,
+ * record send rate, request latency...) to Micrometer.
+ * <p>
+ * Not being transactional, each factory hands out one shared producer. On shutdown it is flushed, then
+ * closed, so no record accepted by {@code send} is lost.
+ */
+public class MeteredKafkaProducerFactory<K, V> extends DefaultKafkaProducerFactory<K, V> {
+
+    private final Logger log = LoggerFactory.getLogger(MeteredKafkaProducerFactory.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final List<KafkaClientMetrics> clientMetrics = new CopyOnWriteArrayList<>();
+
+    private volatile Producer<K, V> producer;
+
+    public MeteredKafkaProducerFactory(Map<String, Object> configs, MeterRegistry meterRegistry) {
+        super(configs);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public MeteredKafkaProducerFactory(Map<String, Object> configs, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       MeterRegistry meterRegistry) {
+        super(configs, keySerializer, valueSerializer);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected Producer<K, V> createKafkaProducer() {
+        Producer<K, V> created = super.createKafkaProducer();
+        KafkaClientMetrics metrics = new KafkaClientMetrics(created);
+        metrics.bindTo(meterRegistry);
+        clientMetrics.add(metrics);
+        producer = created;
+        return created;
+    }
+
+    @Override
+    public void destroy() {
+        Producer<K, V> current = producer;
+        if (current != null) {
+            log.debug("Flushing the Kafka producer");
+            try {
+                current.flush();
+            } catch (RuntimeException e) {
+                log.warn("Could not flush the Kafka producer: {}", e.getMessage());
+            }
+        }
+        super.destroy();
+        clientMetrics.forEach(KafkaClientMetrics::close);
+    }
+}
@@ -0,0 +1,109 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.config.hibernate.QueryExecutionMetrics;
+import br.gov.bomdestino.cidadao.config.hibernate.SecondLevelCacheMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheableDataStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@code /management/persistence}: state of the connection pool, second-level cache statistics of each cached
+ * entity and collection, and the slowest queries since startup.
+ * <p>
+ * {@code /management/persistence/{id}}: the query tagged with this id in the {@code hibernate.query.execution}
+ * timers.
+ * <p>
+ * Reads the statistics already gathered for the metrics, so it costs nothing until called. The cache and query
+ * statistics are empty unless {@code hibernate.generate_statistics} is enabled.
+ */
+@Component
+@Endpoint(id = "persistence")
+public class PersistenceEndpoint {
+
+    private final DataSource dataSource;
+
+    private final Statistics statistics;
+
+    private final ApplicationProperties applicationProperties;
+
+    public PersistenceEndpoint(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+                               ApplicationProperties applicationProperties) {
+        this.dataSource = dataSource;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.applicationProperties = applicationProperties;
+    }
+
+    @ReadOperation
+    public Map<String, Object> persistence() throws SQLException {
+        Map<String, Object> persistence = new LinkedHashMap<>();
+        persistence.put("connectionPool", connectionPool());
+        persistence.put("secondLevelCache", secondLevelCache());
+        persistence.put("slowestQueries",
+            QueryExecutionMetrics.getInstance().getSlowest(applicationProperties.getQueryTelemetry().getSlowestQueries()));
+        return persistence;
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<QueryExecutionMetrics.QueryTiming> query(@Selector String id) {
+        return QueryExecutionMetrics.getInstance().getTiming(id)
+            .map(WebEndpointResponse::new)
+            .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+
+    private Map<String, Object> connectionPool() throws SQLException {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return pool;
+        }
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        pool.put("maximum", hikari.getMaximumPoolSize());
+        HikariPoolMXBean mxBean = hikari.getHikariPoolMXBean();
+        if (mxBean != null) {
+            pool.put("active", mxBean.getActiveConnections());
+            pool.put("idle", mxBean.getIdleConnections());
+            pool.put("total", mxBean.getTotalConnections());
+            pool.put("pending", mxBean.getThreadsAwaitingConnection());
+        }
+        return pool;
+    }
+
+    private Map<String, Object> secondLevelCache() {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        for (String entity : statistics.getEntityNames()) {
+            putCacheStatistics(cache, entity, statistics::getEntityStatistics);
+        }
+        for (String role : statistics.getCollectionRoleNames()) {
+            putCacheStatistics(cache, role, statistics::getCollectionStatistics);
+        }
+        return cache;
+    }
+
+    private static void putCacheStatistics(Map<String, Object> cache, String name,
+                                           Function<String, ? extends CacheableDataStatistics> lookup) {
+        CacheableDataStatistics data = lookup.apply(name);
+        if (data.getCacheRegionName() == null) {
+            return;
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("region", data.getCacheRegionName());
+        entry.put("hits", data.getCacheHitCount());
+        entry.put("misses", data.getCacheMissCount());
+        entry.put("puts", data.getCachePutCount());
+        entry.put("hitRatio", SecondLevelCacheMetrics.hitRatio(data));
+        cache.put(name, entry);
+    }
+}
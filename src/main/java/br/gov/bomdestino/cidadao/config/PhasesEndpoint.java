@@ -0,0 +1,65 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.service.PhaseMetrics;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /management/phases}: for each timed operation, the count, mean and maximum time of its phases, their
+ * share of the total time and the number of executions within each SLO boundary.
+ */
+@Component
+@Endpoint(id = "phases")
+public class PhasesEndpoint {
+
+    private final PhaseMetrics phaseMetrics;
+
+    public PhasesEndpoint(PhaseMetrics phaseMetrics) {
+        this.phaseMetrics = phaseMetrics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> phases() {
+        Map<String, Object> operations = new TreeMap<>();
+        for (PhaseMetrics.Operation operation : phaseMetrics.getOperations()) {
+            Map<String, HistogramSnapshot> snapshots = new LinkedHashMap<>();
+            operation.getTimers().forEach((phase, timer) -> snapshots.put(phase, timer.takeSnapshot()));
+            double totalMs = snapshots.values().stream().mapToDouble(snapshot -> snapshot.total(TimeUnit.MILLISECONDS)).sum();
+
+            Map<String, Object> phases = new LinkedHashMap<>();
+            snapshots.forEach((phase, snapshot) -> phases.put(phase, phase(snapshot, totalMs)));
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("uri", operation.getUri());
+            entry.put("phases", phases);
+            operations.put(operation.getName(), entry);
+        }
+        return operations;
+    }
+
+    private static Map<String, Object> phase(HistogramSnapshot snapshot, double operationTotalMs) {
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("count", snapshot.count());
+        phase.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        phase.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        phase.put("share", operationTotalMs == 0 ? 0 : snapshot.total(TimeUnit.MILLISECONDS) / operationTotalMs);
+        // Cumulative counts: executions that took at most each boundary
+        Map<String, Long> slo = new LinkedHashMap<>();
+        for (CountAtBucket bucket : snapshot.histogramCounts()) {
+            slo.put(boundary(bucket.bucket(TimeUnit.MILLISECONDS)), (long) bucket.count());
+        }
+        phase.put("slo", slo);
+        return phase;
+    }
+
+    private static String boundary(double millis) {
+        return millis == Math.rint(millis) ? (long) millis + "ms" : millis + "ms";
+    }
+}
@@ -0,0 +1,101 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.config.profiling.ControllerProfile;
+import br.gov.bomdestino.cidadao.config.profiling.FlightRecordings;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@code /management/profiling}: JDK Flight Recorder recordings, see {@link FlightRecordings}.
+ * <ul>
+ * <li>{@code GET /management/profiling}: the recordings.</li>
+ * <li>{@code POST /management/profiling/{name}}, with optional {@code settings} and {@code durationSeconds}: starts
+ * a recording.</li>
+ * <li>{@code GET /management/profiling/{name}}: CPU samples, allocations, lock contention, socket I/O and pinned
+ * virtual threads of the recording so far, per controller method.</li>
+ * <li>{@code GET /management/profiling/{name}/jfr}: the recording so far, as a {@code .jfr} file.</li>
+ * <li>{@code DELETE /management/profiling/{name}}: stops the recording, or discards it once stopped.</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnClass(name = "jdk.jfr.FlightRecorder")
+@WebEndpoint(id = "profiling")
+public class ProfilingEndpoint {
+
+    private static final String CONTROLLER_PACKAGE = "br.gov.bomdestino.cidadao.web.rest";
+
+    private static final String JFR_FORMAT = "jfr";
+
+    private final FlightRecordings flightRecordings;
+
+    public ProfilingEndpoint(FlightRecordings flightRecordings) {
+        this.flightRecordings = flightRecordings;
+    }
+
+    @ReadOperation
+    public Map<String, Object> recordings() {
+        Map<String, Object> recordings = new LinkedHashMap<>();
+        flightRecordings.getRecordings().forEach((name, recording) -> recordings.put(name, recording.describe()));
+        return recordings;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> start(@Selector String name, @Nullable String settings, @Nullable Long durationSeconds) {
+        try {
+            Duration duration = durationSeconds == null ? null : Duration.ofSeconds(durationSeconds);
+            return new WebEndpointResponse<>(flightRecordings.start(name, settings, duration).describe());
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(e.getMessage(), WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(e.getMessage(), 409);
+        }
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<Map<String, ControllerProfile.MethodProfile>> summary(@Selector String name) throws IOException {
+        Optional<Path> file = flightRecordings.dump(name);
+        if (!file.isPresent()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            return new WebEndpointResponse<>(ControllerProfile.summarize(file.get(), CONTROLLER_PACKAGE));
+        } finally {
+            Files.deleteIfExists(file.get());
+        }
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector String name, @Selector String format) throws IOException {
+        Optional<Path> file = JFR_FORMAT.equals(format) ? flightRecordings.dump(name) : Optional.empty();
+        if (!file.isPresent()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        // The dump is deleted once sent
+        return new WebEndpointResponse<>(new InputStreamResource(
+            Files.newInputStream(file.get(), StandardOpenOption.DELETE_ON_CLOSE), file.get().getFileName().toString()));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> stop(@Selector String name) throws IOException {
+        return new WebEndpointResponse<>(flightRecordings.stopOrDiscard(name)
+            ? WebEndpointResponse.STATUS_NO_CONTENT : WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+}
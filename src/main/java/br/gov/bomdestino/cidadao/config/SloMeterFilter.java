@@ -0,0 +1,50 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.service.PhaseMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Gives the request timers ({@code http.server.requests} and {@link PhaseMetrics#METER_NAME}) a histogram whose
+ * buckets are the SLO boundaries of their {@code uri}, from {@code application.slo}, instead of the default
+ * percentile histogram of about 70 buckets per timer.
+ */
+@Component
+public class SloMeterFilter implements MeterFilter {
+
+    private static final String HTTP_SERVER_REQUESTS = "http.server.requests";
+
+    private final ApplicationProperties.Slo properties;
+
+    public SloMeterFilter(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getSlo();
+    }
+
+    @Override
+    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+        if (!HTTP_SERVER_REQUESTS.equals(id.getName()) && !PhaseMetrics.METER_NAME.equals(id.getName())) {
+            return config;
+        }
+        return DistributionStatisticConfig.builder()
+            .sla(boundaries(id.getTag("uri")))
+            .build()
+            .merge(config);
+    }
+
+    /**
+     * @param uri the {@code uri} tag of the timer, may be {@code null}.
+     * @return the SLO boundaries of the uri, in nanoseconds.
+     */
+    long[] boundaries(String uri) {
+        List<Duration> boundaries = uri == null ? null : properties.getEndpoints().get(uri);
+        if (boundaries == null || boundaries.isEmpty()) {
+            boundaries = properties.getDefaultBoundaries();
+        }
+        return boundaries.stream().mapToLong(Duration::toNanos).sorted().toArray();
+    }
+}
@@ -0,0 +1,107 @@
+package br.gov.bomdestino.cidadao.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client of the Elasticsearch {@link org.elasticsearch.client.RestClient}, timing each request from its
+ * execution, connection lease included, to its response or failure as {@code elasticsearch.client.requests}.
+ * <p>
+ * The timers are tagged with the {@code status} of the response, or {@code NONE}, its {@code outcome}, or
+ * {@code UNKNOWN} without a response, and the {@code exception} that failed the request, or {@code None}. Each
+ * timer is built once per tag set.
+ */
+public class TimedHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    static final String REQUESTS_METRIC = "elasticsearch.client.requests";
+
+    private static final int NO_STATUS = -1;
+
+    private final CloseableHttpAsyncClient client;
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public TimedHttpAsyncClient(CloseableHttpAsyncClient client, MeterRegistry registry) {
+        this.client = client;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return client.isRunning();
+    }
+
+    @Override
+    public void start() {
+        client.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        long start = System.nanoTime();
+        return client.execute(requestProducer, responseConsumer, context, new FutureCallback<T>() {
+
+            @Override
+            public void completed(T result) {
+                int status = result instanceof HttpResponse ? ((HttpResponse) result).getStatusLine().getStatusCode() : NO_STATUS;
+                record(start, status, null);
+                if (callback != null) {
+                    callback.completed(result);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                record(start, NO_STATUS, ex);
+                if (callback != null) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                record(start, NO_STATUS, new CancellationException());
+                if (callback != null) {
+                    callback.cancelled();
+                }
+            }
+        });
+    }
+
+    private void record(long start, int status, Exception exception) {
+        timer(status, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(int status, Exception exception) {
+        String statusTag = status == NO_STATUS ? "NONE" : String.valueOf(status);
+        String exceptionTag = exception == null ? "None" : exception.getClass().getSimpleName();
+        return timers.computeIfAbsent(statusTag + ' ' + exceptionTag, key -> Timer.builder(REQUESTS_METRIC)
+            .description("Latency of the HTTP requests sent to Elasticsearch, failed ones included")
+            .tag("status", statusTag)
+            .tag("outcome", status == NO_STATUS ? Outcome.UNKNOWN.name() : Outcome.forStatus(status).name())
+            .tag("exception", exceptionTag)
+            .register(registry));
+    }
+}
@@ -0,0 +1,63 @@
+package br.gov.bomdestino.cidadao.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the servlet requests on virtual threads instead of the Undertow worker pool, when
+ * {@code application.virtual-threads.enabled} is set and the JVM has them.
+ * <p>
+ * The {@code taskExecutor} ({@link AsyncConfiguration}) and the event streams
+ * ({@link br.gov.bomdestino.cidadao.service.EventStreamService}) check the same property.
+ * <p>
+ * The request executor is shut down with the context, once Undertow has stopped.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements DisposableBean {
+
+    private final Logger log = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    private final ApplicationProperties.VirtualThreads properties;
+
+    private volatile ExecutorService requestExecutor;
+
+    public VirtualThreadConfiguration(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getVirtualThreads();
+        if (VirtualThreads.isEnabled(properties)) {
+            VirtualThreads.tracePinnedThreads(properties.getTracePinnedThreads());
+        }
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> virtualThreadWebServerCustomizer() {
+        return factory -> {
+            if (!VirtualThreads.isEnabled(properties)) {
+                return;
+            }
+            log.info("Requisições executadas em threads virtuais");
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+            requestExecutor = executor;
+            factory.addDeploymentInfoCustomizers(deploymentInfo -> {
+                deploymentInfo.setExecutor(executor);
+                deploymentInfo.setAsyncExecutor(executor);
+            });
+        };
+    }
+
+    @Override
+    public void destroy() {
+        ExecutorService executor = requestExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
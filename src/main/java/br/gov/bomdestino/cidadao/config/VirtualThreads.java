@@ -0,0 +1,113 @@
+package br.gov.bomdestino.cidadao.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Virtual threads (Java 21), looked up by reflection as the application is built for Java 8.
+ * <p>
+ * They are used by the web tier, the {@code taskExecutor} and the event streams when
+ * {@code application.virtual-threads.enabled} is set and the JVM has them; otherwise these keep their platform
+ * threads.
+ */
+public final class VirtualThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final String TRACE_PINNED_THREADS = "jdk.tracePinnedThreads";
+
+    private static final boolean AVAILABLE = probe();
+
+    private static final AtomicBoolean unavailableLogged = new AtomicBoolean();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the JVM has virtual threads, without preview features.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @param properties the virtual threads properties.
+     * @return whether virtual threads are enabled and available; logs once when they are enabled but not available.
+     */
+    public static boolean isEnabled(ApplicationProperties.VirtualThreads properties) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        if (!AVAILABLE && unavailableLogged.compareAndSet(false, true)) {
+            log.warn("Threads virtuais habilitadas, mas indisponíveis na JVM {} (requer Java 21): mantidas as threads de plataforma",
+                System.getProperty("java.version"));
+        }
+        return AVAILABLE;
+    }
+
+    /**
+     * @param prefix the prefix of the thread names, followed by a counter.
+     * @return a factory of virtual threads.
+     * @throws IllegalStateException if virtual threads are not available.
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        if (!AVAILABLE) {
+            throw new IllegalStateException("Virtual threads are not available");
+        }
+        try {
+            return createThreadFactory(prefix);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread factory", e);
+        }
+    }
+
+    /**
+     * @param prefix the prefix of the thread names, followed by a counter.
+     * @return an executor starting a new virtual thread for each task.
+     * @throws IllegalStateException if virtual threads are not available.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory threadFactory = threadFactory(prefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Makes the JVM print the stack trace of a virtual thread blocking while pinned to its carrier, in a
+     * {@code synchronized} block or a native frame, unless {@code -Djdk.tracePinnedThreads} is already set.
+     * Must be called before the first virtual thread is started.
+     *
+     * @param mode {@code short} or {@code full}, or empty to leave it off.
+     */
+    public static void tracePinnedThreads(String mode) {
+        if (mode != null && !mode.isEmpty() && System.getProperty(TRACE_PINNED_THREADS) == null) {
+            System.setProperty(TRACE_PINNED_THREADS, mode);
+        }
+    }
+
+    private static ThreadFactory createThreadFactory(String prefix) throws ReflectiveOperationException {
+        Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+        return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    }
+
+    private static boolean probe() {
+        try {
+            createThreadFactory("probe-");
+            return true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Before Java 19, or a preview feature in Java 19 and 20
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pooled-lo optimizer for the {@code sequenceGenerator} whose ids are handed out without locking.
+ * <p>
+ * Each {@code nextval} is the low end of a block of {@code allocationSize} ids shared by every thread
+ * of this node. Ids are taken from the block with a single atomic increment; only the thread that
+ * finds the block exhausted fetches the next one, while the others wait for it. As values read from
+ * the sequence are never used as the high end of a block, rows inserted with plain {@code nextval}
+ * (or a restarted sequence) cannot collide with ids already handed out.
+ * <p>
+ * Enabled with {@code hibernate.id.optimizer.pooled.preferred}. The increment of the Liquibase-managed
+ * sequence must equal the allocation size, which Hibernate checks at startup with
+ * {@code hibernate.id.sequence.increment_size_mismatch_strategy}. Multi-tenancy is not supported.
+ * Block fetches, and the time the other threads wait for them, are reported to {@link SequenceAllocationMetrics}.
+ * The fetch, a database round trip, is guarded by a {@link ReentrantLock} rather than a monitor, so that virtual
+ * threads waiting for it, or running it, do not pin their carrier thread.
+ * <p>
+ * Switching between this optimizer and Hibernate's {@code pooled} one, in either direction, requires stopping
+ * every node first: {@code pooled} uses a sequence value as the high end of its block, this one as the low end,
+ * so nodes running both hand out overlapping ids. Once all of them are stopped, the blocks already handed out
+ * all end below the next sequence value and the new optimizer starts past them.
+ */
+public class ConcurrentPooledLoOptimizer implements Optimizer {
+
+    private final Class<?> returnClass;
+
+    private final int incrementSize;
+
+    private final SequenceAllocationMetrics metrics;
+
+    private volatile Block block;
+
+    private volatile IntegralDataTypeHolder lastSourceValue;
+
+    private final ReentrantLock fetchLock = new ReentrantLock();
+
+    public ConcurrentPooledLoOptimizer(Class<?> returnClass, int incrementSize) {
+        this(returnClass, incrementSize, SequenceAllocationMetrics.getInstance());
+    }
+
+    ConcurrentPooledLoOptimizer(Class<?> returnClass, int incrementSize, SequenceAllocationMetrics metrics) {
+        if (returnClass == null) {
+            throw new HibernateException("return class is required");
+        }
+        if (incrementSize < 1) {
+            throw new HibernateException("increment size cannot be less than 1");
+        }
+        this.returnClass = returnClass;
+        this.incrementSize = incrementSize;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback) {
+        while (true) {
+            Block current = block;
+            if (current != null) {
+                long value = current.next.getAndIncrement();
+                if (value < current.limit) {
+                    return toReturnType(value);
+                }
+            }
+            long start = System.nanoTime();
+            boolean fetched = false;
+            fetchLock.lock();
+            try {
+                if (block == current) {
+                    IntegralDataTypeHolder lo = callback.getNextValue();
+                    lastSourceValue = lo;
+                    block = new Block(IdentifierGeneratorHelper.extractLong(lo), incrementSize);
+                    metrics.blockFetched(incrementSize);
+                    fetched = true;
+                }
+            } finally {
+                fetchLock.unlock();
+            }
+            if (!fetched) {
+                metrics.waited(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private Serializable toReturnType(long value) {
+        if (returnClass == Long.class) {
+            return value;
+        }
+        return IdentifierGeneratorHelper.getIntegralDataTypeHolder(returnClass).initialize(value).makeValue();
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue() {
+        return lastSourceValue;
+    }
+
+    @Override
+    public int getIncrementSize() {
+        return incrementSize;
+    }
+
+    @Override
+    public boolean applyIncrementSizeToSourceValues() {
+        return true;
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+
+        private final long limit;
+
+        private Block(long lo, int size) {
+            this.next = new AtomicLong(lo);
+            this.limit = lo + size;
+        }
+    }
+}
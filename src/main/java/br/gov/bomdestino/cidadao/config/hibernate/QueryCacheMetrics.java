@@ -0,0 +1,54 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hits, misses and puts of each query cache region, as {@code hibernate.query.cache.region.requests} and
+ * {@code hibernate.query.cache.region.puts}.
+ * <p>
+ * Hibernate creates a region on the first execution of its queries; until then, its counts are zero.
+ * The counts also stay at zero unless {@code hibernate.generate_statistics} is enabled.
+ */
+public class QueryCacheMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+
+    private final Collection<String> regions;
+
+    public QueryCacheMetrics(Statistics statistics, Collection<String> regions) {
+        this.statistics = statistics;
+        this.regions = regions;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String region : regions) {
+            FunctionCounter.builder("hibernate.query.cache.region.requests", this, metrics -> metrics.count(region, CacheRegionStatistics::getHitCount))
+                .description("Lookups of cached query results")
+                .tag("region", region)
+                .tag("result", "hit")
+                .register(registry);
+            FunctionCounter.builder("hibernate.query.cache.region.requests", this, metrics -> metrics.count(region, CacheRegionStatistics::getMissCount))
+                .description("Lookups of cached query results")
+                .tag("region", region)
+                .tag("result", "miss")
+                .register(registry);
+            FunctionCounter.builder("hibernate.query.cache.region.puts", this, metrics -> metrics.count(region, CacheRegionStatistics::getPutCount))
+                .description("Query results stored in the cache")
+                .tag("region", region)
+                .register(registry);
+        }
+    }
+
+    private double count(String region, ToLongFunction<CacheRegionStatistics> counter) {
+        CacheRegionStatistics regionStatistics = statistics.getQueryRegionStatistics(region);
+        return regionStatistics == null ? 0 : counter.applyAsLong(regionStatistics);
+    }
+}
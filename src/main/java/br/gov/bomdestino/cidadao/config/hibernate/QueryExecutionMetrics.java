@@ -0,0 +1,200 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Execution times of the HQL and native queries, as reported to the {@link TimedStatisticsFactory} statistics.
+ * <p>
+ * Each query gets its own {@code hibernate.query.execution} timer, tagged with the {@link QueryTiming#getId() id}
+ * of the query, up to {@code maxQueries} distinct queries; the others share the {@value #OTHER_QUERIES} tag. The
+ * persistence endpoint gives the query string of an id. Queries slower than {@code slowQueryThresholdMs} are
+ * logged, and the slowest ones are kept for the persistence endpoint.
+ * <p>
+ * Hibernate instantiates the statistics itself, so they report to the shared {@link #getInstance() instance},
+ * which is bound to the application {@link MeterRegistry}.
+ */
+public class QueryExecutionMetrics implements MeterBinder {
+
+    static final String OTHER_QUERIES = "other";
+
+    /**
+     * Histogram buckets of the timers, around the default slow query threshold.
+     */
+    private static final Duration[] SLA = {Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(100),
+        Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(5)};
+
+    private static final int ID_BYTES = 6;
+
+    private static final QueryExecutionMetrics INSTANCE = new QueryExecutionMetrics();
+
+    private final Logger log = LoggerFactory.getLogger(QueryExecutionMetrics.class);
+
+    private final Map<String, QueryTiming> timings = new ConcurrentHashMap<>();
+
+    private final AtomicInteger distinctQueries = new AtomicInteger();
+
+    private volatile MeterRegistry registry;
+
+    private volatile int maxQueries = 200;
+
+    private volatile long slowQueryThresholdMs = 500;
+
+    public static QueryExecutionMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void configure(int maxQueries, long slowQueryThresholdMs) {
+        this.maxQueries = maxQueries;
+        this.slowQueryThresholdMs = slowQueryThresholdMs;
+    }
+
+    void queryExecuted(String query, int rows, long millis) {
+        QueryTiming timing = timings.get(query);
+        if (timing == null) {
+            // The slot is taken while the query is mapped, so concurrent new queries cannot exceed maxQueries
+            timing = timings.computeIfAbsent(query, key -> takeSlot() ? new QueryTiming(queryId(key), key) : null);
+            if (timing == null) {
+                timing = timings.computeIfAbsent(OTHER_QUERIES, key -> new QueryTiming(OTHER_QUERIES, OTHER_QUERIES));
+            }
+        }
+        timing.record(millis, registry);
+        if (millis >= slowQueryThresholdMs) {
+            log.warn("Consulta lenta ({} ms, {} linhas, {}): {}", millis, rows, timing.getId(), query);
+        }
+    }
+
+    private boolean takeSlot() {
+        int limit = maxQueries;
+        return distinctQueries.getAndUpdate(count -> count < limit ? count + 1 : count) < limit;
+    }
+
+    /**
+     * @param limit the number of queries to return.
+     * @return the queries with the longest executions, slowest first.
+     */
+    public List<QueryTiming> getSlowest(int limit) {
+        return timings.values().stream()
+            .sorted(Comparator.comparingLong(QueryTiming::getMaxMs).reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param id the {@code query} tag of a {@code hibernate.query.execution} timer.
+     * @return the executions of the query with this id.
+     */
+    public Optional<QueryTiming> getTiming(String id) {
+        return timings.values().stream().filter(timing -> timing.getId().equals(id)).findFirst();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        new ArrayList<>(timings.values()).forEach(timing -> timing.timer(registry));
+    }
+
+    /**
+     * @param query an HQL or native query.
+     * @return the start of the SHA-256 of the query, in hexadecimal: the same on every node and across restarts.
+     */
+    static String queryId(String query) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            StringBuilder id = new StringBuilder(ID_BYTES * 2);
+            for (int i = 0; i < ID_BYTES; i++) {
+                id.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Executions of one query since startup.
+     */
+    public static final class QueryTiming {
+
+        private final String id;
+
+        private final String query;
+
+        private final LongAdder executions = new LongAdder();
+
+        private final LongAdder totalMs = new LongAdder();
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAccumulator maxMs = new LongAccumulator(Math::max, 0);
+
+        private volatile Timer timer;
+
+        private QueryTiming(String id, String query) {
+            this.id = id;
+            this.query = query;
+        }
+
+        private void record(long millis, MeterRegistry registry) {
+            executions.increment();
+            totalMs.add(millis);
+            maxMs.accumulate(millis);
+            if (registry != null) {
+                timer(registry).record(millis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private Timer timer(MeterRegistry registry) {
+            Timer current = timer;
+            if (current == null) {
+                current = Timer.builder("hibernate.query.execution")
+                    .description("Execution time of the HQL and native queries")
+                    .tag("query", id)
+                    .sla(SLA)
+                    .register(registry);
+                timer = current;
+            }
+            return current;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        public long getMaxMs() {
+            return maxMs.get();
+        }
+
+        public double getMeanMs() {
+            long count = executions.sum();
+            return count == 0 ? 0 : (double) totalMs.sum() / count;
+        }
+    }
+}
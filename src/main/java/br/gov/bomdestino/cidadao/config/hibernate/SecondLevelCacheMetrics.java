@@ -0,0 +1,64 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.stat.CacheableDataStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.Function;
+
+/**
+ * Second-level cache hits and misses of each cached entity and collection, as
+ * {@code hibernate.second.level.cache.entity.requests} and {@code hibernate.second.level.cache.entity.hit.ratio}.
+ * <p>
+ * Spring Boot already publishes the same counts per region ({@code hibernate.second.level.cache.requests}); these
+ * follow the entity or collection role instead. They stay at zero unless {@code hibernate.generate_statistics} is enabled.
+ */
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheMetrics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String entity : statistics.getEntityNames()) {
+            bindTo(registry, entity, statistics::getEntityStatistics);
+        }
+        for (String role : statistics.getCollectionRoleNames()) {
+            bindTo(registry, role, statistics::getCollectionStatistics);
+        }
+    }
+
+    private void bindTo(MeterRegistry registry, String name, Function<String, ? extends CacheableDataStatistics> lookup) {
+        if (lookup.apply(name).getCacheRegionName() == null) {
+            return;
+        }
+        FunctionCounter.builder("hibernate.second.level.cache.entity.requests", this,
+            metrics -> lookup.apply(name).getCacheHitCount())
+            .description("Second-level cache lookups of the entity or collection")
+            .tag("entity", name)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("hibernate.second.level.cache.entity.requests", this,
+            metrics -> lookup.apply(name).getCacheMissCount())
+            .description("Second-level cache lookups of the entity or collection")
+            .tag("entity", name)
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder("hibernate.second.level.cache.entity.hit.ratio", this, metrics -> hitRatio(lookup.apply(name)))
+            .description("Share of the second-level cache lookups of the entity or collection that were hits")
+            .tag("entity", name)
+            .register(registry);
+    }
+
+    public static double hitRatio(CacheableDataStatistics statistics) {
+        long hits = statistics.getCacheHitCount();
+        long requests = hits + statistics.getCacheMissCount();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,57 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Id allocation statistics of the {@link ConcurrentPooledLoOptimizer} instances.
+ * <p>
+ * Hibernate instantiates the optimizers itself, so they report to the shared {@link #getInstance() instance},
+ * which is bound to the application {@link MeterRegistry}.
+ */
+public class SequenceAllocationMetrics implements MeterBinder {
+
+    private static final SequenceAllocationMetrics INSTANCE = new SequenceAllocationMetrics();
+
+    private final LongAdder blocks = new LongAdder();
+
+    private final LongAdder waits = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private volatile int blockSize;
+
+    public static SequenceAllocationMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    void blockFetched(int size) {
+        blockSize = size;
+        blocks.increment();
+    }
+
+    void waited(long nanos) {
+        waits.increment();
+        waitNanos.add(nanos);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sequence.allocation.block.size", this, metrics -> metrics.blockSize)
+            .description("Ids reserved on each sequence round trip")
+            .register(registry);
+        FunctionCounter.builder("sequence.allocation.blocks", blocks, LongAdder::doubleValue)
+            .description("Blocks of ids fetched from the sequence")
+            .register(registry);
+        FunctionTimer.builder("sequence.allocation.wait", this,
+            metrics -> metrics.waits.sum(), metrics -> metrics.waitNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Time spent waiting for a new block of ids fetched by another thread")
+            .register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Hibernate statistics that also report each query execution to {@link QueryExecutionMetrics}.
+ * <p>
+ * Configured through {@code hibernate.stats.factory}; like all statistics, the query executions are
+ * only reported when {@code hibernate.generate_statistics} is enabled.
+ */
+public class TimedStatisticsFactory implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new StatisticsImpl(sessionFactory) {
+            @Override
+            public void queryExecuted(String query, int rows, long time) {
+                super.queryExecuted(query, rows, time);
+                QueryExecutionMetrics.getInstance().queryExecuted(query, rows, time);
+            }
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package br.gov.bomdestino.cidadao.config.logging;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.joran.spi.ConsoleTarget;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Console appender that never makes the logging thread wait on the console.
+ * <p>
+ * Events are queued in a bounded ring buffer, then encoded and written by one worker thread, in batches of up to
+ * {@code batch-size} events with a single write and flush each. When the buffer is full, DEBUG and INFO events are
+ * dropped, or wait like the others with the {@code wait} overflow policy; WARN and ERROR events wait up to
+ * {@code max-block-ms}, then are dropped as well. Dropped events are counted by {@link AsyncLoggingMetrics}.
+ * <p>
+ * When it replaces a {@link ConsoleAppender}, that appender is stopped with it, once the queue is written.
+ */
+public class AsyncConsoleAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private final Encoder<ILoggingEvent> encoder;
+
+    private final OutputStream outputStream;
+
+    private final ApplicationProperties.AsyncLogging properties;
+
+    private final AsyncLoggingMetrics metrics;
+
+    private final BlockingQueue<ILoggingEvent> queue;
+
+    private final ConsoleAppender<ILoggingEvent> console;
+
+    private Thread worker;
+
+    public AsyncConsoleAppender(Encoder<ILoggingEvent> encoder, OutputStream outputStream,
+                                ApplicationProperties.AsyncLogging properties, AsyncLoggingMetrics metrics) {
+        this(encoder, outputStream, properties, metrics, null);
+    }
+
+    /**
+     * @param console the console appender replaced, whose encoder and target are used.
+     */
+    public AsyncConsoleAppender(ConsoleAppender<ILoggingEvent> console, ApplicationProperties.AsyncLogging properties,
+                                AsyncLoggingMetrics metrics) {
+        this(console.getEncoder(), target(console).getStream(), properties, metrics, console);
+    }
+
+    private AsyncConsoleAppender(Encoder<ILoggingEvent> encoder, OutputStream outputStream,
+                                 ApplicationProperties.AsyncLogging properties, AsyncLoggingMetrics metrics,
+                                 ConsoleAppender<ILoggingEvent> console) {
+        this.encoder = encoder;
+        this.outputStream = outputStream;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueSize());
+        this.console = console;
+    }
+
+    private static ConsoleTarget target(ConsoleAppender<ILoggingEvent> console) {
+        ConsoleTarget target = ConsoleTarget.findByName(console.getTarget());
+        return target == null ? ConsoleTarget.SystemOut : target;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        super.start();
+        metrics.queueStarted(queue);
+        worker = new Thread(this::drain, "async-console-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        try {
+            worker.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (console != null) {
+            console.stop();
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (queue.offer(event)) {
+            return;
+        }
+        boolean discardable = event.getLevel().toInt() <= Level.INFO_INT;
+        if (discardable && properties.getOverflowPolicy() == ApplicationProperties.AsyncLogging.OverflowPolicy.DROP) {
+            metrics.dropped(event.getLevel());
+            return;
+        }
+        try {
+            if (!queue.offer(event, properties.getMaxBlockMs(), TimeUnit.MILLISECONDS)) {
+                metrics.dropped(event.getLevel());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.dropped(event.getLevel());
+        }
+    }
+
+    private void drain() {
+        List<ILoggingEvent> batch = new ArrayList<>(properties.getBatchSize());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        while (isStarted() || !queue.isEmpty()) {
+            try {
+                ILoggingEvent first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                write(batch, buffer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                buffer.reset();
+            }
+        }
+    }
+
+    private void write(List<ILoggingEvent> batch, ByteArrayOutputStream buffer) {
+        long start = System.nanoTime();
+        for (ILoggingEvent event : batch) {
+            try {
+                buffer.write(encoder.encode(event));
+            } catch (IOException | RuntimeException e) {
+                addError("Could not encode a log event", e);
+            }
+        }
+        metrics.encoded(batch.size(), System.nanoTime() - start);
+        try {
+            buffer.writeTo(outputStream);
+            outputStream.flush();
+        } catch (IOException e) {
+            addError("Could not write " + batch.size() + " log events", e);
+        }
+    }
+}
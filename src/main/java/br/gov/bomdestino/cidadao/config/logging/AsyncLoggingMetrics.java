@@ -0,0 +1,79 @@
+package br.gov.bomdestino.cidadao.config.logging;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue depth, dropped events and encode time of the {@link AsyncConsoleAppender}, as {@code logging.async.*}.
+ * <p>
+ * Outlives the appenders, which are replaced whenever Logback is reconfigured: each one reports to it, and the
+ * queue gauges follow the last one started.
+ */
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    private static final Collection<Level> LEVELS = Arrays.asList(Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR);
+
+    private final Map<Level, LongAdder> dropped = new LinkedHashMap<>();
+
+    private final LongAdder encoded = new LongAdder();
+
+    private final LongAdder encodeNanos = new LongAdder();
+
+    private volatile BlockingQueue<?> queue;
+
+    public AsyncLoggingMetrics() {
+        LEVELS.forEach(level -> dropped.put(level, new LongAdder()));
+    }
+
+    void queueStarted(BlockingQueue<?> queue) {
+        this.queue = queue;
+    }
+
+    void dropped(Level level) {
+        LongAdder counter = dropped.get(level);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    void encoded(int events, long nanos) {
+        encoded.add(events);
+        encodeNanos.add(nanos);
+    }
+
+    public long getDropped(Level level) {
+        return dropped.get(level).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("logging.async.queue.size", this, metrics -> metrics.queue == null ? 0 : metrics.queue.size())
+            .description("Log events waiting to be written")
+            .register(registry);
+        Gauge.builder("logging.async.queue.capacity", this,
+            metrics -> metrics.queue == null ? 0 : metrics.queue.size() + metrics.queue.remainingCapacity())
+            .description("Log events the queue holds at most")
+            .register(registry);
+        dropped.forEach((level, counter) -> FunctionCounter.builder("logging.async.dropped", counter, LongAdder::doubleValue)
+            .description("Log events dropped because the queue was full")
+            .tag("level", level.toString().toLowerCase(Locale.ROOT))
+            .register(registry));
+        FunctionTimer.builder("logging.async.encode", this,
+            metrics -> metrics.encoded.sum(), metrics -> metrics.encodeNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Time to encode the log events, measured per batch")
+            .register(registry);
+    }
+}
@@ -0,0 +1,241 @@
+package br.gov.bomdestino.cidadao.config.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes the CPU samples, allocations, lock contention, socket I/O and pinned virtual threads of a JFR recording
+ * per controller method.
+ * <p>
+ * An event is attributed to the most recent controller method in its stack trace, so the calls made by the
+ * repositories and services count for the endpoint that made them. The events without one, from other threads or
+ * with a stack trace truncated before the controller (JFR keeps 64 frames), are summed as {@link #UNATTRIBUTED}.
+ */
+public final class ControllerProfile {
+
+    public static final String UNATTRIBUTED = "unattributed";
+
+    private ControllerProfile() {
+    }
+
+    /**
+     * @param file              the JFR recording.
+     * @param controllerPackage the package of the controllers, without its sub-packages.
+     * @return the profile of each controller method, {@code SimpleClassName.method}, by name.
+     */
+    public static Map<String, MethodProfile> summarize(Path file, String controllerPackage) throws IOException {
+        Map<String, MethodProfile> profiles = new TreeMap<>();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                Kind kind = Kind.of(event.getEventType().getName());
+                if (kind != null) {
+                    String method = controllerMethod(event.getStackTrace(), controllerPackage);
+                    kind.add(profiles.computeIfAbsent(method, key -> new MethodProfile()), event);
+                }
+            }
+        }
+        return profiles;
+    }
+
+    private static String controllerMethod(RecordedStackTrace stackTrace, String controllerPackage) {
+        if (stackTrace == null) {
+            return UNATTRIBUTED;
+        }
+        String prefix = controllerPackage + ".";
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            // Skips the sub-packages and the CGLIB proxies of the controllers
+            if (type.startsWith(prefix) && type.indexOf('.', prefix.length()) < 0 && !type.contains("$$")) {
+                return type.substring(prefix.length()) + "." + frame.getMethod().getName();
+            }
+        }
+        return UNATTRIBUTED;
+    }
+
+    /**
+     * The JFR events summarized, with the measure each one adds.
+     */
+    private enum Kind {
+        /**
+         * CPU samples of the Java threads.
+         */
+        EXECUTION_SAMPLE("jdk.ExecutionSample") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.cpuSamples++;
+            }
+        },
+        /**
+         * Allocation of a new TLAB, only in the {@code profile} settings.
+         */
+        ALLOCATION_IN_NEW_TLAB("jdk.ObjectAllocationInNewTLAB") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.allocatedBytes += event.getLong("tlabSize");
+            }
+        },
+        /**
+         * Allocation outside of the TLAB, only in the {@code profile} settings.
+         */
+        ALLOCATION_OUTSIDE_TLAB("jdk.ObjectAllocationOutsideTLAB") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.allocatedBytes += event.getLong("allocationSize");
+            }
+        },
+        /**
+         * Throttled allocation samples of JDK 16 and later, also in the {@code default} settings.
+         */
+        ALLOCATION_SAMPLE("jdk.ObjectAllocationSample") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.allocatedBytes += event.getLong("weight");
+            }
+        },
+        /**
+         * Blocking on a contended monitor.
+         */
+        MONITOR_ENTER("jdk.JavaMonitorEnter") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.addLock(event);
+            }
+        },
+        /**
+         * Parking, mostly on a contended {@code java.util.concurrent} lock.
+         */
+        THREAD_PARK("jdk.ThreadPark") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.addLock(event);
+            }
+        },
+        /**
+         * Socket read, such as the database, Elasticsearch and Kafka responses.
+         */
+        SOCKET_READ("jdk.SocketRead") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.addSocket(event, event.getLong("bytesRead"));
+            }
+        },
+        /**
+         * Socket write.
+         */
+        SOCKET_WRITE("jdk.SocketWrite") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.addSocket(event, event.getLong("bytesWritten"));
+            }
+        },
+        /**
+         * Virtual thread blocking while pinned to its carrier thread (Java 21), see {@code application.virtual-threads}.
+         */
+        VIRTUAL_THREAD_PINNED("jdk.VirtualThreadPinned") {
+            @Override
+            void add(MethodProfile profile, RecordedEvent event) {
+                profile.pinnedEvents++;
+                profile.pinnedNanos += event.getDuration().toNanos();
+            }
+        };
+
+        private final String eventName;
+
+        Kind(String eventName) {
+            this.eventName = eventName;
+        }
+
+        abstract void add(MethodProfile profile, RecordedEvent event);
+
+        static Kind of(String eventName) {
+            for (Kind kind : values()) {
+                if (kind.eventName.equals(eventName)) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * What the events attributed to one controller method add up to.
+     */
+    public static final class MethodProfile {
+
+        private long cpuSamples;
+
+        private long allocatedBytes;
+
+        private long lockEvents;
+
+        private long lockNanos;
+
+        private long socketEvents;
+
+        private long socketNanos;
+
+        private long socketBytes;
+
+        private long pinnedEvents;
+
+        private long pinnedNanos;
+
+        private void addLock(RecordedEvent event) {
+            lockEvents++;
+            lockNanos += event.getDuration().toNanos();
+        }
+
+        private void addSocket(RecordedEvent event, long bytes) {
+            socketEvents++;
+            socketNanos += event.getDuration().toNanos();
+            socketBytes += Math.max(bytes, 0);
+        }
+
+        public long getCpuSamples() {
+            return cpuSamples;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getLockEvents() {
+            return lockEvents;
+        }
+
+        public double getLockMs() {
+            return lockNanos / 1_000_000.0;
+        }
+
+        public long getSocketEvents() {
+            return socketEvents;
+        }
+
+        public double getSocketMs() {
+            return socketNanos / 1_000_000.0;
+        }
+
+        public long getSocketBytes() {
+            return socketBytes;
+        }
+
+        public long getPinnedEvents() {
+            return pinnedEvents;
+        }
+
+        public double getPinnedMs() {
+            return pinnedNanos / 1_000_000.0;
+        }
+    }
+}
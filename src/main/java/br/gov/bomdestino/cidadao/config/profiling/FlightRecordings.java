@@ -0,0 +1,272 @@
+package br.gov.bomdestino.cidadao.config.profiling;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Starts, stops and dumps JDK Flight Recorder recordings, including the continuous one started with the
+ * application when {@code application.profiling.continuous} is set.
+ * <p>
+ * The recordings are kept on disk up to {@code max-age-minutes} and {@code max-size-mb}, so a continuous
+ * recording with the {@code default} settings can be left running. Each download or summary dumps them to its own
+ * {@code <name>.<unique>.jfr} file in the profiling directory, deleted by the caller once read.
+ * <p>
+ * All the operations hold one lock, so a recording cannot be closed while it is dumped. It is a {@link ReentrantLock}
+ * rather than the monitor of this instance, which a virtual thread writing a dump would hold pinned to its carrier.
+ */
+@Component
+@ConditionalOnClass(name = "jdk.jfr.FlightRecorder")
+public class FlightRecordings implements DisposableBean {
+
+    public static final String CONTINUOUS = "continuous";
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Logger log = LoggerFactory.getLogger(FlightRecordings.class);
+
+    private final ApplicationProperties.Profiling properties;
+
+    private final ConcurrentMap<String, ManagedRecording> recordings = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Path directory;
+
+    private boolean temporaryDirectory;
+
+    public FlightRecordings(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getProfiling();
+    }
+
+    @PostConstruct
+    public void startContinuousRecording() {
+        if (!properties.isContinuous()) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Gravação contínua do JFR não iniciada: o Flight Recorder não está disponível nesta JVM");
+            return;
+        }
+        start(CONTINUOUS, properties.getSettings(), null);
+    }
+
+    /**
+     * Starts a recording.
+     *
+     * @param name     the name of the recording, letters, digits, {@code -} and {@code _}.
+     * @param settings the JFR settings, {@code default} or {@code profile}, or {@code null} for the configured ones.
+     * @param duration how long to record, capped at {@code max-duration-seconds}; {@code null} for the maximum,
+     *                 except for the continuous recording which is not limited.
+     * @return the started recording.
+     * @throws IllegalArgumentException if the name or the settings are invalid.
+     * @throws IllegalStateException    if a recording with that name exists or too many are running.
+     */
+    public ManagedRecording start(String name, String settings, Duration duration) {
+        lock.lock();
+        try {
+            return doStart(name, settings, duration);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ManagedRecording doStart(String name, String settings, Duration duration) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid recording name: " + name);
+        }
+        String settingsName = settings == null ? properties.getSettings() : settings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settingsName, e);
+        }
+        if (recordings.containsKey(name)) {
+            throw new IllegalStateException("Recording already exists: " + name);
+        }
+        long onDemand = recordings.keySet().stream().filter(it -> !CONTINUOUS.equals(it)).count();
+        if (!CONTINUOUS.equals(name) && onDemand >= properties.getMaxRecordings()) {
+            throw new IllegalStateException("Too many recordings, at most " + properties.getMaxRecordings());
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName(name);
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(properties.getMaxAgeMinutes()));
+        recording.setMaxSize(properties.getMaxSizeMb() * 1024 * 1024);
+        if (!CONTINUOUS.equals(name)) {
+            Duration maxDuration = Duration.ofSeconds(properties.getMaxDurationSeconds());
+            recording.setDuration(duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration);
+        }
+        recording.start();
+        log.info("Gravação JFR {} iniciada com as configurações {}", name, settingsName);
+        ManagedRecording managed = new ManagedRecording(recording, settingsName);
+        recordings.put(name, managed);
+        return managed;
+    }
+
+    /**
+     * Stops a running recording, which can still be dumped, or discards a stopped one with its file.
+     *
+     * @param name the name of the recording.
+     * @return whether the recording existed.
+     */
+    public boolean stopOrDiscard(String name) throws IOException {
+        lock.lock();
+        try {
+            ManagedRecording managed = recordings.get(name);
+            if (managed == null) {
+                return false;
+            }
+            if (managed.recording.getState() == RecordingState.RUNNING) {
+                managed.recording.stop();
+                log.info("Gravação JFR {} parada", name);
+            } else {
+                recordings.remove(name);
+                managed.recording.close();
+                deleteDumps(name);
+                log.info("Gravação JFR {} descartada", name);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the events of a recording, so far if it is running, to a new {@code <name>.<unique>.jfr} file in the
+     * profiling directory, which the caller deletes once read.
+     *
+     * @param name the name of the recording.
+     * @return the file, or empty if there is no such recording.
+     */
+    public Optional<Path> dump(String name) throws IOException {
+        lock.lock();
+        try {
+            ManagedRecording managed = recordings.get(name);
+            if (managed == null) {
+                return Optional.empty();
+            }
+            Path file = Files.createTempFile(directory(), name + ".", ".jfr");
+            try {
+                managed.recording.dump(file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return Optional.of(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the recordings, by name.
+     */
+    public Map<String, ManagedRecording> getRecordings() {
+        return new LinkedHashMap<>(recordings);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        lock.lock();
+        try {
+            for (String name : new ArrayList<>(recordings.keySet())) {
+                recordings.remove(name).recording.close();
+                deleteDumps(name);
+            }
+            if (temporaryDirectory) {
+                Files.deleteIfExists(directory);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the dumps of a recording not deleted by their callers, such as an interrupted download.
+     */
+    private void deleteDumps(String name) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        // The names have no '.', so the dumps of "lento" do not match those of "lento-2"
+        try (DirectoryStream<Path> dumps = Files.newDirectoryStream(directory, name + ".*.jfr")) {
+            for (Path dump : dumps) {
+                Files.deleteIfExists(dump);
+            }
+        }
+    }
+
+    private Path directory() throws IOException {
+        if (directory == null) {
+            temporaryDirectory = properties.getDirectory() == null || properties.getDirectory().isEmpty();
+            directory = temporaryDirectory
+                ? Files.createTempDirectory("cidadao-jfr")
+                : Files.createDirectories(Paths.get(properties.getDirectory()));
+        }
+        return directory;
+    }
+
+    /**
+     * A recording and the settings it was started with.
+     */
+    public static final class ManagedRecording {
+
+        private final Recording recording;
+
+        private final String settings;
+
+        private ManagedRecording(Recording recording, String settings) {
+            this.recording = recording;
+            this.settings = settings;
+        }
+
+        /**
+         * @return the state, settings, start time, duration and size of the recording.
+         */
+        public Map<String, Object> describe() {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("state", recording.getState());
+            description.put("settings", settings);
+            description.put("startTime", recording.getStartTime());
+            description.put("duration", recording.getDuration());
+            description.put("maxAge", recording.getMaxAge());
+            description.put("size", recording.getSize());
+            return description;
+        }
+
+        public RecordingState getState() {
+            return recording.getState();
+        }
+
+        public String getSettings() {
+            return settings;
+        }
+    }
+}
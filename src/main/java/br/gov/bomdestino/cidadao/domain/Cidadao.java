@@ -4,6 +4,8 @@ import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -16,6 +18,8 @@ import java.util.Set;
 @Table(name = "cidadao")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Document(indexName = "cidadao")
+@Setting(settingPath = "config/elasticsearch/cidadao-settings.json")
+@Mapping(mappingPath = "config/elasticsearch/cidadao-mapping.json")
 public class Cidadao implements Serializable {
 
     private static final long serialVersionUID = 1L;
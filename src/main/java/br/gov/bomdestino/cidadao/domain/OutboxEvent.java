@@ -0,0 +1,140 @@
+package br.gov.bomdestino.cidadao.domain;
+
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * An event waiting to be published to Kafka.
+ * <p>
+ * Rows are written in the same transaction as the business change that produced them
+ * and removed by the {@link br.gov.bomdestino.cidadao.service.OutboxRelay} once the broker
+ * has acknowledged them (transactional outbox).
+ */
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    @Lob
+    @Column(name = "payload_bytes")
+    private byte[] payload;
+
+    /**
+     * Text payload of the events written before the payload became binary, never written anymore.
+     */
+    @Lob
+    @Type(type = "org.hibernate.type.TextType")
+    @Column(name = "payload", insertable = false, updatable = false)
+    private String legacyPayload;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private Instant createdDate = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public OutboxEvent topic(String topic) {
+        this.topic = topic;
+        return this;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public OutboxEvent messageKey(String messageKey) {
+        this.messageKey = messageKey;
+        return this;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public OutboxEvent payload(byte[] payload) {
+        this.payload = payload;
+        return this;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public String getLegacyPayload() {
+        return legacyPayload;
+    }
+
+    public void setLegacyPayload(String legacyPayload) {
+        this.legacyPayload = legacyPayload;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OutboxEvent)) {
+            return false;
+        }
+        return id != null && id.equals(((OutboxEvent) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+            "id=" + getId() +
+            ", topic='" + getTopic() + "'" +
+            ", messageKey='" + getMessageKey() + "'" +
+            ", createdDate='" + getCreatedDate() + "'" +
+            "}";
+    }
+}
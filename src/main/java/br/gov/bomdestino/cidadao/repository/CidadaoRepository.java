@@ -2,13 +2,81 @@ package br.gov.bomdestino.cidadao.repository;
 
 import br.gov.bomdestino.cidadao.domain.Cidadao;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 /**
  * Spring Data  repository for the Cidadao entity.
  */
 @SuppressWarnings("unused")
 @Repository
 public interface CidadaoRepository extends JpaRepository<Cidadao, Long> {
+
+    String CIDADAOS_BY_EMAIL_CACHE = "br.gov.bomdestino.cidadao.query.cidadaosByEmail";
+
+    String CIDADAOS_BY_CEP_CACHE = "br.gov.bomdestino.cidadao.query.cidadaosByCep";
+
+    String CIDADAOS_BY_TELEFONE_CACHE = "br.gov.bomdestino.cidadao.query.cidadaosByTelefone";
+
+    /**
+     * Query cache regions of the lookups. Their results are invalidated by any write to the tables they read.
+     */
+    List<String> QUERY_CACHES = Collections.unmodifiableList(Arrays.asList(CIDADAOS_BY_EMAIL_CACHE, CIDADAOS_BY_CEP_CACHE,
+        CIDADAOS_BY_TELEFONE_CACHE));
+
+    /**
+     * The endereco is eager, so it is joined in the page query instead of being loaded one select per cidadao.
+     */
+    @Override
+    @EntityGraph(attributePaths = "endereco")
+    Page<Cidadao> findAll(Pageable pageable);
+
+    /**
+     * Initializes the telefones of already loaded cidadaos in a single select.
+     * <p>
+     * Fetching a collection together with a page would paginate in memory, so pages are loaded first
+     * and their telefones afterwards.
+     */
+    @Query("select distinct cidadao from Cidadao cidadao left join fetch cidadao.telefones where cidadao in :cidadaos")
+    List<Cidadao> fetchTelefones(@Param("cidadaos") Collection<Cidadao> cidadaos);
+
+    @Query("select distinct cidadao from Cidadao cidadao left join fetch cidadao.endereco left join fetch cidadao.telefones where cidadao.id = :id")
+    Optional<Cidadao> findOneWithTelefonesById(@Param("id") Long id);
+
+    /**
+     * Cached in {@link #CIDADAOS_BY_EMAIL_CACHE}, as are the other lookups in their own regions.
+     */
+    @EntityGraph(attributePaths = "endereco")
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = CIDADAOS_BY_EMAIL_CACHE)
+    })
+    List<Cidadao> findByEmail(String email);
+
+    @EntityGraph(attributePaths = "endereco")
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = CIDADAOS_BY_CEP_CACHE)
+    })
+    List<Cidadao> findByEnderecoCep(String cep);
+
+    @Query("select distinct cidadao from Cidadao cidadao left join fetch cidadao.endereco join cidadao.telefones telefone where telefone.ddd = :ddd and telefone.numero = :numero")
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = CIDADAOS_BY_TELEFONE_CACHE)
+    })
+    List<Cidadao> findByTelefone(@Param("ddd") String ddd, @Param("numero") String numero);
 }
@@ -2,13 +2,18 @@ package br.gov.bomdestino.cidadao.repository;
 
 import br.gov.bomdestino.cidadao.domain.Endereco;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Spring Data  repository for the Endereco entity.
  */
 @SuppressWarnings("unused")
 @Repository
 public interface EnderecoRepository extends JpaRepository<Endereco, Long> {
+
+    List<Endereco> findByIdGreaterThanOrderById(Long id, Pageable pageable);
 }
@@ -0,0 +1,30 @@
+package br.gov.bomdestino.cidadao.repository;
+
+import br.gov.bomdestino.cidadao.domain.OutboxEvent;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+
+/**
+ * Spring Data  repository for the OutboxEvent entity.
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest pending events, skipping rows already locked by another node's relay
+     * (a lock timeout of {@code -2} is Hibernate's {@code SKIP LOCKED}).
+     *
+     * @param pageable the size of the batch to lock.
+     * @return the locked events, oldest first.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select outboxEvent from OutboxEvent outboxEvent order by outboxEvent.id")
+    List<OutboxEvent> findPendingForUpdate(Pageable pageable);
+}
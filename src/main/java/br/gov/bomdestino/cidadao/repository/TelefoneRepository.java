@@ -2,13 +2,27 @@ package br.gov.bomdestino.cidadao.repository;
 
 import br.gov.bomdestino.cidadao.domain.Telefone;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Spring Data  repository for the Telefone entity.
  */
 @SuppressWarnings("unused")
 @Repository
 public interface TelefoneRepository extends JpaRepository<Telefone, Long> {
+
+    /**
+     * The cidadao, and its endereco, are eager, so they are joined in the page query instead of being loaded one select per telefone.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"cidadao", "cidadao.endereco"})
+    Page<Telefone> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"cidadao", "cidadao.endereco"})
+    List<Telefone> findByIdGreaterThanOrderById(Long id, Pageable pageable);
 }
@@ -0,0 +1,137 @@
+package br.gov.bomdestino.cidadao.repository.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.data.mapping.MappingException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking writes to the Elasticsearch indices.
+ * <p>
+ * Changes are sent in one bulk request through the pooled {@link RestHighLevelClient}, to the index of their
+ * entity type, with the documents mapped as the Spring Data repositories do. The returned future completes on
+ * the client I/O thread. Unlike the repositories, the index is not refreshed after each write: documents become
+ * searchable with its {@code refresh_interval}.
+ */
+@Component
+public class AsyncIndexTemplate {
+
+    private final RestHighLevelClient client;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final EntityMapper entityMapper;
+
+    public AsyncIndexTemplate(RestHighLevelClient client, ElasticsearchOperations elasticsearchOperations, EntityMapper entityMapper) {
+        this.client = client;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.entityMapper = entityMapper;
+    }
+
+    /**
+     * Writes the changes in one bulk request.
+     *
+     * @param changes the changes, at most one per document.
+     * @return a future completed with the response, whose items are in the order of the changes; completed
+     * exceptionally if the request failed as a whole or a document could not be mapped.
+     */
+    public CompletableFuture<BulkResponse> bulk(List<Change> changes) {
+        CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+        BulkRequest request = new BulkRequest();
+        try {
+            for (Change change : changes) {
+                ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(change.type);
+                String id = String.valueOf(change.id);
+                if (change.entity == null) {
+                    request.add(new DeleteRequest(persistentEntity.getIndexName(), persistentEntity.getIndexType(), id));
+                } else {
+                    request.add(new IndexRequest(persistentEntity.getIndexName(), persistentEntity.getIndexType(), id)
+                        .source(entityMapper.mapToString(change.entity), XContentType.JSON));
+                }
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(new MappingException(e.getMessage(), e));
+            return future;
+        }
+        client.bulkAsync(request, RequestOptions.DEFAULT, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A document to index or delete.
+     */
+    public static final class Change {
+
+        private final Class<?> type;
+
+        private final Long id;
+
+        private final Object entity;
+
+        private Change(Class<?> type, Long id, Object entity) {
+            this.type = type;
+            this.id = id;
+            this.entity = entity;
+        }
+
+        /**
+         * @return the change indexing the entity, replacing its document if any.
+         */
+        public static Change index(Class<?> type, Long id, Object entity) {
+            return new Change(type, id, Objects.requireNonNull(entity));
+        }
+
+        /**
+         * @return the change deleting the document of the entity.
+         */
+        public static Change delete(Class<?> type, Long id) {
+            return new Change(type, id, null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Change)) {
+                return false;
+            }
+            Change other = (Change) o;
+            return type.equals(other.type) && Objects.equals(id, other.id) && Objects.equals(entity, other.entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, id, entity);
+        }
+
+        @Override
+        public String toString() {
+            return (entity == null ? "delete " : "index ") + type.getSimpleName() + "#" + id;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package br.gov.bomdestino.cidadao.repository.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.client.core.CountResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.mapping.MappingException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking searches on the Elasticsearch indices.
+ * <p>
+ * Requests go through the pooled {@link RestHighLevelClient}; the returned future completes on the
+ * client I/O thread, so the calling thread is never held while Elasticsearch answers.
+ */
+@Component
+public class AsyncSearchTemplate {
+
+    private final RestHighLevelClient client;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final EntityMapper entityMapper;
+
+    public AsyncSearchTemplate(RestHighLevelClient client, ElasticsearchOperations elasticsearchOperations, EntityMapper entityMapper) {
+        this.client = client;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.entityMapper = entityMapper;
+    }
+
+    /**
+     * Searches the index of the given entity type.
+     *
+     * @param query    the query.
+     * @param pageable the page, with its sort, to return.
+     * @param type     the entity type.
+     * @param <T>      the entity type.
+     * @return a future completed with the page of matching entities.
+     */
+    public <T> CompletableFuture<Page<T>> search(QueryBuilder query, Pageable pageable, Class<T> type) {
+        SearchSourceBuilder source = new SearchSourceBuilder().query(query);
+        if (pageable.isPaged()) {
+            source.from((int) pageable.getOffset()).size(pageable.getPageSize());
+        }
+        pageable.getSort().forEach(order ->
+            source.sort(order.getProperty(), order.isAscending() ? SortOrder.ASC : SortOrder.DESC));
+        SearchRequest request = new SearchRequest(elasticsearchOperations.getPersistentEntityFor(type).getIndexName())
+            .source(source);
+
+        CompletableFuture<Page<T>> future = new CompletableFuture<>();
+        client.searchAsync(request, RequestOptions.DEFAULT, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                try {
+                    future.complete(toPage(response, pageable, type));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Searches the index of the given entity type for every matching entity, as the {@code search(QueryBuilder)} of
+     * the Spring Data repositories does: the matches are counted first, then fetched in one page.
+     *
+     * @param query the query.
+     * @param type  the entity type.
+     * @param <T>   the entity type.
+     * @return a future completed with the matching entities.
+     */
+    public <T> CompletableFuture<List<T>> searchAll(QueryBuilder query, Class<T> type) {
+        CountRequest request = new CountRequest(elasticsearchOperations.getPersistentEntityFor(type).getIndexName())
+            .source(new SearchSourceBuilder().query(query));
+
+        CompletableFuture<Long> count = new CompletableFuture<>();
+        client.countAsync(request, RequestOptions.DEFAULT, new ActionListener<CountResponse>() {
+            @Override
+            public void onResponse(CountResponse response) {
+                count.complete(response.getCount());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                count.completeExceptionally(e);
+            }
+        });
+        return count.thenCompose(total -> total == 0
+            ? CompletableFuture.completedFuture(Collections.<T>emptyList())
+            : search(query, PageRequest.of(0, total.intValue()), type).thenApply(Page::getContent));
+    }
+
+    private <T> Page<T> toPage(SearchResponse response, Pageable pageable, Class<T> type) {
+        SearchHit[] hits = response.getHits().getHits();
+        List<T> content = new ArrayList<>(hits.length);
+        for (SearchHit hit : hits) {
+            try {
+                content.add(entityMapper.mapToObject(hit.getSourceAsString(), type));
+            } catch (IOException e) {
+                throw new MappingException(e.getMessage(), e);
+            }
+        }
+        return new PageImpl<>(content, pageable, response.getHits().getTotalHits());
+    }
+}
@@ -0,0 +1,38 @@
+package br.gov.bomdestino.cidadao.repository.search;
+
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import java.util.Locale;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+/**
+ * Elasticsearch queries for the {@link br.gov.bomdestino.cidadao.domain.Cidadao} index.
+ * <p>
+ * They rely on the analyzers declared in {@code config/elasticsearch/cidadao-settings.json}: {@code nome}
+ * is indexed as accent-folded edge n-grams, so a partial name is a plain term lookup instead of a
+ * wildcard scan of the term dictionary.
+ */
+public final class CidadaoSearchQueries {
+
+    private CidadaoSearchQueries() {
+    }
+
+    /**
+     * Matches citizens whose name contains words starting with the given text, or whose email
+     * is or starts with it. Exact matches rank first.
+     *
+     * @param text the text typed by the user.
+     * @return the query.
+     */
+    public static QueryBuilder byNomeOrEmail(String text) {
+        String term = text.trim();
+        return boolQuery()
+            .should(matchQuery("nome", term).operator(Operator.AND).boost(2.0f))
+            .should(termQuery("nome.keyword", term).boost(4.0f))
+            .should(termQuery("email", term).boost(4.0f))
+            .should(prefixQuery("email", term.toLowerCase(Locale.ROOT)))
+            .minimumShouldMatch(1);
+    }
+}
@@ -0,0 +1,61 @@
+package br.gov.bomdestino.cidadao.security.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical authority sets for the {@code auth} claim of the JWTs.
+ * <p>
+ * Tokens carry a handful of distinct role strings, so each one is split once and mapped to a shared,
+ * immutable list; every {@link SimpleGrantedAuthority} is shared as well. The registry is bounded: past
+ * {@code maxSize} distinct role strings, new ones are split on each call instead of being registered.
+ */
+class AuthoritySetRegistry {
+
+    private final Map<String, List<GrantedAuthority>> authoritySets = new ConcurrentHashMap<>();
+
+    private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    AuthoritySetRegistry(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param claim the comma-separated authorities of a token.
+     * @return the immutable list of the authorities, shared by all the tokens with the same claim.
+     */
+    List<GrantedAuthority> intern(String claim) {
+        List<GrantedAuthority> authoritySet = authoritySets.get(claim);
+        if (authoritySet != null) {
+            return authoritySet;
+        }
+        authoritySet = split(claim);
+        if (authoritySets.size() >= maxSize) {
+            return authoritySet;
+        }
+        List<GrantedAuthority> registered = authoritySets.putIfAbsent(claim, authoritySet);
+        return registered != null ? registered : authoritySet;
+    }
+
+    int size() {
+        return authoritySets.size();
+    }
+
+    private List<GrantedAuthority> split(String claim) {
+        List<GrantedAuthority> authoritySet = new ArrayList<>();
+        for (String authority : claim.split(",")) {
+            authoritySet.add(authorities.size() < maxSize
+                ? authorities.computeIfAbsent(authority, SimpleGrantedAuthority::new)
+                : new SimpleGrantedAuthority(authority));
+        }
+        return Collections.unmodifiableList(authoritySet);
+    }
+}
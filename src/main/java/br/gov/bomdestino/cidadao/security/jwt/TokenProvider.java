@@ -3,15 +3,20 @@ package br.gov.bomdestino.cidadao.security.jwt;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -28,16 +33,55 @@ public class TokenProvider {
 
     private static final String AUTHORITIES_KEY = "auth";
 
+    private static final int MAX_AUTHORITY_SETS = 1024;
+
     private Key key;
 
     private long tokenValidityInMilliseconds;
 
     private long tokenValidityInMillisecondsForRememberMe;
 
+    private JwtParser jwtParser;
+
     private final JHipsterProperties jHipsterProperties;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties) {
+    private final ValidatedTokenCache tokenCache;
+
+    private final AuthoritySetRegistry authoritySetRegistry = new AuthoritySetRegistry(MAX_AUTHORITY_SETS);
+
+    private final Counter cacheHits;
+
+    private final Counter cacheMisses;
+
+    private final Timer validVerificationTimer;
+
+    private final Timer invalidVerificationTimer;
+
+    public TokenProvider(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties,
+                         MeterRegistry meterRegistry) {
         this.jHipsterProperties = jHipsterProperties;
+        this.tokenCache = new ValidatedTokenCache(applicationProperties.getTokenCache().getMaxSize(), System::currentTimeMillis);
+        Gauge.builder("security.jwt.cache.size", tokenCache, ValidatedTokenCache::size)
+            .description("Verified JWTs in the cache")
+            .register(meterRegistry);
+        this.cacheHits = cacheCounter(meterRegistry, "hit");
+        this.cacheMisses = cacheCounter(meterRegistry, "miss");
+        this.validVerificationTimer = verificationTimer(meterRegistry, "valid");
+        this.invalidVerificationTimer = verificationTimer(meterRegistry, "invalid");
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("security.jwt.cache")
+            .description("Lookups of JWTs in the cache of verified tokens")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("security.jwt.verification")
+            .description("Parsing and signature verification of JWTs")
+            .tag("result", result)
+            .register(meterRegistry);
     }
 
     @PostConstruct
@@ -53,6 +97,8 @@ public class TokenProvider {
             keyBytes = Decoders.BASE64.decode(jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret());
         }
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        // Immutable and thread-safe, shared by all the requests
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
         this.tokenValidityInMilliseconds =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInMillisecondsForRememberMe =
@@ -81,31 +127,63 @@ public class TokenProvider {
             .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-            .setSigningKey(key)
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-            Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
+    /**
+     * Verifies the token and builds the corresponding {@link Authentication}, in a single parse.
+     * <p>
+     * Tokens already verified are served from a bounded cache, keyed by their SHA-256 digest, until they expire. The
+     * cached {@link Authentication} is immutable and returned as is, so a cache hit builds neither a principal nor
+     * a copy of the authorities.
+     *
+     * @param token the JWT.
+     * @return the authentication of the token, or empty if the token is invalid or expired.
+     */
+    public Optional<Authentication> authenticate(String token) {
+        if (!StringUtils.hasText(token)) {
+            return Optional.empty();
+        }
+        String digest = ValidatedTokenCache.digest(token);
+        Authentication authentication = tokenCache.get(digest);
+        if (authentication != null) {
+            cacheHits.increment();
+            return Optional.of(authentication);
+        }
+        cacheMisses.increment();
+        Claims claims = parseClaims(token);
+        if (claims == null) {
+            return Optional.empty();
+        }
+        User principal = toPrincipal(claims);
+        authentication = new VerifiedTokenAuthentication(principal, token, principal.getAuthorities());
+        if (claims.getExpiration() != null) {
+            tokenCache.put(digest, authentication, claims.getExpiration().getTime());
+        }
+        return Optional.of(authentication);
+    }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    public Authentication getAuthentication(String token) {
+        User principal = toPrincipal(jwtParser.parseClaimsJws(token).getBody());
+        return new UsernamePasswordAuthenticationToken(principal, token, principal.getAuthorities());
     }
 
     public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    private Claims parseClaims(String token) {
+        long start = System.nanoTime();
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            validVerificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
         } catch (JwtException | IllegalArgumentException e) {
+            invalidVerificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             log.info("Invalid JWT token.");
             log.trace("Invalid JWT token trace.", e);
         }
-        return false;
+        return null;
+    }
+
+    private User toPrincipal(Claims claims) {
+        return new User(claims.getSubject(), "", authoritySetRegistry.intern(claims.get(AUTHORITIES_KEY).toString()));
     }
 }
@@ -0,0 +1,37 @@
+package br.gov.bomdestino.cidadao.security.jwt;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Authentication of a verified JWT, shared by all the requests bearing the token while it is cached by
+ * {@link TokenProvider}: it cannot be changed once built.
+ */
+final class VerifiedTokenAuthentication extends UsernamePasswordAuthenticationToken {
+
+    private static final long serialVersionUID = 1L;
+
+    VerifiedTokenAuthentication(User principal, String token, Collection<? extends GrantedAuthority> authorities) {
+        super(principal, token, authorities);
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        throw new UnsupportedOperationException("The authentication of a verified token is shared");
+    }
+
+    @Override
+    public void setDetails(Object details) {
+        throw new UnsupportedOperationException("The authentication of a verified token is shared");
+    }
+
+    /**
+     * Keeps the token, which is the credential of every request bearing it.
+     */
+    @Override
+    public void eraseCredentials() {
+    }
+}
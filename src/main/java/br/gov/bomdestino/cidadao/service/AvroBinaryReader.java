@@ -0,0 +1,110 @@
+package br.gov.bomdestino.cidadao.service;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the values written by the {@link AvroBinaryWriter}, failing with a {@link SerializationException}
+ * on truncated or malformed input.
+ */
+final class AvroBinaryReader {
+
+    private final byte[] data;
+
+    private int position;
+
+    AvroBinaryReader(byte[] data) {
+        this.data = data;
+    }
+
+    int readByte() {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+
+    int readFixedInt() {
+        require(4);
+        int value = ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+            | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    int readInt() {
+        long value = readLong();
+        if (value != (int) value) {
+            throw new SerializationException("Int out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    long readLong() {
+        long n = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift >= 64) {
+                throw new SerializationException("Invalid varint at byte " + position);
+            }
+            b = readByte();
+            n |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    String readString() {
+        long length = readLong();
+        if (length < 0 || length > data.length - position) {
+            throw new SerializationException("Invalid string length " + length + " at byte " + position);
+        }
+        String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return value;
+    }
+
+    /**
+     * Reads a {@code ["null", "string"]} union.
+     */
+    String readNullableString() {
+        return readUnionIndex(2) == 0 ? null : readString();
+    }
+
+    /**
+     * Reads the branch of a union.
+     *
+     * @param branches the number of branches of the union.
+     */
+    int readUnionIndex(int branches) {
+        long index = readLong();
+        if (index < 0 || index >= branches) {
+            throw new SerializationException("Invalid union branch " + index + " at byte " + position);
+        }
+        return (int) index;
+    }
+
+    /**
+     * Reads the item count of the next array block; a negative count is followed by the block size in bytes.
+     *
+     * @return the number of items of the block, {@code 0} at the end of the array.
+     */
+    long readArrayBlockCount() {
+        long count = readLong();
+        if (count < 0) {
+            readLong();
+            count = -count;
+        }
+        return count;
+    }
+
+    boolean hasRemaining() {
+        return position < data.length;
+    }
+
+    private void require(int length) {
+        if (data.length - position < length) {
+            throw new SerializationException("Unexpected end of the record at byte " + position);
+        }
+    }
+}
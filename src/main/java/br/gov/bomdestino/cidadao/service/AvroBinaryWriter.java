@@ -0,0 +1,79 @@
+package br.gov.bomdestino.cidadao.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes values in the Avro binary encoding: zig-zag varints for ints and longs, length-prefixed
+ * UTF-8 for strings, branch index then value for unions.
+ */
+final class AvroBinaryWriter {
+
+    private byte[] buffer;
+
+    private int position;
+
+    AvroBinaryWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes 4 big-endian bytes, as the schema id of the record header.
+     */
+    void writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+        writeLong(value);
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(10);
+        long n = (value << 1) ^ (value >> 63);
+        while ((n & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        buffer[position++] = (byte) n;
+    }
+
+    void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes a {@code ["null", "string"]} union.
+     */
+    void writeNullableString(String value) {
+        if (value == null) {
+            writeLong(0);
+        } else {
+            writeLong(1);
+            writeString(value);
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+}
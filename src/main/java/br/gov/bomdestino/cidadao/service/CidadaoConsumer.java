@@ -1,17 +1,151 @@
 package br.gov.bomdestino.cidadao.service;
 
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.config.KafkaConfiguration;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listener of the {@link Constants#CIDADAO_CADASTRADO_TOPIC} events, whose value is the new cidadao
+ * (see {@link CidadaoEventCodec}), so nothing needs to be read back from the database.
+ * <p>
+ * Each poll is processed as one batch, then acknowledged. A record that cannot be decoded is sent to
+ * the dead-letter topic rather than blocking its partition; the batch fails, and is redelivered, if it
+ * cannot be sent there.
+ */
 @Service
-public class CidadaoConsumer {
+public class CidadaoConsumer implements ConsumerSeekAware {
+
+    private static final String RECORDS_LAG_METRIC = "records-lag";
+
+    private static final String LAG_METRIC = "cidadao.consumer.lag";
 
     private final Logger log = LoggerFactory.getLogger(CidadaoConsumer.class);
 
-    @KafkaListener(id = "cidadaoConsumer", topics = "cidadaoCadastrado")
-    public void processarCidadaoCadastrado(String idCidadao) {
-        log.info("Consumindo mensagem do kafka. Percebemos que o cidadao com id {} foi cadastrado", idCidadao);
+    private final CidadaoEventCodec cidadaoEventCodec;
+
+    private final ConsumerRecordRecoverer deadLetterRecoverer;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer batchTimer;
+
+    private final DistributionSummary batchSizeSummary;
+
+    private final Counter deadLetterCounter;
+
+    private final Map<TopicPartition, AtomicLong> lags = new ConcurrentHashMap<>();
+
+    public CidadaoConsumer(CidadaoEventCodec cidadaoEventCodec, ConsumerRecordRecoverer deadLetterRecoverer, MeterRegistry meterRegistry) {
+        this.cidadaoEventCodec = cidadaoEventCodec;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = Timer.builder("cidadao.consumer.batch")
+            .description("Time to process one batch of cidadaoCadastrado records")
+            .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("cidadao.consumer.batch.size")
+            .description("Records per batch of cidadaoCadastrado records")
+            .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("cidadao.consumer.dead.letters")
+            .description("cidadaoCadastrado records sent to the dead-letter topic")
+            .register(meterRegistry);
+    }
+
+    @KafkaListener(id = "cidadaoConsumer", topics = Constants.CIDADAO_CADASTRADO_TOPIC,
+        containerFactory = KafkaConfiguration.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void processarCidadaosCadastrados(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment,
+                                             Consumer<?, ?> consumer) {
+        batchTimer.record(() -> processar(records));
+        acknowledgment.acknowledge();
+        batchSizeSummary.record(records.size());
+        updateLags(consumer);
+    }
+
+    private void processar(List<ConsumerRecord<String, byte[]>> records) {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            CidadaoCadastradoEvent event;
+            try {
+                event = cidadaoEventCodec.decode(record.value());
+            } catch (SerializationException e) {
+                log.warn("Mensagem inválida no offset {} da partição {}, enviada para {}{}: {}", record.offset(), record.partition(),
+                    record.topic(), KafkaConfiguration.DEAD_LETTER_TOPIC_SUFFIX, e.getMessage());
+                deadLetterRecoverer.accept(record, e);
+                deadLetterCounter.increment();
+                continue;
+            }
+            log.info("Consumindo mensagem do kafka. Percebemos que o cidadao com id {} foi cadastrado em {}", event.getId(),
+                event.getCadastradoEm());
+        }
+    }
+
+    /**
+     * Publishes the lag reported by the consumer for each of its partitions, as {@code cidadao.consumer.lag}.
+     */
+    private void updateLags(Consumer<?, ?> consumer) {
+        consumer.metrics().forEach((name, metric) -> {
+            String partition = name.tags().get("partition");
+            if (!RECORDS_LAG_METRIC.equals(name.name()) || partition == null || !(metric.metricValue() instanceof Double)) {
+                return;
+            }
+            Double lag = (Double) metric.metricValue();
+            if (lag.isNaN()) {
+                return;
+            }
+            TopicPartition topicPartition = new TopicPartition(name.tags().get("topic"), Integer.parseInt(partition));
+            lags.computeIfAbsent(topicPartition, this::registerLagGauge).set(lag.longValue());
+        });
+    }
+
+    /**
+     * Removes the lag of the partitions this consumer no longer reads, which another consumer now publishes.
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        // The container passes null when it stops before any partition was assigned
+        if (partitions == null) {
+            return;
+        }
+        for (TopicPartition topicPartition : partitions) {
+            if (lags.remove(topicPartition) != null) {
+                Gauge gauge = meterRegistry.find(LAG_METRIC)
+                    .tag("topic", topicPartition.topic())
+                    .tag("partition", String.valueOf(topicPartition.partition()))
+                    .gauge();
+                if (gauge != null) {
+                    meterRegistry.remove(gauge);
+                }
+            }
+        }
+    }
+
+    private AtomicLong registerLagGauge(TopicPartition topicPartition) {
+        AtomicLong lag = new AtomicLong();
+        Gauge.builder(LAG_METRIC, lag, AtomicLong::get)
+            .description("Records of the partition not consumed yet")
+            .tag("topic", topicPartition.topic())
+            .tag("partition", String.valueOf(topicPartition.partition()))
+            .register(meterRegistry);
+        return lag;
     }
 }
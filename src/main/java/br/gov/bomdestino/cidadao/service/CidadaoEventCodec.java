@@ -0,0 +1,188 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import br.gov.bomdestino.cidadao.service.dto.EnderecoDTO;
+import br.gov.bomdestino.cidadao.service.dto.TelefoneDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the {@link CidadaoCadastradoEvent}s.
+ * <p>
+ * A record is a zero magic byte, the 4-byte id of its schema in the {@link SchemaRegistry}, then the
+ * event in the Avro binary encoding of that schema: the framing of the Confluent serializers, so the
+ * records can be read by any Avro consumer knowing the schema. Events are written with the latest
+ * version of {@value #SUBJECT} and read with the version they were written with; the fields are
+ * encoded one by one, without reflection.
+ * <p>
+ * The records published before this encoding, from the text payloads still in the outbox, are the id of
+ * the cidadao in decimal text: they are read as an event with only its id.
+ */
+@Service
+public class CidadaoEventCodec {
+
+    public static final String SUBJECT = Constants.CIDADAO_CADASTRADO_TOPIC + "-value";
+
+    static final int MAGIC_BYTE = 0;
+
+    /**
+     * Version of the schema written by {@link #encode}; a new schema version must come with its writer and reader.
+     */
+    private static final int WRITER_VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final SchemaRegistry schemaRegistry;
+
+    private final int writerSchemaId;
+
+    public CidadaoEventCodec(SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+        SchemaRegistry.Schema latest = schemaRegistry.getLatest(SUBJECT)
+            .orElseThrow(() -> new IllegalStateException("No schema registered for " + SUBJECT));
+        if (latest.getVersion() != WRITER_VERSION) {
+            throw new IllegalStateException("Version " + latest.getVersion() + " of " + SUBJECT + " has no writer, the latest supported is "
+                + WRITER_VERSION);
+        }
+        this.writerSchemaId = latest.getId();
+    }
+
+    public byte[] encode(CidadaoCadastradoEvent event) {
+        AvroBinaryWriter writer = new AvroBinaryWriter(INITIAL_CAPACITY);
+        writer.writeByte(MAGIC_BYTE);
+        writer.writeFixedInt(writerSchemaId);
+        writer.writeLong(required(event.getId(), "id"));
+        writer.writeString(required(event.getNome(), "nome"));
+        writer.writeNullableString(event.getSexo() == null ? null : event.getSexo().name());
+        writer.writeString(required(event.getEmail(), "email"));
+        if (event.getNascimento() == null) {
+            writer.writeLong(0);
+        } else {
+            writer.writeLong(1);
+            writer.writeInt(Math.toIntExact(event.getNascimento().toEpochDay()));
+        }
+        EnderecoDTO endereco = event.getEndereco();
+        if (endereco == null) {
+            writer.writeLong(0);
+        } else {
+            writer.writeLong(1);
+            writer.writeNullableString(endereco.getLogradouro());
+            writer.writeNullableString(endereco.getComplemento());
+            writer.writeNullableString(endereco.getBairro());
+            writer.writeNullableString(endereco.getCidade());
+            writer.writeNullableString(endereco.getEstado() == null ? null : endereco.getEstado().name());
+            writer.writeNullableString(endereco.getCep());
+        }
+        List<TelefoneDTO> telefones = event.getTelefones();
+        if (telefones != null && !telefones.isEmpty()) {
+            writer.writeLong(telefones.size());
+            for (TelefoneDTO telefone : telefones) {
+                writer.writeString(required(telefone.getDdd(), "telefones.ddd"));
+                writer.writeString(required(telefone.getNumero(), "telefones.numero"));
+            }
+        }
+        writer.writeLong(0);
+        writer.writeLong(required(event.getCadastradoEm(), "cadastradoEm").toEpochMilli());
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param data a record value written by {@link #encode}, with this or an earlier version of the schema,
+     *             or a legacy record value holding the id of the cidadao.
+     * @return the event.
+     * @throws SerializationException if the value is not such a record.
+     */
+    public CidadaoCadastradoEvent decode(byte[] data) {
+        if (data == null) {
+            throw new SerializationException("Null record value");
+        }
+        if (data.length > 0 && data[0] != MAGIC_BYTE) {
+            return readLegacy(data);
+        }
+        AvroBinaryReader reader = new AvroBinaryReader(data);
+        if (reader.readByte() != MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte");
+        }
+        int schemaId = reader.readFixedInt();
+        SchemaRegistry.Schema schema = schemaRegistry.getById(schemaId)
+            .orElseThrow(() -> new SerializationException("Unknown schema id " + schemaId));
+        if (!SUBJECT.equals(schema.getSubject())) {
+            throw new SerializationException("Schema " + schema + " is not a version of " + SUBJECT);
+        }
+        CidadaoCadastradoEvent event;
+        try {
+            switch (schema.getVersion()) {
+                case 1:
+                    event = readVersion1(reader);
+                    break;
+                default:
+                    throw new SerializationException("No reader for " + schema);
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new SerializationException("Invalid value in a record of " + schema, e);
+        }
+        if (reader.hasRemaining()) {
+            throw new SerializationException("Unexpected bytes after a record of " + schema);
+        }
+        return event;
+    }
+
+    private static CidadaoCadastradoEvent readLegacy(byte[] data) {
+        CidadaoCadastradoEvent event = new CidadaoCadastradoEvent();
+        try {
+            event.setId(Long.valueOf(new String(data, StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            throw new SerializationException("Unknown magic byte");
+        }
+        return event;
+    }
+
+    private static CidadaoCadastradoEvent readVersion1(AvroBinaryReader reader) {
+        CidadaoCadastradoEvent event = new CidadaoCadastradoEvent();
+        event.setId(reader.readLong());
+        event.setNome(reader.readString());
+        String sexo = reader.readNullableString();
+        event.setSexo(sexo == null ? null : Sexo.valueOf(sexo));
+        event.setEmail(reader.readString());
+        if (reader.readUnionIndex(2) == 1) {
+            event.setNascimento(LocalDate.ofEpochDay(reader.readInt()));
+        }
+        if (reader.readUnionIndex(2) == 1) {
+            EnderecoDTO endereco = new EnderecoDTO();
+            endereco.setLogradouro(reader.readNullableString());
+            endereco.setComplemento(reader.readNullableString());
+            endereco.setBairro(reader.readNullableString());
+            endereco.setCidade(reader.readNullableString());
+            String estado = reader.readNullableString();
+            endereco.setEstado(estado == null ? null : UF.valueOf(estado));
+            endereco.setCep(reader.readNullableString());
+            event.setEndereco(endereco);
+        }
+        List<TelefoneDTO> telefones = new ArrayList<>();
+        for (long count = reader.readArrayBlockCount(); count != 0; count = reader.readArrayBlockCount()) {
+            for (long i = 0; i < count; i++) {
+                telefones.add(new TelefoneDTO(reader.readString(), reader.readString()));
+            }
+        }
+        event.setTelefones(telefones);
+        event.setCadastradoEm(Instant.ofEpochMilli(reader.readLong()));
+        return event;
+    }
+
+    private static <T> T required(T value, String field) {
+        if (value == null) {
+            throw new SerializationException("Field " + field + " of " + SUBJECT + " is required");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,315 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Service streaming the whole citizen registry to an {@link OutputStream}.
+ * <p>
+ * The {@code cidadao} table is walked by id with keyset pagination: each page is read in its own
+ * short, read-only transaction through a forward-only cursor, and the enderecos and telefones of
+ * the page are fetched with one {@code IN} query each. Only one page is held in memory at a time,
+ * whatever the size of the registry.
+ */
+@Service
+public class CidadaoExportService {
+
+    private static final String CIDADAO_PAGE_SQL =
+        "select id, nome, sexo, email, nascimento, endereco_id from cidadao where id > ? order by id";
+
+    private static final String ENDERECO_BATCH_SQL =
+        "select id, logradouro, complemento, bairro, cidade, estado, cep from endereco where id in (:ids)";
+
+    private static final String TELEFONE_BATCH_SQL =
+        "select id, ddd, numero, cidadao_id from telefone where cidadao_id in (:ids) order by id";
+
+    private final Logger log = LoggerFactory.getLogger(CidadaoExportService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final int pageSize;
+
+    public CidadaoExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper, ApplicationProperties applicationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.pageSize = applicationProperties.getExport().getPageSize();
+    }
+
+    /**
+     * Writes every citizen, ordered by id, to the given stream.
+     *
+     * @param outputStream     the stream to write to; it is flushed after each page but not closed.
+     * @param format           the output format.
+     * @param includeEndereco  whether to write the endereco of each citizen.
+     * @param includeTelefones whether to write the telefones of each citizen.
+     * @return the number of citizens written.
+     * @throws IOException if the stream could not be written to, e.g. because the client went away.
+     */
+    public long export(OutputStream outputStream, CidadaoFileFormat format, boolean includeEndereco, boolean includeTelefones) throws IOException {
+        ExportWriter writer = format == CidadaoFileFormat.CSV
+            ? new CsvWriter(outputStream, includeEndereco, includeTelefones)
+            : new NdjsonWriter(outputStream, includeEndereco, includeTelefones);
+        long count = 0;
+        long lastId = Long.MIN_VALUE;
+        writer.begin();
+        while (true) {
+            long afterId = lastId;
+            Page page = transactionTemplate.execute(status -> loadPage(afterId, includeEndereco, includeTelefones));
+            for (Cidadao cidadao : page.cidadaos) {
+                writer.write(cidadao, page.telefones.getOrDefault(cidadao.getId(), Collections.emptyList()));
+            }
+            writer.flush();
+            count += page.cidadaos.size();
+            if (page.cidadaos.size() < pageSize) {
+                break;
+            }
+            lastId = page.cidadaos.get(page.cidadaos.size() - 1).getId();
+        }
+        log.debug("Exported {} Cidadaos as {}", count, format);
+        return count;
+    }
+
+    private Page loadPage(long afterId, boolean includeEndereco, boolean includeTelefones) {
+        Page page = new Page();
+        Map<Long, List<Cidadao>> byEnderecoId = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CIDADAO_PAGE_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(pageSize);
+            statement.setMaxRows(pageSize);
+            statement.setLong(1, afterId);
+            return statement;
+        }, resultSet -> {
+            Cidadao cidadao = new Cidadao()
+                .nome(resultSet.getString("nome"))
+                .sexo(toEnum(Sexo.class, resultSet.getString("sexo")))
+                .email(resultSet.getString("email"))
+                .nascimento(toLocalDate(resultSet.getDate("nascimento")));
+            cidadao.setId(resultSet.getLong("id"));
+            long enderecoId = resultSet.getLong("endereco_id");
+            if (!resultSet.wasNull()) {
+                byEnderecoId.computeIfAbsent(enderecoId, id -> new ArrayList<>(1)).add(cidadao);
+            }
+            page.cidadaos.add(cidadao);
+        });
+        if (includeEndereco && !byEnderecoId.isEmpty()) {
+            namedParameterJdbcTemplate.query(ENDERECO_BATCH_SQL, new MapSqlParameterSource("ids", byEnderecoId.keySet()), resultSet -> {
+                Endereco endereco = new Endereco()
+                    .logradouro(resultSet.getString("logradouro"))
+                    .complemento(resultSet.getString("complemento"))
+                    .bairro(resultSet.getString("bairro"))
+                    .cidade(resultSet.getString("cidade"))
+                    .estado(toEnum(UF.class, resultSet.getString("estado")))
+                    .cep(resultSet.getString("cep"));
+                endereco.setId(resultSet.getLong("id"));
+                byEnderecoId.get(endereco.getId()).forEach(cidadao -> cidadao.setEndereco(endereco));
+            });
+        }
+        if (includeTelefones && !page.cidadaos.isEmpty()) {
+            List<Long> ids = new ArrayList<>(page.cidadaos.size());
+            page.cidadaos.forEach(cidadao -> ids.add(cidadao.getId()));
+            namedParameterJdbcTemplate.query(TELEFONE_BATCH_SQL, new MapSqlParameterSource("ids", ids), resultSet -> {
+                Telefone telefone = new Telefone()
+                    .ddd(resultSet.getString("ddd"))
+                    .numero(resultSet.getString("numero"));
+                telefone.setId(resultSet.getLong("id"));
+                page.telefones.computeIfAbsent(resultSet.getLong("cidadao_id"), id -> new ArrayList<>()).add(telefone);
+            });
+        }
+        return page;
+    }
+
+    private static <E extends Enum<E>> E toEnum(Class<E> type, String value) {
+        return value == null ? null : Enum.valueOf(type, value);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static final class Page {
+
+        private final List<Cidadao> cidadaos = new ArrayList<>();
+
+        private final Map<Long, List<Telefone>> telefones = new HashMap<>();
+    }
+
+    private interface ExportWriter {
+
+        void begin() throws IOException;
+
+        void write(Cidadao cidadao, List<Telefone> telefones) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonWriter implements ExportWriter {
+
+        private final JsonGenerator generator;
+
+        private final boolean includeEndereco;
+
+        private final boolean includeTelefones;
+
+        private NdjsonWriter(OutputStream outputStream, boolean includeEndereco, boolean includeTelefones) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.includeEndereco = includeEndereco;
+            this.includeTelefones = includeTelefones;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(Cidadao cidadao, List<Telefone> telefones) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", cidadao.getId());
+            generator.writeStringField("nome", cidadao.getNome());
+            generator.writeStringField("sexo", CidadaoExportService.toString(cidadao.getSexo()));
+            generator.writeStringField("email", cidadao.getEmail());
+            generator.writeStringField("nascimento", CidadaoExportService.toString(cidadao.getNascimento()));
+            if (includeEndereco) {
+                Endereco endereco = cidadao.getEndereco();
+                if (endereco == null) {
+                    generator.writeNullField("endereco");
+                } else {
+                    generator.writeObjectFieldStart("endereco");
+                    generator.writeNumberField("id", endereco.getId());
+                    generator.writeStringField("logradouro", endereco.getLogradouro());
+                    generator.writeStringField("complemento", endereco.getComplemento());
+                    generator.writeStringField("bairro", endereco.getBairro());
+                    generator.writeStringField("cidade", endereco.getCidade());
+                    generator.writeStringField("estado", CidadaoExportService.toString(endereco.getEstado()));
+                    generator.writeStringField("cep", endereco.getCep());
+                    generator.writeEndObject();
+                }
+            }
+            if (includeTelefones) {
+                generator.writeArrayFieldStart("telefones");
+                for (Telefone telefone : telefones) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", telefone.getId());
+                    generator.writeStringField("ddd", telefone.getDdd());
+                    generator.writeStringField("numero", telefone.getNumero());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvWriter implements ExportWriter {
+
+        private final Writer writer;
+
+        private final boolean includeEndereco;
+
+        private final boolean includeTelefones;
+
+        private CsvWriter(OutputStream outputStream, boolean includeEndereco, boolean includeTelefones) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            this.includeEndereco = includeEndereco;
+            this.includeTelefones = includeTelefones;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("id,nome,sexo,email,nascimento");
+            if (includeEndereco) {
+                writer.write(",logradouro,complemento,bairro,cidade,estado,cep");
+            }
+            if (includeTelefones) {
+                writer.write(",telefones");
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(Cidadao cidadao, List<Telefone> telefones) throws IOException {
+            writer.write(String.valueOf(cidadao.getId()));
+            field(cidadao.getNome());
+            field(CidadaoExportService.toString(cidadao.getSexo()));
+            field(cidadao.getEmail());
+            field(CidadaoExportService.toString(cidadao.getNascimento()));
+            if (includeEndereco) {
+                Endereco endereco = cidadao.getEndereco() == null ? new Endereco() : cidadao.getEndereco();
+                field(endereco.getLogradouro());
+                field(endereco.getComplemento());
+                field(endereco.getBairro());
+                field(endereco.getCidade());
+                field(CidadaoExportService.toString(endereco.getEstado()));
+                field(endereco.getCep());
+            }
+            if (includeTelefones) {
+                StringJoiner joiner = new StringJoiner(";");
+                telefones.forEach(telefone -> joiner.add(telefone.getDdd() + " " + telefone.getNumero()));
+                field(joiner.toString());
+            }
+            writer.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            writer.write(',');
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+            } else {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package br.gov.bomdestino.cidadao.service;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * File formats of the citizen export and import.
+ */
+public enum CidadaoFileFormat {
+
+    /**
+     * One JSON object per line, shaped like the {@code /api/cidadaos} resources.
+     */
+    NDJSON,
+
+    /**
+     * RFC 4180 CSV with a header line; telefones are written as {@code ddd numero} separated by {@code ;}.
+     */
+    CSV;
+
+    /**
+     * @param value the format name, case insensitive.
+     * @return the format, or empty if there is none with that name.
+     */
+    public static Optional<CidadaoFileFormat> fromValue(String value) {
+        for (CidadaoFileFormat format : values()) {
+            if (format.name().equals(value.toUpperCase(Locale.ROOT))) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
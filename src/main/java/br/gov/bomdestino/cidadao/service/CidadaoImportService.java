@@ -0,0 +1,488 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
+import br.gov.bomdestino.cidadao.repository.TelefoneRepository;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoImportDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service importing citizens in bulk from NDJSON or CSV files, in the formats written by
+ * {@link CidadaoExportService}.
+ * <p>
+ * The upload is spooled to a temporary file, up to {@code max-size-mb}, and imported in the
+ * background: rows are parsed and validated one at a time, then inserted {@code chunk-size} rows
+ * per transaction, so Hibernate sends them in JDBC batches of {@code hibernate.jdbc.batch_size}
+ * with ids taken from the pooled {@code sequenceGenerator}. Search indexing and
+ * {@code cidadaoCadastrado} events go through the bulk indexer and the outbox. When a chunk fails,
+ * its rows are retried one by one so that only the offending rows are reported.
+ */
+@Service
+public class CidadaoImportService {
+
+    private static final String[] ENDERECO_COLUMNS = {"logradouro", "complemento", "bairro", "cidade", "estado", "cep"};
+
+    private final Logger log = LoggerFactory.getLogger(CidadaoImportService.class);
+
+    private final CidadaoRepository cidadaoRepository;
+
+    private final TelefoneRepository telefoneRepository;
+
+    private final EntityManager entityManager;
+
+    private final SearchIndexingService searchIndexingService;
+
+    private final OutboxService outboxService;
+
+    private final CidadaoEventCodec cidadaoEventCodec;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Executor executor;
+
+    private final ApplicationProperties.BulkImport properties;
+
+    private final Map<String, CidadaoImportDTO> jobs = new LinkedHashMap<>();
+
+    private final Counter importedCounter;
+
+    private final Counter failedCounter;
+
+    private final Timer chunkTimer;
+
+    public CidadaoImportService(CidadaoRepository cidadaoRepository, TelefoneRepository telefoneRepository, EntityManager entityManager,
+                                SearchIndexingService searchIndexingService, OutboxService outboxService, CidadaoEventCodec cidadaoEventCodec,
+                                ObjectMapper objectMapper, Validator validator, PlatformTransactionManager transactionManager,
+                                @Qualifier("taskExecutor") Executor executor, ApplicationProperties applicationProperties,
+                                MeterRegistry meterRegistry) {
+        this.cidadaoRepository = cidadaoRepository;
+        this.telefoneRepository = telefoneRepository;
+        this.entityManager = entityManager;
+        this.searchIndexingService = searchIndexingService;
+        this.outboxService = outboxService;
+        this.cidadaoEventCodec = cidadaoEventCodec;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.properties = applicationProperties.getBulkImport();
+
+        this.importedCounter = Counter.builder("cidadao.import.rows").tag("result", "imported")
+            .description("Rows processed by bulk citizen imports").register(meterRegistry);
+        this.failedCounter = Counter.builder("cidadao.import.rows").tag("result", "failed")
+            .description("Rows processed by bulk citizen imports").register(meterRegistry);
+        this.chunkTimer = Timer.builder("cidadao.import.chunk")
+            .description("Time to insert one chunk of imported citizens").register(meterRegistry);
+    }
+
+    /**
+     * Starts importing the given file in the background.
+     *
+     * @param inputStream the file contents; fully read before this method returns.
+     * @param format      the file format.
+     * @return the import job, whose progress is updated while it runs, or failed if it could not be started.
+     * @throws CidadaoImportTooLargeException if the file is larger than {@code max-size-mb}; it is read no further.
+     * @throws IOException                    if the file could not be read or spooled to disk.
+     */
+    public CidadaoImportDTO start(InputStream inputStream, CidadaoFileFormat format) throws IOException {
+        Path file = Files.createTempFile("cidadao-import-", "." + format.name().toLowerCase(Locale.ROOT));
+        try {
+            spool(inputStream, file, properties.getMaxSizeMb() * 1024L * 1024L);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        CidadaoImportDTO job = new CidadaoImportDTO(UUID.randomUUID().toString(), format);
+        register(job);
+        log.info("Iniciando importação {} de cidadãos ({} bytes)", job.getId(), Files.size(file));
+        try {
+            executor.execute(() -> run(job, file));
+        } catch (RejectedExecutionException e) {
+            log.warn("Importação {} de cidadãos não iniciada: {}", job.getId(), e.getMessage());
+            job.finish(CidadaoImportDTO.Status.FAILED, "Importação não iniciada, executor ocupado: tente novamente mais tarde");
+            deleteFile(file);
+        }
+        return job;
+    }
+
+    private static void spool(InputStream inputStream, Path file, long maxBytes) throws IOException {
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new CidadaoImportTooLargeException(maxBytes);
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * @param id the import job id.
+     * @return the import job, if it is running or among the last {@code max-jobs} finished ones.
+     */
+    public Optional<CidadaoImportDTO> findOne(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    private void register(CidadaoImportDTO job) {
+        synchronized (jobs) {
+            Iterator<CidadaoImportDTO> iterator = jobs.values().iterator();
+            while (jobs.size() >= properties.getMaxJobs() && iterator.hasNext()) {
+                if (iterator.next().getStatus() != CidadaoImportDTO.Status.RUNNING) {
+                    iterator.remove();
+                }
+            }
+            jobs.put(job.getId(), job);
+        }
+    }
+
+    private void run(CidadaoImportDTO job, Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RowReader rows = job.getFormat() == CidadaoFileFormat.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+            List<Row> chunk = new ArrayList<>(properties.getChunkSize());
+            Row row;
+            while ((row = rows.next()) != null) {
+                job.rowRead();
+                String error = row.error != null ? row.error : validate(row.cidadao);
+                if (error != null) {
+                    rowFailed(job, row.line, error);
+                } else {
+                    chunk.add(row);
+                    if (chunk.size() >= properties.getChunkSize()) {
+                        save(job, chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+            save(job, chunk);
+            job.finish(CidadaoImportDTO.Status.COMPLETED, null);
+            log.info("Importação {} concluída: {} cidadãos importados, {} linhas rejeitadas",
+                job.getId(), job.getRowsImported(), job.getRowsFailed());
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha na importação {} de cidadãos", job.getId(), e);
+            job.finish(CidadaoImportDTO.Status.FAILED, e.getMessage());
+        } finally {
+            deleteFile(file);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o arquivo temporário {}", file, e);
+        }
+    }
+
+    private String validate(Cidadao cidadao) {
+        Set<ConstraintViolation<?>> violations = new LinkedHashSet<>(validator.validate(cidadao));
+        if (cidadao.getEndereco() != null) {
+            violations.addAll(validator.validate(cidadao.getEndereco()));
+        }
+        cidadao.getTelefones().forEach(telefone -> violations.addAll(validator.validate(telefone)));
+        if (violations.isEmpty()) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(", ");
+        violations.forEach(violation -> joiner.add(violation.getPropertyPath() + " " + violation.getMessage()));
+        return joiner.toString();
+    }
+
+    private void save(CidadaoImportDTO job, List<Row> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            chunkTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                chunk.forEach(row -> insert(row.cidadao));
+                entityManager.flush();
+                entityManager.clear();
+            }));
+            job.rowsImported(chunk.size());
+            importedCounter.increment(chunk.size());
+        } catch (RuntimeException e) {
+            log.warn("Lote de {} cidadãos rejeitado, importando linha a linha: {}", chunk.size(), e.getMessage());
+            for (Row row : chunk) {
+                resetIds(row.cidadao);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(row.cidadao));
+                    job.rowsImported(1);
+                    importedCounter.increment();
+                } catch (RuntimeException rowException) {
+                    rowFailed(job, row.line, NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+    }
+
+    private void insert(Cidadao cidadao) {
+        cidadaoRepository.save(cidadao);
+        for (Telefone telefone : cidadao.getTelefones()) {
+            telefone.setCidadao(cidadao);
+            telefoneRepository.save(telefone);
+        }
+        searchIndexingService.index(Cidadao.class, cidadao.getId(), cidadao);
+        if (cidadao.getEndereco() != null) {
+            searchIndexingService.index(Endereco.class, cidadao.getEndereco().getId(), cidadao.getEndereco());
+        }
+        cidadao.getTelefones().forEach(telefone -> searchIndexingService.index(Telefone.class, telefone.getId(), telefone));
+        outboxService.enqueue(Constants.CIDADAO_CADASTRADO_TOPIC, cidadao.getId().toString(),
+            cidadaoEventCodec.encode(new CidadaoCadastradoEvent(cidadao)));
+    }
+
+    private static void resetIds(Cidadao cidadao) {
+        cidadao.setId(null);
+        if (cidadao.getEndereco() != null) {
+            cidadao.getEndereco().setId(null);
+        }
+        cidadao.getTelefones().forEach(telefone -> telefone.setId(null));
+    }
+
+    private void rowFailed(CidadaoImportDTO job, long line, String error) {
+        job.rowFailed(line, error, properties.getMaxErrors());
+        failedCounter.increment();
+    }
+
+    private static final class Row {
+
+        private final long line;
+
+        private final Cidadao cidadao;
+
+        private final String error;
+
+        private Row(long line, Cidadao cidadao, String error) {
+            this.line = line;
+            this.cidadao = cidadao;
+            this.error = error;
+        }
+    }
+
+    private interface RowReader {
+
+        /**
+         * @return the next row, or {@code null} at the end of the file.
+         */
+        Row next() throws IOException;
+    }
+
+    private final class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+
+        private long line;
+
+        private NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.trim().isEmpty());
+            if (text == null) {
+                return null;
+            }
+            try {
+                Cidadao cidadao = objectMapper.readValue(text, Cidadao.class);
+                resetIds(cidadao);
+                return new Row(line, cidadao, null);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, "JSON inválido: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static final class CsvRowReader implements RowReader {
+
+        private final BufferedReader reader;
+
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        private long line = 1;
+
+        private long recordLine;
+
+        private CsvRowReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> header = readRecord();
+            if (header != null) {
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+                }
+            }
+            if (!columns.containsKey("nome") || !columns.containsKey("email")) {
+                throw new IOException("O cabeçalho do CSV deve ter as colunas nome e email");
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> record;
+            do {
+                record = readRecord();
+            } while (record != null && record.size() == 1 && record.get(0).isEmpty());
+            if (record == null) {
+                return null;
+            }
+            try {
+                return new Row(recordLine, toCidadao(record), null);
+            } catch (IllegalArgumentException e) {
+                return new Row(recordLine, null, e.getMessage());
+            }
+        }
+
+        private Cidadao toCidadao(List<String> record) {
+            Cidadao cidadao = new Cidadao()
+                .nome(get(record, "nome"))
+                .email(get(record, "email"));
+            String sexo = get(record, "sexo");
+            if (sexo != null) {
+                cidadao.setSexo(toEnum(Sexo.class, "sexo", sexo));
+            }
+            String nascimento = get(record, "nascimento");
+            if (nascimento != null) {
+                try {
+                    cidadao.setNascimento(LocalDate.parse(nascimento));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("nascimento inválido: " + nascimento);
+                }
+            }
+            if (Arrays.stream(ENDERECO_COLUMNS).anyMatch(column -> get(record, column) != null)) {
+                Endereco endereco = new Endereco()
+                    .logradouro(get(record, "logradouro"))
+                    .complemento(get(record, "complemento"))
+                    .bairro(get(record, "bairro"))
+                    .cidade(get(record, "cidade"))
+                    .cep(get(record, "cep"));
+                String estado = get(record, "estado");
+                if (estado != null) {
+                    endereco.setEstado(toEnum(UF.class, "estado", estado));
+                }
+                cidadao.setEndereco(endereco);
+            }
+            String telefones = get(record, "telefones");
+            if (telefones != null) {
+                for (String telefone : telefones.split(";")) {
+                    String[] parts = telefone.trim().split("\\s+", 2);
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("telefone inválido, use \"ddd numero\": " + telefone);
+                    }
+                    cidadao.getTelefones().add(new Telefone().ddd(parts[0]).numero(parts[1]));
+                }
+            }
+            return cidadao;
+        }
+
+        private String get(List<String> record, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            String value = record.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static <E extends Enum<E>> E toEnum(Class<E> type, String column, String value) {
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(column + " inválido: " + value);
+            }
+        }
+
+        /**
+         * Reads one RFC 4180 record; quoted fields may contain commas, quotes and line breaks.
+         */
+        private List<String> readRecord() throws IOException {
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean empty = true;
+            int c;
+            while ((c = reader.read()) != -1) {
+                empty = false;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (empty) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
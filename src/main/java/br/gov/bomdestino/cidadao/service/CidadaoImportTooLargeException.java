@@ -0,0 +1,22 @@
+package br.gov.bomdestino.cidadao.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an import file is larger than {@code application.bulk-import.max-size-mb}.
+ */
+public class CidadaoImportTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long maxBytes;
+
+    public CidadaoImportTooLargeException(long maxBytes) {
+        super("O arquivo de importação excede o limite de " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,283 @@
+package br.gov.bomdestino.cidadao.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MembershipAdapter;
+import com.hazelcast.core.MembershipEvent;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.tasks.GetTaskRequest;
+import org.elasticsearch.client.tasks.GetTaskResponse;
+import org.elasticsearch.client.tasks.TaskSubmissionResponse;
+import org.elasticsearch.index.reindex.ReindexRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service for migrating Elasticsearch indices to a new mapping without downtime.
+ * <p>
+ * The application always reads and writes through the {@code cidadao} alias. A migration creates a
+ * new physical index with the current settings and mapping, copies the documents server-side with
+ * {@code _reindex}, then swaps the alias atomically. Search indexing is paused meanwhile on every
+ * member of the Hazelcast cluster, so changes committed during the copy are written to the new index
+ * once the alias has moved, whichever node they were made on.
+ * <p>
+ * A Hazelcast lock allows one migration at a time in the cluster. Members joining during a migration
+ * start paused, and are resumed with the others; if the member running it leaves, the others resume.
+ */
+@Service
+public class ElasticsearchIndexService {
+
+    private static final String CIDADAO_ALIAS = "cidadao";
+
+    private static final String CIDADAO_TYPE = "cidadao";
+
+    private static final String CIDADAO_SETTINGS = "config/elasticsearch/cidadao-settings.json";
+
+    private static final String CIDADAO_MAPPING = "config/elasticsearch/cidadao-mapping.json";
+
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private static final long TASK_POLL_INTERVAL_MS = 1000;
+
+    /**
+     * Hazelcast map whose key locks are held by the migrations, one key per alias.
+     */
+    public static final String MIGRATIONS_MAP = "elasticsearch-index-migrations";
+
+    private static final String INDEXING_EXECUTOR = "search-indexing";
+
+    private static final long PAUSE_TIMEOUT_SECONDS = 60;
+
+    private final Logger log = LoggerFactory.getLogger(ElasticsearchIndexService.class);
+
+    private final RestHighLevelClient client;
+
+    private final SearchIndexingService searchIndexingService;
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final IMap<String, String> migrations;
+
+    public ElasticsearchIndexService(RestHighLevelClient client, SearchIndexingService searchIndexingService,
+                                     HazelcastInstance hazelcastInstance) {
+        this.client = client;
+        this.searchIndexingService = searchIndexingService;
+        this.hazelcastInstance = hazelcastInstance;
+        this.migrations = hazelcastInstance.getMap(MIGRATIONS_MAP);
+        hazelcastInstance.getUserContext().put(SearchIndexingService.class.getName(), searchIndexingService);
+        hazelcastInstance.getCluster().addMembershipListener(new MembershipAdapter() {
+            @Override
+            public void memberRemoved(MembershipEvent membershipEvent) {
+                resumeIfAbandoned();
+            }
+        });
+        if (isRunning()) {
+            log.info("Reindexação em andamento em outro nó, indexação pausada até o fim");
+            searchIndexingService.pause();
+            // It may have ended in the meantime
+            resumeIfAbandoned();
+        }
+    }
+
+    /**
+     * @return {@code true} while a migration is in progress on any member of the cluster.
+     */
+    public boolean isRunning() {
+        return migrations.isLocked(CIDADAO_ALIAS);
+    }
+
+    /**
+     * Rebuilds the {@code cidadao} index with the current settings and mapping.
+     * <p>
+     * Only one migration runs at a time in the cluster; further calls are ignored until it finishes.
+     */
+    @Async
+    public void reindexCidadaos() {
+        if (!migrations.tryLock(CIDADAO_ALIAS)) {
+            log.warn("Reindexação de cidadãos já está em andamento");
+            return;
+        }
+        try {
+            String newIndex = CIDADAO_ALIAS + "_" + INDEX_SUFFIX.format(Instant.now());
+            migrate(newIndex);
+        } catch (IOException | RuntimeException e) {
+            log.error("Falha na reindexação de cidadãos", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Reindexação de cidadãos interrompida");
+        } finally {
+            migrations.unlock(CIDADAO_ALIAS);
+        }
+    }
+
+    /**
+     * Resumes the indexing paused by a migration whose member left the cluster, which released its lock.
+     */
+    private void resumeIfAbandoned() {
+        if (searchIndexingService.isPaused() && !isRunning()) {
+            log.warn("Reindexação interrompida em outro nó, retomando a indexação");
+            searchIndexingService.resume();
+        }
+    }
+
+    private void migrate(String newIndex) throws IOException, InterruptedException {
+        Set<String> aliasedIndices = client.indices()
+            .getAlias(new GetAliasesRequest(CIDADAO_ALIAS), RequestOptions.DEFAULT)
+            .getAliases().keySet();
+        // Before the first migration, "cidadao" is the physical index created by Spring Data
+        boolean legacyIndex = aliasedIndices.isEmpty()
+            && client.indices().exists(new GetIndexRequest(CIDADAO_ALIAS), RequestOptions.DEFAULT);
+
+        log.info("Criando o índice {} para o alias {}", newIndex, CIDADAO_ALIAS);
+        createIndex(newIndex);
+
+        setIndexingPaused(true);
+        try {
+            if (legacyIndex || !aliasedIndices.isEmpty()) {
+                String[] sources = legacyIndex ? new String[]{CIDADAO_ALIAS} : aliasedIndices.toArray(new String[0]);
+                copy(sources, newIndex);
+            }
+            IndicesAliasesRequest aliases = new IndicesAliasesRequest();
+            if (legacyIndex) {
+                aliases.addAliasAction(AliasActions.removeIndex().index(CIDADAO_ALIAS));
+            }
+            for (String index : aliasedIndices) {
+                aliases.addAliasAction(AliasActions.remove().index(index).alias(CIDADAO_ALIAS));
+            }
+            aliases.addAliasAction(AliasActions.add().index(newIndex).alias(CIDADAO_ALIAS));
+            client.indices().updateAliases(aliases, RequestOptions.DEFAULT);
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            client.indices().delete(new DeleteIndexRequest(newIndex), RequestOptions.DEFAULT);
+            throw e;
+        } finally {
+            setIndexingPaused(false);
+        }
+        log.info("Alias {} agora aponta para {}", CIDADAO_ALIAS, newIndex);
+
+        if (!aliasedIndices.isEmpty()) {
+            client.indices().delete(new DeleteIndexRequest(aliasedIndices.toArray(new String[0])), RequestOptions.DEFAULT);
+        }
+    }
+
+    /**
+     * Pauses or resumes the search indexing on every member, and waits for them: once paused, none writes
+     * to Elasticsearch anymore.
+     */
+    private void setIndexingPaused(boolean paused) throws IOException, InterruptedException {
+        Map<Member, Future<Void>> results = hazelcastInstance.getExecutorService(INDEXING_EXECUTOR)
+            .submitToAllMembers(new SetIndexingPaused(paused));
+        for (Map.Entry<Member, Future<Void>> result : results.entrySet()) {
+            try {
+                result.getValue().get(PAUSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                if (paused) {
+                    // Nothing is copied unless every member is paused
+                    setIndexingPaused(false);
+                    throw new IOException("Não foi possível pausar a indexação no nó " + result.getKey(), e);
+                }
+                log.error("Não foi possível retomar a indexação no nó {}", result.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Creates the index with the mapping under the {@value #CIDADAO_TYPE} type, the one Spring Data writes the documents
+     * with. The typeless create index request of the high level client would map them under {@code _doc} instead,
+     * so the index is created with the low level client.
+     */
+    private void createIndex(String index) throws IOException {
+        Request request = new Request("PUT", "/" + index);
+        request.addParameter("include_type_name", "true");
+        request.setJsonEntity("{\"settings\":" + readClasspathFile(CIDADAO_SETTINGS)
+            + ",\"mappings\":{\"" + CIDADAO_TYPE + "\":" + readClasspathFile(CIDADAO_MAPPING) + "}}");
+        client.getLowLevelClient().performRequest(request);
+    }
+
+    private static String readClasspathFile(String path) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(path).getInputStream()) {
+            return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void copy(String[] sources, String destination) throws IOException, InterruptedException {
+        ReindexRequest reindexRequest = new ReindexRequest()
+            .setSourceIndices(sources)
+            .setDestIndex(destination)
+            .setRefresh(true);
+        TaskSubmissionResponse submission = client.submitReindexTask(reindexRequest, RequestOptions.DEFAULT);
+        String[] task = submission.getTask().split(":");
+        GetTaskRequest getTaskRequest = new GetTaskRequest(task[0], Long.parseLong(task[1]));
+        while (true) {
+            Optional<GetTaskResponse> response = client.tasks().get(getTaskRequest, RequestOptions.DEFAULT);
+            if (!response.isPresent() || response.get().isCompleted()) {
+                return;
+            }
+            log.debug("Reindexação {} em andamento: {}", submission.getTask(), response.get().getTaskInfo().getStatus());
+            Thread.sleep(TASK_POLL_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Pauses or resumes the {@link SearchIndexingService} of the member it runs on.
+     */
+    static final class SetIndexingPaused implements Callable<Void>, Serializable, HazelcastInstanceAware {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean paused;
+
+        private transient HazelcastInstance hazelcastInstance;
+
+        SetIndexingPaused(boolean paused) {
+            this.paused = paused;
+        }
+
+        @Override
+        public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        @Override
+        public Void call() {
+            SearchIndexingService searchIndexingService =
+                (SearchIndexingService) hazelcastInstance.getUserContext().get(SearchIndexingService.class.getName());
+            if (searchIndexingService != null) {
+                if (paused) {
+                    searchIndexingService.pause();
+                } else {
+                    searchIndexingService.resume();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Service streaming every row of a table as NDJSON, one JSON entity per line.
+ * <p>
+ * The table is walked by id with keyset pagination: each page is loaded in its own short, read-only
+ * transaction and written before the next one is read, so only one page of entities is held in memory.
+ */
+@Service
+public class EntityStreamService {
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter objectWriter;
+
+    private final int pageSize;
+
+    public EntityStreamService(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                               ApplicationProperties applicationProperties) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        // Flushed once per page rather than once per entity
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.pageSize = applicationProperties.getExport().getPageSize();
+    }
+
+    /**
+     * Writes every entity, ordered by id, to the given stream.
+     *
+     * @param outputStream the stream to write to; it is flushed after each page but not closed.
+     * @param pageLoader   loads the entities whose id is greater than the given one, ordered by id, limited to the page.
+     * @param idOf         the id of an entity.
+     * @param <T>          the entity type.
+     * @return the number of entities written.
+     * @throws IOException if the stream could not be written to, e.g. because the client went away.
+     */
+    public <T> long streamNdjson(OutputStream outputStream, BiFunction<Long, Pageable, List<T>> pageLoader,
+                                 ToLongFunction<T> idOf) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        long count = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long afterId = lastId;
+            List<T> page = transactionTemplate.execute(status -> pageLoader.apply(afterId, pageable));
+            for (T entity : page) {
+                objectWriter.writeValue(generator, entity);
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+            count += page.size();
+            if (page.size() < pageSize) {
+                return count;
+            }
+            lastId = idOf.applyAsLong(page.get(page.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties.EventStream.SlowSubscriberPolicy;
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.config.KafkaConfiguration;
+import br.gov.bomdestino.cidadao.config.KafkaProperties;
+import br.gov.bomdestino.cidadao.config.VirtualThreads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Fans Kafka records out to many live subscribers (the SSE clients of {@code /api/cidadao-kafka/consume}).
+ * <p>
+ * Subscribers of the same topic set share one consumer, polled by one thread; the consumer is closed
+ * when its last subscriber leaves. Each subscriber has a bounded buffer, drained by a small shared
+ * dispatcher pool, so the thread count does not grow with the number of subscribers and a slow client
+ * only loses its own records (see {@link SlowSubscriberPolicy}).
+ * <p>
+ * Records are sent as text: the binary {@code cidadaoCadastrado} events, in that topic and its dead-letter
+ * topic, are decoded by the {@link CidadaoEventCodec} and sent as JSON, the values of the other topics as
+ * UTF-8 text. They are decoded once, by the polling thread, for all the subscribers.
+ */
+@Service
+public class EventStreamService {
+
+    private final Logger log = LoggerFactory.getLogger(EventStreamService.class);
+
+    private final ApplicationProperties.EventStream properties;
+
+    private final Map<String, Object> consumerProps;
+
+    private final Function<Map<String, Object>, Consumer<String, byte[]>> consumerFactory;
+
+    private final CidadaoEventCodec cidadaoEventCodec;
+
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService dispatcher;
+
+    private final ThreadFactory streamThreadFactory;
+
+    private final Map<Set<String>, TopicStream> streams = new HashMap<>();
+
+    private int subscriberCount;
+
+    private final Counter droppedCounter;
+
+    private final Counter disconnectedCounter;
+
+    @Autowired
+    public EventStreamService(ApplicationProperties applicationProperties, KafkaProperties kafkaProperties,
+                              CidadaoEventCodec cidadaoEventCodec, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(applicationProperties, kafkaProperties, props -> new KafkaConsumer<>(props, new StringDeserializer(), new ByteArrayDeserializer()),
+            cidadaoEventCodec, objectMapper, meterRegistry);
+    }
+
+    EventStreamService(ApplicationProperties applicationProperties, KafkaProperties kafkaProperties,
+                       Function<Map<String, Object>, Consumer<String, byte[]>> consumerFactory,
+                       CidadaoEventCodec cidadaoEventCodec, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getEventStream();
+        this.consumerProps = kafkaProperties.getConsumerProps();
+        // Every stream reads all the partitions of its topics: offsets are neither shared nor committed
+        this.consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        this.consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, properties.getAutoOffsetReset());
+        this.consumerFactory = consumerFactory;
+        this.cidadaoEventCodec = cidadaoEventCodec;
+        this.objectMapper = objectMapper;
+        if (VirtualThreads.isEnabled(applicationProperties.getVirtualThreads())) {
+            // A virtual thread per drain, bounded by max-subscribers instead of dispatcher-threads
+            this.dispatcher = VirtualThreads.newThreadPerTaskExecutor("event-stream-dispatcher-");
+            this.streamThreadFactory = VirtualThreads.threadFactory("event-stream-");
+        } else {
+            this.dispatcher = Executors.newFixedThreadPool(properties.getDispatcherThreads(),
+                new CustomizableThreadFactory("event-stream-dispatcher-"));
+            this.streamThreadFactory = Thread::new;
+        }
+        this.droppedCounter = Counter.builder("event.stream.records.dropped")
+            .description("Records dropped because the buffer of a subscriber was full")
+            .tag("policy", properties.getSlowSubscriberPolicy().name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("event.stream.subscribers.disconnected")
+            .description("Subscribers disconnected because they could not keep up, or their connection failed")
+            .register(meterRegistry);
+        Gauge.builder("event.stream.subscribers", this, EventStreamService::getSubscriberCount)
+            .description("Subscribers currently receiving records")
+            .register(meterRegistry);
+        Gauge.builder("event.stream.consumers", this, EventStreamService::getConsumerCount)
+            .description("Kafka consumers (one per distinct topic set) feeding the subscribers")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Receives the records of a subscription. Calls are never concurrent for the same subscriber.
+     */
+    public interface Subscriber {
+
+        /**
+         * @param values the values of the records as text, in the order they were read.
+         * @throws IOException if the subscriber is gone; it is then unsubscribed.
+         */
+        void onRecords(List<String> values) throws IOException;
+
+        /**
+         * Called when nothing was read for a while, so the subscriber can keep its connection alive.
+         *
+         * @throws IOException if the subscriber is gone; it is then unsubscribed.
+         */
+        void onHeartbeat() throws IOException;
+
+        /**
+         * Called when the service ends the subscription: the subscriber was too slow, the consumer
+         * failed, or the application is shutting down. Not called after {@link Subscription#cancel()}.
+         *
+         * @param cause the reason, or {@code null} on shutdown.
+         */
+        void onClose(Exception cause);
+    }
+
+    /**
+     * Subscribes to the given topics.
+     *
+     * @param topics     the topics to read.
+     * @param subscriber the receiver of the records.
+     * @return the subscription, or empty if {@code application.event-stream.max-subscribers} is reached.
+     */
+    public synchronized Optional<Subscription> subscribe(Collection<String> topics, Subscriber subscriber) {
+        if (subscriberCount >= properties.getMaxSubscribers()) {
+            log.warn("Limite de {} assinantes de eventos atingido", properties.getMaxSubscribers());
+            return Optional.empty();
+        }
+        Set<String> topicSet = new TreeSet<>(topics);
+        TopicStream stream = streams.computeIfAbsent(topicSet, this::startStream);
+        Subscription subscription = new Subscription(stream, subscriber);
+        stream.subscriptions.add(subscription);
+        subscriberCount++;
+        return Optional.of(subscription);
+    }
+
+    private TopicStream startStream(Set<String> topics) {
+        log.debug("Iniciando o consumidor compartilhado dos tópicos {}", topics);
+        TopicStream stream = new TopicStream(topics);
+        Thread thread = streamThreadFactory.newThread(stream);
+        thread.setName("event-stream-" + String.join(",", topics));
+        thread.setDaemon(true);
+        thread.start();
+        return stream;
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        TopicStream stream = subscription.stream;
+        if (!stream.subscriptions.remove(subscription)) {
+            return;
+        }
+        subscriberCount--;
+        if (stream.subscriptions.isEmpty() && streams.get(stream.topics) == stream) {
+            log.debug("Encerrando o consumidor compartilhado dos tópicos {}", stream.topics);
+            streams.remove(stream.topics);
+            stream.stop();
+        }
+    }
+
+    /**
+     * Ends a stream whose consumer failed: new subscribers of its topics get a new stream, and its own are closed.
+     */
+    private void fail(TopicStream stream, RuntimeException cause) {
+        synchronized (this) {
+            if (streams.get(stream.topics) == stream) {
+                streams.remove(stream.topics);
+            }
+        }
+        stream.subscriptions.forEach(subscription -> subscription.close(cause));
+    }
+
+    /**
+     * @return the text sent to the subscribers for the record, or {@code null} if it has no value or cannot be decoded.
+     */
+    private String toText(ConsumerRecord<String, byte[]> record) {
+        byte[] value = record.value();
+        if (value == null) {
+            return null;
+        }
+        String topic = record.topic();
+        if (!topic.equals(Constants.CIDADAO_CADASTRADO_TOPIC)
+            && !topic.equals(Constants.CIDADAO_CADASTRADO_TOPIC + KafkaConfiguration.DEAD_LETTER_TOPIC_SUFFIX)) {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+        try {
+            return objectMapper.writeValueAsString(cidadaoEventCodec.decode(value));
+        } catch (SerializationException | JsonProcessingException e) {
+            log.warn("Registro {}-{}@{} ignorado no stream de eventos: {}", topic, record.partition(), record.offset(), e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    public synchronized int getConsumerCount() {
+        return streams.size();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        List<Subscription> subscriptions = new ArrayList<>();
+        synchronized (this) {
+            streams.values().forEach(stream -> subscriptions.addAll(stream.subscriptions));
+        }
+        subscriptions.forEach(subscription -> subscription.close(null));
+        dispatcher.shutdown();
+    }
+
+    /**
+     * One shared consumer and the subscriptions it feeds.
+     */
+    private final class TopicStream implements Runnable {
+
+        private final Set<String> topics;
+
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        private volatile boolean running = true;
+
+        private volatile Consumer<String, byte[]> consumer;
+
+        private TopicStream(Set<String> topics) {
+            this.topics = topics;
+        }
+
+        @Override
+        public void run() {
+            Map<String, Object> props = new HashMap<>(consumerProps);
+            props.put(ConsumerConfig.GROUP_ID_CONFIG, consumerProps.get(ConsumerConfig.GROUP_ID_CONFIG) + "-stream-" + UUID.randomUUID());
+            try {
+                consumer = consumerFactory.apply(props);
+                consumer.subscribe(topics);
+                Duration pollTimeout = Duration.ofMillis(properties.getPollTimeoutMs());
+                long lastHeartbeat = System.currentTimeMillis();
+                while (running) {
+                    ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
+                    List<String> values = new ArrayList<>(records.count());
+                    for (ConsumerRecord<String, byte[]> record : records) {
+                        String value = toText(record);
+                        if (value != null) {
+                            values.add(value);
+                        }
+                    }
+                    if (!values.isEmpty()) {
+                        subscriptions.forEach(subscription -> subscription.offer(values));
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastHeartbeat >= properties.getHeartbeatIntervalMs()) {
+                        subscriptions.forEach(Subscription::heartbeat);
+                        lastHeartbeat = now;
+                    }
+                }
+            } catch (WakeupException e) {
+                // stop() was called
+            } catch (RuntimeException e) {
+                log.warn("Falha no consumidor compartilhado dos tópicos {}: {}", topics, e.getMessage());
+                fail(this, e);
+            } finally {
+                if (consumer != null) {
+                    consumer.close();
+                }
+            }
+        }
+
+        private void stop() {
+            running = false;
+            Consumer<String, byte[]> current = consumer;
+            if (current != null) {
+                current.wakeup();
+            }
+        }
+    }
+
+    /**
+     * A subscriber of a {@link TopicStream}, with its bounded buffer.
+     */
+    public final class Subscription {
+
+        private final TopicStream stream;
+
+        private final Subscriber subscriber;
+
+        private final BlockingQueue<String> buffer;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private volatile boolean heartbeatPending;
+
+        private Subscription(TopicStream stream, Subscriber subscriber) {
+            this.stream = stream;
+            this.subscriber = subscriber;
+            this.buffer = new ArrayBlockingQueue<>(properties.getBufferSize());
+        }
+
+        /**
+         * Ends the subscription, without calling {@link Subscriber#onClose(Exception)}.
+         */
+        public void cancel() {
+            if (closed.compareAndSet(false, true)) {
+                remove(this);
+            }
+        }
+
+        private void close(Exception cause) {
+            if (closed.compareAndSet(false, true)) {
+                remove(this);
+                subscriber.onClose(cause);
+            }
+        }
+
+        /**
+         * Buffers the values; only called by the polling thread of the stream.
+         */
+        private void offer(List<String> values) {
+            for (String value : values) {
+                if (buffer.offer(value)) {
+                    continue;
+                }
+                switch (properties.getSlowSubscriberPolicy()) {
+                    case DROP_OLDEST:
+                        buffer.poll();
+                        buffer.offer(value);
+                        droppedCounter.increment();
+                        break;
+                    case DROP_NEWEST:
+                        droppedCounter.increment();
+                        break;
+                    default:
+                        disconnectedCounter.increment();
+                        close(new IOException("Assinante lento desconectado: mais de " + properties.getBufferSize() + " registros pendentes"));
+                        return;
+                }
+            }
+            schedule();
+        }
+
+        private void heartbeat() {
+            heartbeatPending = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Sends what is buffered, then gives the dispatcher thread back to the other subscribers.
+         */
+        private void drain() {
+            try {
+                List<String> values = new ArrayList<>(buffer.size());
+                buffer.drainTo(values);
+                if (!values.isEmpty()) {
+                    heartbeatPending = false;
+                    subscriber.onRecords(values);
+                } else if (heartbeatPending) {
+                    heartbeatPending = false;
+                    subscriber.onHeartbeat();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Assinante de eventos desconectado: {}", e.getMessage());
+                disconnectedCounter.increment();
+                cancel();
+            } finally {
+                scheduled.set(false);
+            }
+            if (!buffer.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
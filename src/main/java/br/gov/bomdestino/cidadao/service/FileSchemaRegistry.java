@@ -0,0 +1,83 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link SchemaRegistry} read once from the schema files of {@code application.schema-registry.location}.
+ * <p>
+ * Each file holds one schema: its {@code id}, {@code subject}, {@code version} and the Avro {@code schema}
+ * itself. The ids are written in the records, so a published schema file must never be changed or
+ * removed; a new version gets a new file and a new id.
+ */
+@Service
+public class FileSchemaRegistry implements SchemaRegistry {
+
+    private final Logger log = LoggerFactory.getLogger(FileSchemaRegistry.class);
+
+    private final Map<Integer, Schema> schemasById = new HashMap<>();
+
+    private final Map<String, Schema> latestBySubject = new HashMap<>();
+
+    private final Set<String> subjectVersions = new HashSet<>();
+
+    public FileSchemaRegistry(ApplicationProperties applicationProperties, ObjectMapper objectMapper) throws IOException {
+        String location = applicationProperties.getSchemaRegistry().getLocation();
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + (location.endsWith("/") ? "" : "/") + "*.json");
+        for (Resource resource : resources) {
+            register(read(resource, objectMapper), resource);
+        }
+        log.info("{} esquema(s) de eventos carregado(s) de {}", schemasById.size(), location);
+    }
+
+    @Override
+    public Optional<Schema> getById(int id) {
+        return Optional.ofNullable(schemasById.get(id));
+    }
+
+    @Override
+    public Optional<Schema> getLatest(String subject) {
+        return Optional.ofNullable(latestBySubject.get(subject));
+    }
+
+    private static Schema read(Resource resource, ObjectMapper objectMapper) {
+        try (InputStream in = resource.getInputStream()) {
+            JsonNode node = objectMapper.readTree(in);
+            if (!node.path("id").isInt() || !node.path("subject").isTextual() || !node.path("version").isInt() || !node.path("schema").isObject()) {
+                throw new IllegalStateException("Schema file " + resource.getDescription() + " needs an id, a subject, a version and a schema");
+            }
+            return new Schema(node.get("id").asInt(), node.get("subject").asText(), node.get("version").asInt(), node.get("schema").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the schema file " + resource.getDescription(), e);
+        }
+    }
+
+    private void register(Schema schema, Resource resource) {
+        Schema previous = schemasById.putIfAbsent(schema.getId(), schema);
+        if (previous != null) {
+            throw new IllegalStateException("Schema id " + schema.getId() + " of " + resource.getDescription() + " is already used by " + previous);
+        }
+        if (!subjectVersions.add(schema.getSubject() + ":" + schema.getVersion())) {
+            throw new IllegalStateException("Version " + schema.getVersion() + " of " + schema.getSubject() + " is registered twice");
+        }
+        Schema latest = latestBySubject.get(schema.getSubject());
+        if (latest == null || latest.getVersion() < schema.getVersion()) {
+            latestBySubject.put(schema.getSubject(), schema);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.OutboxEvent;
+import br.gov.bomdestino.cidadao.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.KafkaException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background relay that publishes the {@link OutboxEvent}s to Kafka.
+ * <p>
+ * Each cycle locks a batch of pending events (skipping rows locked by other nodes), sends them
+ * without waiting record by record, flushes the producer and deletes the acknowledged events.
+ * Delivery is at-least-once: an event is only removed after the broker acknowledged it.
+ */
+@Service
+public class OutboxRelay {
+
+    private final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Outbox outboxProperties;
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    private final AtomicLong oldestPendingEpochMilli = new AtomicLong();
+
+    private final Counter publishedCounter;
+
+    private final Counter failedCounter;
+
+    private final Timer batchTimer;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, PlatformTransactionManager transactionManager,
+                       ApplicationProperties applicationProperties, KafkaTemplate<String, byte[]> kafkaTemplate, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxProperties = applicationProperties.getOutbox();
+        this.kafkaTemplate = kafkaTemplate;
+        this.publishedCounter = Counter.builder("outbox.events.published")
+            .description("Outbox events acknowledged by Kafka")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.events.failed")
+            .description("Outbox events whose publication failed and will be retried")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+            .description("Time to publish and remove one batch of outbox events")
+            .register(meterRegistry);
+        Gauge.builder("outbox.lag", oldestPendingEpochMilli, OutboxRelay::lagInSeconds)
+            .description("Age of the oldest event still waiting in the outbox")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Drains the outbox, batch after batch, until it is empty or a publication fails.
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval-ms:500}")
+    public void relay() {
+        if (!outboxProperties.isEnabled()) {
+            return;
+        }
+        int published;
+        do {
+            published = batchTimer.record(() -> transactionTemplate.execute(status -> publishBatch()));
+        } while (published >= outboxProperties.getBatchSize());
+    }
+
+    /**
+     * @return the value of the event: its binary payload, or the text payload of the events written by the
+     * previous version, sent as that version did.
+     */
+    private static byte[] value(OutboxEvent event) {
+        if (event.getPayload() == null && event.getLegacyPayload() != null) {
+            return event.getLegacyPayload().getBytes(StandardCharsets.UTF_8);
+        }
+        return event.getPayload();
+    }
+
+    /**
+     * Publishes one batch of events.
+     *
+     * @return the number of events published, or {@code 0} if the batch could not be fully published.
+     */
+    private int publishBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findPendingForUpdate(PageRequest.of(0, outboxProperties.getBatchSize()));
+        if (events.isEmpty()) {
+            oldestPendingEpochMilli.set(0);
+            return 0;
+        }
+        oldestPendingEpochMilli.set(events.get(0).getCreatedDate().toEpochMilli());
+
+        List<Future<SendResult<String, byte[]>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                futures.add(kafkaTemplate.send(new ProducerRecord<>(event.getTopic(), event.getMessageKey(), value(event))));
+            } catch (KafkaException e) {
+                CompletableFuture<SendResult<String, byte[]>> failure = new CompletableFuture<>();
+                failure.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+                futures.add(failure);
+            }
+        }
+        kafkaTemplate.flush();
+
+        List<OutboxEvent> published = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                futures.get(i).get(outboxProperties.getSendTimeoutMs(), TimeUnit.MILLISECONDS);
+                published.add(events.get(i));
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Falha ao publicar o evento {} do outbox, nova tentativa no próximo ciclo: {}", events.get(i).getId(), e.getMessage());
+                failedCounter.increment(events.size() - i);
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!published.isEmpty()) {
+            outboxEventRepository.deleteInBatch(published);
+            publishedCounter.increment(published.size());
+            log.debug("{} eventos do outbox publicados", published.size());
+        }
+        return published.size() == events.size() ? published.size() : 0;
+    }
+
+    private static double lagInSeconds(AtomicLong oldestPendingEpochMilli) {
+        long oldest = oldestPendingEpochMilli.get();
+        return oldest == 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+    }
+}
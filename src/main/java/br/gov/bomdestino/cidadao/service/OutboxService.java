@@ -0,0 +1,42 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.domain.OutboxEvent;
+import br.gov.bomdestino.cidadao.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for recording Kafka events in the transactional outbox.
+ * <p>
+ * It must be called from inside the transaction that performs the business change, so the
+ * event is committed (or rolled back) together with it. Publishing is done later by the
+ * {@link OutboxRelay}.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    private final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    /**
+     * Records an event to be published to the given topic.
+     *
+     * @param topic   the Kafka topic.
+     * @param key     the record key, used for partitioning (may be {@code null}).
+     * @param payload the record value, already serialized.
+     * @return the persisted outbox event.
+     */
+    public OutboxEvent enqueue(String topic, String key, byte[] payload) {
+        log.debug("Registrando evento no outbox para o tópico {} com chave {}", topic, key);
+        return outboxEventRepository.save(new OutboxEvent().topic(topic).messageKey(key).payload(payload));
+    }
+}
@@ -0,0 +1,198 @@
+package br.gov.bomdestino.cidadao.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import org.springframework.validation.Validator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the phases of a request (validation, persistence, indexing...) separately, as
+ * {@code request.phase{operation, uri, phase}} timers.
+ * <p>
+ * The histogram buckets of the timers are the SLO boundaries of their {@code uri}, see
+ * {@code br.gov.bomdestino.cidadao.config.SloMeterFilter}, and the breakdown is returned by
+ * {@code /management/phases}.
+ */
+@Service
+public class PhaseMetrics {
+
+    public static final String METER_NAME = "request.phase";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public PhaseMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param name the name of the operation, usually the name of the handler method.
+     * @param uri  the uri template of the endpoint, which selects the SLO boundaries.
+     * @return the timers of the operation.
+     */
+    public Operation operation(String name, String uri) {
+        return operations.computeIfAbsent(name, key -> new Operation(meterRegistry, key, uri));
+    }
+
+    /**
+     * @return the operations timed so far.
+     */
+    public Collection<Operation> getOperations() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    /**
+     * The timers of the phases of one operation, in the order the phases were first timed.
+     */
+    public static final class Operation {
+
+        private final MeterRegistry meterRegistry;
+
+        private final String name;
+
+        private final String uri;
+
+        private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+        private final List<String> phases = new CopyOnWriteArrayList<>();
+
+        private Operation(MeterRegistry meterRegistry, String name, String uri) {
+            this.meterRegistry = meterRegistry;
+            this.name = name;
+            this.uri = uri;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        /**
+         * @return a copy of the timers, by phase.
+         */
+        public Map<String, Timer> getTimers() {
+            Map<String, Timer> copy = new LinkedHashMap<>();
+            phases.forEach(phase -> copy.put(phase, timers.get(phase)));
+            return copy;
+        }
+
+        public <T> T time(String phase, Supplier<T> supplier) {
+            return timer(phase).record(supplier);
+        }
+
+        public void run(String phase, Runnable runnable) {
+            timer(phase).record(runnable);
+        }
+
+        public void record(String phase, long nanos) {
+            timer(phase).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Times the commit of the current transaction, including the flush of the pending changes, if it commits.
+         * Does nothing outside of a transaction.
+         *
+         * @param phase the phase.
+         */
+        public void timeCommit(String phase) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            Timer timer = timer(phase);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                private long start;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    start = System.nanoTime();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (start != 0 && status == TransactionSynchronization.STATUS_COMMITTED) {
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+            });
+        }
+
+        /**
+         * @param phase     the phase.
+         * @param validator the validator to time, as used by a {@code WebDataBinder}.
+         * @return a validator timing each validation of the given one.
+         */
+        public Validator timed(String phase, Validator validator) {
+            return new TimedValidator(validator, timer(phase));
+        }
+
+        private Timer timer(String phase) {
+            Timer timer = timers.get(phase);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(phase, this::createTimer);
+            }
+            return timer;
+        }
+
+        private Timer createTimer(String phase) {
+            phases.add(phase);
+            return Timer.builder(METER_NAME)
+                .description("Execution time of each phase of a request")
+                .tag("operation", name)
+                .tag("uri", uri)
+                .tag("phase", phase)
+                .register(meterRegistry);
+        }
+    }
+
+    private static final class TimedValidator implements SmartValidator {
+
+        private final Validator delegate;
+
+        private final Timer timer;
+
+        private TimedValidator(Validator delegate, Timer timer) {
+            this.delegate = delegate;
+            this.timer = timer;
+        }
+
+        @Override
+        public boolean supports(Class<?> clazz) {
+            return delegate.supports(clazz);
+        }
+
+        @Override
+        public void validate(Object target, Errors errors) {
+            timer.record(() -> delegate.validate(target, errors));
+        }
+
+        @Override
+        public void validate(Object target, Errors errors, Object... validationHints) {
+            if (delegate instanceof SmartValidator) {
+                timer.record(() -> ((SmartValidator) delegate).validate(target, errors, validationHints));
+            } else {
+                validate(target, errors);
+            }
+        }
+    }
+}
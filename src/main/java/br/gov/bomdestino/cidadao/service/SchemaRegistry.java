@@ -0,0 +1,66 @@
+package br.gov.bomdestino.cidadao.service;
+
+import java.util.Optional;
+
+/**
+ * Registry of the schemas of the binary events, looked up by the id written in each record.
+ */
+public interface SchemaRegistry {
+
+    /**
+     * @param id the id written in the record.
+     * @return the schema with this id, if any.
+     */
+    Optional<Schema> getById(int id);
+
+    /**
+     * @param subject the subject, {@code <topic>-value} for the values of a topic.
+     * @return the highest version registered for the subject, if any.
+     */
+    Optional<Schema> getLatest(String subject);
+
+    /**
+     * A version of the schema of a subject.
+     */
+    final class Schema {
+
+        private final int id;
+
+        private final String subject;
+
+        private final int version;
+
+        private final String definition;
+
+        public Schema(int id, String subject, int version, String definition) {
+            this.id = id;
+            this.subject = subject;
+            this.version = version;
+            this.definition = definition;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the Avro schema, as JSON.
+         */
+        public String getDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String toString() {
+            return "Schema{id=" + id + ", subject='" + subject + "', version=" + version + "}";
+        }
+    }
+}
@@ -0,0 +1,617 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service keeping the Elasticsearch indices in sync with the database.
+ * <p>
+ * Changes are queued only after the surrounding transaction commits, coalesced per entity id
+ * (the last change wins) and written in bulk, either when {@code bulk-size} changes are waiting
+ * or every {@code flush-interval-ms}. Bulks are sent with the non-blocking {@link AsyncIndexTemplate},
+ * one at a time, the next one once the previous is answered, so no thread waits for Elasticsearch.
+ * The queue is bounded by {@code max-pending}, the changes being written included: when it is full,
+ * callers wait up to {@code offer-timeout-ms}, then queue their change anyway, counted in
+ * {@code search.indexing.overflow}.
+ * <p>
+ * Failed writes are queued again, each change waiting {@code retry-backoff-ms}, doubled after each
+ * failure up to {@code max-retry-backoff-ms}, and a flush stops at the first failed bulk. While
+ * Elasticsearch is unreachable or overloaded, changes are retried until it is back; documents it
+ * rejects are given up after {@code max-retries} attempts.
+ * <p>
+ * With {@code application.search-indexing.async} set to {@code false}, changes are sent at once,
+ * one request per change, without waiting for the transaction to commit; failed ones are queued
+ * and retried as above.
+ * <p>
+ * While {@link #pause() paused}, nothing is written: every change, including the synchronous ones,
+ * is kept in the queue, beyond {@code max-pending} as coalesced per entity id, and written on
+ * {@link #resume()}.
+ * <p>
+ * {@link #index} and {@link #delete} return a future completed with the duration of the bulk request
+ * that wrote the change, or that wrote a newer change of the same document superseding it; completed
+ * exceptionally if the change is given up, and cancelled if its transaction rolls back.
+ */
+@Service
+public class SearchIndexingService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchIndexingService.class);
+
+    private final AsyncIndexTemplate asyncIndexTemplate;
+
+    private final ApplicationProperties.SearchIndexing properties;
+
+    private final Map<PendingKey, PendingOperation> pending = new LinkedHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition writesDone = lock.newCondition();
+
+    /**
+     * Changes taken from the queue and not written yet, still counted against {@code max-pending}.
+     */
+    private int inFlight;
+
+    /**
+     * Bulk requests not answered yet, which {@link #pause()} waits for.
+     */
+    private int writes;
+
+    /**
+     * Whether a bulk of queued changes is being written; the next one is sent once it is answered.
+     */
+    private boolean flushing;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicBoolean paused = new AtomicBoolean();
+
+    private final ScheduledExecutorService executor;
+
+    private final Counter indexedCounter;
+
+    private final Counter deletedCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter droppedCounter;
+
+    private final Counter overflowCounter;
+
+    private final Timer flushTimer;
+
+    public SearchIndexingService(AsyncIndexTemplate asyncIndexTemplate, ApplicationProperties applicationProperties,
+                                 MeterRegistry meterRegistry) {
+        this.asyncIndexTemplate = asyncIndexTemplate;
+        this.properties = applicationProperties.getSearchIndexing();
+
+        this.indexedCounter = Counter.builder("search.indexing.documents").tag("operation", "index")
+            .description("Documents written to Elasticsearch").register(meterRegistry);
+        this.deletedCounter = Counter.builder("search.indexing.documents").tag("operation", "delete")
+            .description("Documents written to Elasticsearch").register(meterRegistry);
+        this.retriedCounter = Counter.builder("search.indexing.retries")
+            .description("Changes queued again after a failed write").register(meterRegistry);
+        this.droppedCounter = Counter.builder("search.indexing.dropped")
+            .description("Changes given up after being rejected max-retries times").register(meterRegistry);
+        this.overflowCounter = Counter.builder("search.indexing.overflow")
+            .description("Changes queued beyond max-pending after waiting offer-timeout-ms").register(meterRegistry);
+        this.flushTimer = Timer.builder("search.indexing.flush")
+            .description("Time to write one bulk of changes to Elasticsearch").register(meterRegistry);
+        Gauge.builder("search.indexing.pending", this, SearchIndexingService::pendingCount)
+            .description("Changes waiting to be written to Elasticsearch").register(meterRegistry);
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-indexing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Also when synchronous, for the retries
+        executor.scheduleWithFixedDelay(this::flushQuietly, properties.getFlushIntervalMs(),
+            properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Indexes the entity once the current transaction commits.
+     *
+     * @param type   the entity type.
+     * @param id     the entity id.
+     * @param entity the entity to index.
+     * @param <T>    the entity type.
+     * @return a future completed with the duration of the bulk request that wrote the change.
+     */
+    public <T> CompletableFuture<Duration> index(Class<T> type, Long id, T entity) {
+        return submit(new PendingOperation(new PendingKey(type, id), entity));
+    }
+
+    /**
+     * Removes the entity from its index once the current transaction commits.
+     *
+     * @param type the entity type.
+     * @param id   the entity id.
+     * @return a future completed with the duration of the bulk request that wrote the change.
+     */
+    public CompletableFuture<Duration> delete(Class<?> type, Long id) {
+        return submit(new PendingOperation(new PendingKey(type, id), null));
+    }
+
+    private CompletableFuture<Duration> submit(PendingOperation operation) {
+        if (!properties.isAsync()) {
+            send(operation);
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    enqueue(operation);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        operation.written.cancel(false);
+                    }
+                }
+            });
+        } else {
+            enqueue(operation);
+        }
+        return operation.written;
+    }
+
+    /**
+     * Sends a change at once, in its own request, or keeps it if paused.
+     */
+    private void send(PendingOperation operation) {
+        lock.lock();
+        try {
+            if (paused.get()) {
+                supersede(pending.put(operation.key, operation), operation);
+                return;
+            }
+            writes++;
+        } finally {
+            lock.unlock();
+        }
+        write(Collections.singletonList(operation), false);
+    }
+
+    private void enqueue(PendingOperation operation) {
+        lock.lock();
+        try {
+            long nanos = paused.get() ? 0 : TimeUnit.MILLISECONDS.toNanos(properties.getOfferTimeoutMs());
+            try {
+                while (isFull(operation.key) && nanos > 0) {
+                    requestFlush();
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (isFull(operation.key) && !paused.get()) {
+                overflowCounter.increment();
+                log.warn("Fila de indexação cheia, {} enfileirado além de max-pending", operation.key);
+            }
+            supersede(pending.put(operation.key, operation), operation);
+            if (pending.size() >= properties.getBulkSize()) {
+                requestFlush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes a change replaced in the queue by a newer one of the same document when the newer one is written.
+     */
+    private static void supersede(PendingOperation older, PendingOperation newer) {
+        if (older == null || older == newer) {
+            return;
+        }
+        newer.written.whenComplete((duration, failure) -> {
+            if (failure == null) {
+                older.written.complete(duration);
+            } else {
+                older.written.completeExceptionally(failure);
+            }
+        });
+    }
+
+    private boolean isFull(PendingKey key) {
+        return pending.size() + inFlight >= properties.getMaxPending() && !pending.containsKey(key);
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Shutting down, destroy() flushes what is left
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Erro inesperado ao gravar no Elasticsearch", e);
+        }
+    }
+
+    /**
+     * Stops writing to Elasticsearch, once the writes in flight are answered; changes keep being coalesced in the
+     * queue until {@link #resume()}.
+     */
+    public void pause() {
+        paused.set(true);
+        lock.lock();
+        try {
+            while (writes > 0) {
+                writesDone.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} between {@link #pause()} and {@link #resume()}.
+     */
+    public boolean isPaused() {
+        return paused.get();
+    }
+
+    /**
+     * Resumes writing to Elasticsearch after a {@link #pause()}, starting with the changes kept meanwhile.
+     */
+    public void resume() {
+        paused.set(false);
+        requestFlush();
+    }
+
+    /**
+     * Sends a bulk of the pending changes due, unless one is already being written. Once it is answered, the
+     * next one is sent if this one was full and written, so the queue is written down to fewer than
+     * {@code bulk-size} changes, or up to the first failed bulk.
+     */
+    public void flush() {
+        flushRequested.set(false);
+        startFlush();
+    }
+
+    /**
+     * @return a future completed with {@code true} if every change of the bulk was written, {@code null} if no bulk
+     * was sent.
+     */
+    private CompletableFuture<Boolean> startFlush() {
+        List<PendingOperation> batch;
+        lock.lock();
+        try {
+            if (paused.get() || flushing) {
+                return null;
+            }
+            batch = drain();
+            if (batch.isEmpty()) {
+                return null;
+            }
+            flushing = true;
+            writes++;
+        } finally {
+            lock.unlock();
+        }
+        return write(batch, true).whenComplete((written, failure) -> {
+            lock.lock();
+            try {
+                flushing = false;
+            } finally {
+                lock.unlock();
+            }
+            if (Boolean.TRUE.equals(written) && batch.size() >= properties.getBulkSize()) {
+                requestFlush();
+            }
+        });
+    }
+
+    /**
+     * Takes up to {@code bulk-size} changes whose backoff has elapsed from the queue, keeping them in flight.
+     */
+    private List<PendingOperation> drain() {
+        List<PendingOperation> batch = new ArrayList<>(Math.min(pending.size(), properties.getBulkSize()));
+        long now = System.nanoTime();
+        Iterator<PendingOperation> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < properties.getBulkSize()) {
+            PendingOperation operation = iterator.next();
+            if (operation.notBefore - now <= 0) {
+                batch.add(operation);
+                iterator.remove();
+            }
+        }
+        inFlight += batch.size();
+        return batch;
+    }
+
+    /**
+     * Sends the changes in one bulk request, counted in {@link #writes} by the caller, then queues again those to
+     * retry.
+     *
+     * @param queued whether the changes were taken from the queue, and are counted in {@link #inFlight}.
+     * @return a future completed with {@code true} if every change was written.
+     */
+    private CompletableFuture<Boolean> write(List<PendingOperation> operations, boolean queued) {
+        List<AsyncIndexTemplate.Change> changes = new ArrayList<>(operations.size());
+        for (PendingOperation operation : operations) {
+            changes.add(operation.entity == null
+                ? AsyncIndexTemplate.Change.delete(operation.key.type, operation.key.id)
+                : AsyncIndexTemplate.Change.index(operation.key.type, operation.key.id, operation.entity));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<BulkResponse> response;
+        try {
+            response = asyncIndexTemplate.bulk(changes);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        return response.handle((bulk, failure) -> {
+            long nanos = System.nanoTime() - start;
+            flushTimer.record(nanos, TimeUnit.NANOSECONDS);
+            List<PendingOperation> retries = new ArrayList<>();
+            try {
+                return complete(operations, bulk, failure, Duration.ofNanos(nanos), retries);
+            } finally {
+                release(queued ? operations.size() : 0, retries);
+            }
+        });
+    }
+
+    /**
+     * Completes the written changes, and schedules the others to be written again.
+     *
+     * @param retries receives the changes to write again.
+     * @return {@code true} if every change was written.
+     */
+    private boolean complete(List<PendingOperation> operations, BulkResponse response, Throwable failure, Duration took,
+                             List<PendingOperation> retries) {
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            log.warn("Falha ao gravar {} alterações no Elasticsearch: {}", operations.size(), cause.getMessage());
+            boolean unavailable = isUnavailable(cause);
+            operations.forEach(operation -> retry(operation, unavailable, cause, retries));
+            return false;
+        }
+        boolean written = true;
+        BulkItemResponse[] items = response.getItems();
+        for (int i = 0; i < operations.size(); i++) {
+            PendingOperation operation = operations.get(i);
+            BulkItemResponse item = items[i];
+            if (item.isFailed()) {
+                log.warn("Falha ao gravar {} no Elasticsearch: {}", operation.key, item.getFailureMessage());
+                retry(operation, isUnavailable(item.status().getStatus()), item.getFailure().getCause(), retries);
+                written = false;
+            } else {
+                (operation.entity == null ? deletedCounter : indexedCounter).increment();
+                operation.written.complete(took);
+            }
+        }
+        return written;
+    }
+
+    private void release(int queued, List<PendingOperation> retries) {
+        lock.lock();
+        try {
+            inFlight -= queued;
+            writes--;
+            for (PendingOperation operation : retries) {
+                // A newer change for the same document supersedes the one to retry
+                PendingOperation newer = pending.putIfAbsent(operation.key, operation);
+                if (newer != null) {
+                    supersede(operation, newer);
+                }
+            }
+            notFull.signalAll();
+            writesDone.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Schedules a failed change to be written again after its backoff, unless Elasticsearch rejected it
+     * {@code max-retries} times.
+     *
+     * @param unavailable whether Elasticsearch could not be reached or was overloaded, rather than rejecting the change.
+     * @param failure     the cause of the failure.
+     * @param retries     receives the change to write again.
+     */
+    private void retry(PendingOperation operation, boolean unavailable, Throwable failure, List<PendingOperation> retries) {
+        operation.attempts++;
+        if (!unavailable && ++operation.rejections > properties.getMaxRetries()) {
+            droppedCounter.increment();
+            log.error("Desistindo de sincronizar {} com o Elasticsearch", operation.key);
+            operation.written.completeExceptionally(failure);
+            return;
+        }
+        long backoffMs = properties.getRetryBackoffMs() << Math.min(operation.attempts - 1, 30);
+        operation.notBefore = System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(Math.min(backoffMs, properties.getMaxRetryBackoffMs()));
+        retriedCounter.increment();
+        retries.add(operation);
+    }
+
+    /**
+     * @return whether the failure is Elasticsearch being unreachable, overloaded or failing, as opposed to a
+     * rejected request.
+     */
+    private static boolean isUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchStatusException) {
+                return isUnavailable(((ElasticsearchStatusException) cause).status().getStatus());
+            }
+            if (cause instanceof ResponseException) {
+                return isUnavailable(((ResponseException) cause).getResponse().getStatusLine().getStatusCode());
+            }
+            if (cause instanceof JsonProcessingException) {
+                // A document that cannot be mapped
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUnavailable(int status) {
+        return status == RestStatus.TOO_MANY_REQUESTS.getStatus() || status >= 500;
+    }
+
+    private double pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        log.debug("Flushing pending search index changes");
+        executor.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        try {
+            executor.awaitTermination(properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+            // Bulk after bulk, up to the first failed one
+            CompletableFuture<Boolean> flushed;
+            while (awaitWrites(deadline) && (flushed = startFlush()) != null
+                && flushed.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                // The next bulk once this one is answered
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            // Given up at the deadline
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Erro inesperado ao gravar no Elasticsearch", e);
+        }
+        int left = (int) pendingCount();
+        if (left > 0) {
+            log.warn("{} alterações não gravadas no Elasticsearch ao parar", left);
+        }
+    }
+
+    /**
+     * @return {@code false} if writes are still in flight at the deadline.
+     */
+    private boolean awaitWrites(long deadline) throws InterruptedException {
+        lock.lock();
+        try {
+            while (writes > 0) {
+                long nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    return false;
+                }
+                writesDone.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class PendingKey {
+
+        private final Class<?> type;
+
+        private final Long id;
+
+        private PendingKey(Class<?> type, Long id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey other = (PendingKey) o;
+            return type.equals(other.type) && Objects.equals(id, other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Objects.hashCode(id);
+        }
+
+        @Override
+        public String toString() {
+            return type.getSimpleName() + "#" + id;
+        }
+    }
+
+    private static final class PendingOperation {
+
+        private final PendingKey key;
+
+        private final Object entity;
+
+        /**
+         * Failed writes, for the backoff.
+         */
+        private int attempts;
+
+        /**
+         * Writes rejected by Elasticsearch.
+         */
+        private int rejections;
+
+        /**
+         * {@link System#nanoTime()} before which the change is not written.
+         */
+        private long notBefore = System.nanoTime();
+
+        private final CompletableFuture<Duration> written = new CompletableFuture<>();
+
+        private PendingOperation(PendingKey key, Object entity) {
+            this.key = key;
+            this.entity = entity;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package br.gov.bomdestino.cidadao.service.dto;
+
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Value of the {@link br.gov.bomdestino.cidadao.config.Constants#CIDADAO_CADASTRADO_TOPIC} records:
+ * the cidadao as it was registered, so consumers do not need to fetch it.
+ * <p>
+ * Encoded and decoded by the {@link br.gov.bomdestino.cidadao.service.CidadaoEventCodec}.
+ */
+public class CidadaoCadastradoEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String nome;
+
+    private Sexo sexo;
+
+    private String email;
+
+    private LocalDate nascimento;
+
+    private EnderecoDTO endereco;
+
+    private List<TelefoneDTO> telefones = new ArrayList<>();
+
+    private Instant cadastradoEm;
+
+    public CidadaoCadastradoEvent() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CidadaoCadastradoEvent(Cidadao cidadao) {
+        this.id = cidadao.getId();
+        this.nome = cidadao.getNome();
+        this.sexo = cidadao.getSexo();
+        this.email = cidadao.getEmail();
+        this.nascimento = cidadao.getNascimento();
+        this.endereco = cidadao.getEndereco() == null ? null : new EnderecoDTO(cidadao.getEndereco());
+        this.telefones = cidadao.getTelefones().stream().map(TelefoneDTO::new).collect(Collectors.toList());
+        this.cadastradoEm = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public Sexo getSexo() {
+        return sexo;
+    }
+
+    public void setSexo(Sexo sexo) {
+        this.sexo = sexo;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public LocalDate getNascimento() {
+        return nascimento;
+    }
+
+    public void setNascimento(LocalDate nascimento) {
+        this.nascimento = nascimento;
+    }
+
+    public EnderecoDTO getEndereco() {
+        return endereco;
+    }
+
+    public void setEndereco(EnderecoDTO endereco) {
+        this.endereco = endereco;
+    }
+
+    public List<TelefoneDTO> getTelefones() {
+        return telefones;
+    }
+
+    public void setTelefones(List<TelefoneDTO> telefones) {
+        this.telefones = telefones;
+    }
+
+    public Instant getCadastradoEm() {
+        return cadastradoEm;
+    }
+
+    public void setCadastradoEm(Instant cadastradoEm) {
+        this.cadastradoEm = cadastradoEm;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CidadaoCadastradoEvent{" +
+            "id=" + getId() +
+            ", nome='" + getNome() + "'" +
+            ", sexo='" + getSexo() + "'" +
+            ", email='" + getEmail() + "'" +
+            ", nascimento='" + getNascimento() + "'" +
+            ", endereco=" + getEndereco() +
+            ", telefones=" + getTelefones() +
+            ", cadastradoEm='" + getCadastradoEm() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,150 @@
+package br.gov.bomdestino.cidadao.service.dto;
+
+import br.gov.bomdestino.cidadao.service.CidadaoFileFormat;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and outcome of a bulk citizen import.
+ * <p>
+ * Counters are updated by the import job while clients read them, so they are thread-safe.
+ */
+public class CidadaoImportDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+
+    private final CidadaoFileFormat format;
+
+    private final Instant startedDate = Instant.now();
+
+    private volatile Instant finishedDate;
+
+    private volatile Status status = Status.RUNNING;
+
+    private volatile String message;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    private final AtomicLong rowsImported = new AtomicLong();
+
+    private final AtomicLong rowsFailed = new AtomicLong();
+
+    private final List<RowError> errors = new CopyOnWriteArrayList<>();
+
+    public CidadaoImportDTO(String id, CidadaoFileFormat format) {
+        this.id = id;
+        this.format = format;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public CidadaoFileFormat getFormat() {
+        return format;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public Instant getFinishedDate() {
+        return finishedDate;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsImported() {
+        return rowsImported.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    public void rowsImported(int count) {
+        rowsImported.addAndGet(count);
+    }
+
+    /**
+     * Records a row that could not be imported; only the first {@code maxErrors} errors are kept.
+     */
+    public void rowFailed(long line, String error, int maxErrors) {
+        rowsFailed.incrementAndGet();
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, error));
+        }
+    }
+
+    public void finish(Status status, String message) {
+        this.message = message;
+        this.finishedDate = Instant.now();
+        this.status = status;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CidadaoImportDTO{" +
+            "id='" + getId() + "'" +
+            ", format='" + getFormat() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", rowsRead=" + getRowsRead() +
+            ", rowsImported=" + getRowsImported() +
+            ", rowsFailed=" + getRowsFailed() +
+            "}";
+    }
+
+    /**
+     * A row rejected by the import, identified by the line it starts on.
+     */
+    public static class RowError implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long line;
+
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package br.gov.bomdestino.cidadao.service.dto;
+
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Snapshot of an {@link Endereco}, carried by the {@link CidadaoCadastradoEvent}.
+ */
+public class EnderecoDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String logradouro;
+
+    private String complemento;
+
+    private String bairro;
+
+    private String cidade;
+
+    private UF estado;
+
+    private String cep;
+
+    public EnderecoDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public EnderecoDTO(Endereco endereco) {
+        this.logradouro = endereco.getLogradouro();
+        this.complemento = endereco.getComplemento();
+        this.bairro = endereco.getBairro();
+        this.cidade = endereco.getCidade();
+        this.estado = endereco.getEstado();
+        this.cep = endereco.getCep();
+    }
+
+    public String getLogradouro() {
+        return logradouro;
+    }
+
+    public void setLogradouro(String logradouro) {
+        this.logradouro = logradouro;
+    }
+
+    public String getComplemento() {
+        return complemento;
+    }
+
+    public void setComplemento(String complemento) {
+        this.complemento = complemento;
+    }
+
+    public String getBairro() {
+        return bairro;
+    }
+
+    public void setBairro(String bairro) {
+        this.bairro = bairro;
+    }
+
+    public String getCidade() {
+        return cidade;
+    }
+
+    public void setCidade(String cidade) {
+        this.cidade = cidade;
+    }
+
+    public UF getEstado() {
+        return estado;
+    }
+
+    public void setEstado(UF estado) {
+        this.estado = estado;
+    }
+
+    public String getCep() {
+        return cep;
+    }
+
+    public void setCep(String cep) {
+        this.cep = cep;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EnderecoDTO)) {
+            return false;
+        }
+        EnderecoDTO other = (EnderecoDTO) o;
+        return Objects.equals(logradouro, other.logradouro) && Objects.equals(complemento, other.complemento)
+            && Objects.equals(bairro, other.bairro) && Objects.equals(cidade, other.cidade)
+            && estado == other.estado && Objects.equals(cep, other.cep);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(logradouro, complemento, bairro, cidade, estado, cep);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "EnderecoDTO{" +
+            "logradouro='" + getLogradouro() + "'" +
+            ", complemento='" + getComplemento() + "'" +
+            ", bairro='" + getBairro() + "'" +
+            ", cidade='" + getCidade() + "'" +
+            ", estado='" + getEstado() + "'" +
+            ", cep='" + getCep() + "'" +
+            "}";
+    }
+}
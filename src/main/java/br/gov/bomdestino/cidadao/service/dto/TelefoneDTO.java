@@ -0,0 +1,73 @@
+package br.gov.bomdestino.cidadao.service.dto;
+
+import br.gov.bomdestino.cidadao.domain.Telefone;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Snapshot of a {@link Telefone}, carried by the {@link CidadaoCadastradoEvent}.
+ */
+public class TelefoneDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String ddd;
+
+    private String numero;
+
+    public TelefoneDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public TelefoneDTO(String ddd, String numero) {
+        this.ddd = ddd;
+        this.numero = numero;
+    }
+
+    public TelefoneDTO(Telefone telefone) {
+        this(telefone.getDdd(), telefone.getNumero());
+    }
+
+    public String getDdd() {
+        return ddd;
+    }
+
+    public void setDdd(String ddd) {
+        this.ddd = ddd;
+    }
+
+    public String getNumero() {
+        return numero;
+    }
+
+    public void setNumero(String numero) {
+        this.numero = numero;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TelefoneDTO)) {
+            return false;
+        }
+        TelefoneDTO other = (TelefoneDTO) o;
+        return Objects.equals(ddd, other.ddd) && Objects.equals(numero, other.numero);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ddd, numero);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TelefoneDTO{" +
+            "ddd='" + getDdd() + "'" +
+            ", numero='" + getNumero() + "'" +
+            "}";
+    }
+}
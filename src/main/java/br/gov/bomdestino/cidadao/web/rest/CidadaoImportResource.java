@@ -0,0 +1,73 @@
+package br.gov.bomdestino.cidadao.web.rest;
+
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import br.gov.bomdestino.cidadao.service.CidadaoFileFormat;
+import br.gov.bomdestino.cidadao.service.CidadaoImportService;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoImportDTO;
+import br.gov.bomdestino.cidadao.web.rest.errors.BadRequestAlertException;
+
+import io.github.jhipster.web.util.ResponseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * REST controller for importing {@link br.gov.bomdestino.cidadao.domain.Cidadao} in bulk.
+ */
+@RestController
+@RequestMapping("/api")
+public class CidadaoImportResource {
+
+    private final Logger log = LoggerFactory.getLogger(CidadaoImportResource.class);
+
+    private static final String ENTITY_NAME = "cidadaoImport";
+
+    private final CidadaoImportService cidadaoImportService;
+
+    public CidadaoImportResource(CidadaoImportService cidadaoImportService) {
+        this.cidadaoImportService = cidadaoImportService;
+    }
+
+    /**
+     * {@code POST  /cidadaos/import} : Start importing the cidadaos in the request body, in the
+     * format written by {@code GET /cidadaos/export}.
+     *
+     * @param format      {@code ndjson} or {@code csv}.
+     * @param inputStream the request body.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the import job in body, or with status {@code 400 (Bad Request)} if the format is unknown.
+     * @throws IOException        if the request body could not be read, or {@code 413 (Payload Too Large)} if it is larger than {@code application.bulk-import.max-size-mb}.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/cidadaos/import")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<CidadaoImportDTO> importCidadaos(@RequestParam(defaultValue = "ndjson") String format,
+                                                           InputStream inputStream) throws IOException, URISyntaxException {
+        log.debug("REST request to import Cidadaos as {}", format);
+        CidadaoFileFormat importFormat = CidadaoFileFormat.fromValue(format)
+            .orElseThrow(() -> new BadRequestAlertException("Formato de importação inválido: " + format, ENTITY_NAME, "invalidformat"));
+        CidadaoImportDTO result = cidadaoImportService.start(inputStream, importFormat);
+        return ResponseEntity.accepted()
+            .location(new URI("/api/cidadaos/import/" + result.getId()))
+            .body(result);
+    }
+
+    /**
+     * {@code GET  /cidadaos/import/:id} : get the progress of an import.
+     *
+     * @param id the id of the import job.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the import job in body, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/cidadaos/import/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<CidadaoImportDTO> getImport(@PathVariable String id) {
+        log.debug("REST request to get Cidadao import : {}", id);
+        return ResponseUtil.wrapOrNotFound(cidadaoImportService.findOne(id));
+    }
+}
@@ -1,24 +1,39 @@
 package br.gov.bomdestino.cidadao.web.rest;
 
-import br.gov.bomdestino.cidadao.config.KafkaProperties;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
-import org.apache.kafka.clients.producer.KafkaProducer;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.service.EventStreamService;
+import br.gov.bomdestino.cidadao.web.rest.errors.BadRequestAlertException;
+import br.gov.bomdestino.cidadao.web.rest.vm.PublishMessageVM;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/cidadao-kafka")
@@ -26,65 +41,166 @@ public class CidadaoKafkaResource {
 
     private final Logger log = LoggerFactory.getLogger(CidadaoKafkaResource.class);
 
-    private final KafkaProperties kafkaProperties;
-    private KafkaProducer<String, String> producer;
-    private ExecutorService sseExecutorService = Executors.newCachedThreadPool();
+    private static final String ENTITY_NAME = "cidadaoKafka";
 
-    public CidadaoKafkaResource(KafkaProperties kafkaProperties) {
-        this.kafkaProperties = kafkaProperties;
-        this.producer = new KafkaProducer<>(kafkaProperties.getProducerProps());
+    private final EventStreamService eventStreamService;
+    private final ApplicationProperties.Publish publishProperties;
+    private final ObjectReader messageReader;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    public CidadaoKafkaResource(KafkaTemplate<String, byte[]> kafkaTemplate, EventStreamService eventStreamService,
+                                ApplicationProperties applicationProperties, ObjectMapper objectMapper) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.eventStreamService = eventStreamService;
+        this.publishProperties = applicationProperties.getPublish();
+        this.messageReader = objectMapper.readerFor(PublishMessageVM.class);
     }
 
     @PostMapping("/publish/{topic}")
     public PublishResult publish(@PathVariable String topic, @RequestParam String message, @RequestParam(required = false) String key) throws ExecutionException, InterruptedException {
         log.debug("REST request to send to Kafka topic {} with key {} the message : {}", topic, key, message);
-        RecordMetadata metadata = producer.send(new ProducerRecord<>(topic, key, message)).get();
-        return new PublishResult(metadata.topic(), metadata.partition(), metadata.offset(), Instant.ofEpochMilli(metadata.timestamp()));
+        SendResult<String, byte[]> result = kafkaTemplate.send(new ProducerRecord<>(topic, key, message.getBytes(StandardCharsets.UTF_8))).get();
+        return PublishResult.of(result.getRecordMetadata());
     }
 
-    @GetMapping("/consume")
-    public SseEmitter consume(@RequestParam("topic") List<String> topics, @RequestParam Map<String, String> consumerParams) {
-        log.debug("REST request to consume records from Kafka topics {}", topics);
-        Map<String, Object> consumerProps = kafkaProperties.getConsumerProps();
-        consumerProps.putAll(consumerParams);
-        consumerProps.remove("topic");
+    /**
+     * {@code POST  /publish/:topic/batch} : publishes many messages with one request.
+     * <p>
+     * The body is a JSON array, or NDJSON, of {@code {"key": ..., "message": ...}} objects. Every message
+     * is handed to the producer before waiting for any acknowledgement, so they are batched (and
+     * compressed) according to the producer settings.
+     *
+     * @param topic       the topic to publish to.
+     * @param inputStream the request body.
+     * @return the result of each message, in the order of the body: its partition and offset, or the error.
+     * @throws IOException if the request body could not be read.
+     */
+    @PostMapping(value = "/publish/{topic}/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, Constants.APPLICATION_NDJSON_VALUE})
+    public List<PublishResult> publishBatch(@PathVariable String topic, InputStream inputStream) throws IOException {
+        List<PublishMessageVM> messages = readMessages(inputStream);
+        log.debug("REST request to send to Kafka topic {} a batch of {} messages", topic, messages.size());
 
-        SseEmitter emitter = new SseEmitter(0L);
-        sseExecutorService.execute(() -> {
-            KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
-            emitter.onCompletion(consumer::close);
-            consumer.subscribe(topics);
-            boolean exitLoop = false;
-            while(!exitLoop) {
-                try {
-                    ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(5));
-                    for (ConsumerRecord<String, String> record : records) {
-                        emitter.send(record.value());
-                    }
-                    emitter.send(SseEmitter.event().comment(""));
-                } catch (Exception ex) {
-                    log.trace("Complete with error {}", ex.getMessage(), ex);
-                    emitter.completeWithError(ex);
-                    exitLoop = true;
+        List<Future<SendResult<String, byte[]>>> futures = new ArrayList<>(messages.size());
+        for (PublishMessageVM message : messages) {
+            try {
+                futures.add(kafkaTemplate.send(new ProducerRecord<>(topic, message.getKey(), message.getMessage().getBytes(StandardCharsets.UTF_8))));
+            } catch (KafkaException e) {
+                CompletableFuture<SendResult<String, byte[]>> failure = new CompletableFuture<>();
+                failure.completeExceptionally(e);
+                futures.add(failure);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(publishProperties.getSendTimeoutMs());
+        List<PublishResult> results = new ArrayList<>(futures.size());
+        for (Future<SendResult<String, byte[]>> future : futures) {
+            try {
+                results.add(PublishResult.of(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS).getRecordMetadata()));
+            } catch (ExecutionException e) {
+                results.add(PublishResult.failed(e.getCause().getMessage()));
+            } catch (TimeoutException e) {
+                results.add(PublishResult.failed("Timed out waiting for the acknowledgement"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(PublishResult.failed("Interrupted"));
+            }
+        }
+        return results;
+    }
+
+    private List<PublishMessageVM> readMessages(InputStream inputStream) throws IOException {
+        List<PublishMessageVM> messages = new ArrayList<>();
+        try (MappingIterator<PublishMessageVM> iterator = messageReader.readValues(inputStream)) {
+            while (iterator.hasNextValue()) {
+                if (messages.size() == publishProperties.getMaxBatchSize()) {
+                    throw new BadRequestAlertException("Lote com mais de " + publishProperties.getMaxBatchSize() + " mensagens",
+                        ENTITY_NAME, "batchtoolarge");
+                }
+                PublishMessageVM message = iterator.nextValue();
+                if (message.getMessage() == null) {
+                    throw new BadRequestAlertException("Mensagem " + messages.size() + " sem o campo message", ENTITY_NAME, "messagenull");
                 }
+                messages.add(message);
             }
-            consumer.close();
-            emitter.complete();
-        });
+        } catch (JsonProcessingException e) {
+            throw new BadRequestAlertException("Lote inválido: " + e.getOriginalMessage(), ENTITY_NAME, "invalidbatch");
+        }
+        return messages;
+    }
+
+    /**
+     * {@code GET  /consume} : streams the records of the given topics as server-sent events.
+     * <p>
+     * Clients of the same topics share one consumer, which starts from {@code application.event-stream.auto-offset-reset}.
+     * The binary {@code cidadaoCadastrado} events are sent as JSON, the records of the other topics as UTF-8 text.
+     *
+     * @param topics the topics to read.
+     * @return the emitter, or status {@code 503 (Service Unavailable)} if too many streams are open.
+     */
+    @GetMapping("/consume")
+    public SseEmitter consume(@RequestParam("topic") List<String> topics) {
+        log.debug("REST request to consume records from Kafka topics {}", topics);
+        SseEmitter emitter = new SseEmitter(0L);
+        EventStreamService.Subscription subscription = eventStreamService.subscribe(topics, new SseSubscriber(emitter))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many event streams open"));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
         return emitter;
     }
 
+    private static class SseSubscriber implements EventStreamService.Subscriber {
+
+        private final SseEmitter emitter;
+
+        private SseSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onRecords(List<String> values) throws IOException {
+            for (String value : values) {
+                emitter.send(value);
+            }
+        }
+
+        @Override
+        public void onHeartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment(""));
+        }
+
+        @Override
+        public void onClose(Exception cause) {
+            if (cause == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(cause);
+            }
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private static class PublishResult {
         public final String topic;
-        public final int partition;
-        public final long offset;
+        public final Integer partition;
+        public final Long offset;
         public final Instant timestamp;
+        public final String error;
 
-        private PublishResult(String topic, int partition, long offset, Instant timestamp) {
+        private PublishResult(String topic, Integer partition, Long offset, Instant timestamp, String error) {
             this.topic = topic;
             this.partition = partition;
             this.offset = offset;
             this.timestamp = timestamp;
+            this.error = error;
+        }
+
+        private static PublishResult of(RecordMetadata metadata) {
+            return new PublishResult(metadata.topic(), metadata.partition(), metadata.offset(), Instant.ofEpochMilli(metadata.timestamp()), null);
+        }
+
+        private static PublishResult failed(String error) {
+            return new PublishResult(null, null, null, null, error);
         }
     }
 }
@@ -1,45 +1,47 @@
 package br.gov.bomdestino.cidadao.web.rest;
 
-import br.gov.bomdestino.cidadao.config.KafkaProperties;
+import br.gov.bomdestino.cidadao.config.Constants;
 import br.gov.bomdestino.cidadao.domain.Cidadao;
 import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
-import br.gov.bomdestino.cidadao.repository.search.CidadaoSearchRepository;
+import br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplate;
+import br.gov.bomdestino.cidadao.repository.search.CidadaoSearchQueries;
+import br.gov.bomdestino.cidadao.service.CidadaoEventCodec;
+import br.gov.bomdestino.cidadao.service.CidadaoExportService;
+import br.gov.bomdestino.cidadao.service.CidadaoFileFormat;
+import br.gov.bomdestino.cidadao.service.OutboxService;
+import br.gov.bomdestino.cidadao.service.PhaseMetrics;
+import br.gov.bomdestino.cidadao.service.SearchIndexingService;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
 import br.gov.bomdestino.cidadao.web.rest.errors.BadRequestAlertException;
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
-import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.clients.producer.RecordMetadata;
-import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.WildcardQueryBuilder;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
-import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -49,41 +51,65 @@ public class CidadaoResource {
     private final Logger log = LoggerFactory.getLogger(CidadaoResource.class);
 
     private static final String ENTITY_NAME = "Cidadao";
-    private static final String TOPIC_NAME = "cidadaoCadastrado";
+
+    private static final String EXPAND_ENDERECO = "endereco";
+
+    private static final String EXPAND_TELEFONES = "telefones";
 
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final CidadaoRepository cidadaoRepository;
-    private final CidadaoSearchRepository cidadaoSearchRepository;
-    private RestHighLevelClient esClient;
+    private final AsyncSearchTemplate asyncSearchTemplate;
+
+    private final SearchIndexingService searchIndexingService;
+
+    private final OutboxService outboxService;
+
+    private final CidadaoEventCodec cidadaoEventCodec;
+
+    private final CidadaoExportService cidadaoExportService;
 
-    private final KafkaProperties kafkaProperties;
-    private KafkaProducer<String, String> producer;
+    private final PhaseMetrics.Operation createPhases;
 
-    public CidadaoResource(CidadaoRepository cidadaoRepository, CidadaoSearchRepository cidadaoSearchRepository, KafkaProperties kafkaProperties, RestHighLevelClient esClient) {
+    public CidadaoResource(CidadaoRepository cidadaoRepository, AsyncSearchTemplate asyncSearchTemplate, SearchIndexingService searchIndexingService, OutboxService outboxService, CidadaoEventCodec cidadaoEventCodec, CidadaoExportService cidadaoExportService, PhaseMetrics phaseMetrics) {
         this.cidadaoRepository = cidadaoRepository;
-        this.cidadaoSearchRepository = cidadaoSearchRepository;
-        this.kafkaProperties = kafkaProperties;
-        this.producer = new KafkaProducer<>(kafkaProperties.getProducerProps());
-        this.esClient = esClient;
+        this.asyncSearchTemplate = asyncSearchTemplate;
+        this.searchIndexingService = searchIndexingService;
+        this.outboxService = outboxService;
+        this.cidadaoEventCodec = cidadaoEventCodec;
+        this.cidadaoExportService = cidadaoExportService;
+        this.createPhases = phaseMetrics.operation("createCidadao", "/api/cidadaos");
+    }
+
+    /**
+     * Times the bean validation of the cidadão received by {@link #createCidadao}.
+     */
+    @InitBinder("cidadao")
+    public void timeCreateValidation(WebDataBinder binder, HttpServletRequest request) {
+        if ("POST".equals(request.getMethod())) {
+            binder.replaceValidators(binder.getValidators().stream()
+                .map(validator -> createPhases.timed("validation", validator))
+                .toArray(Validator[]::new));
+        }
     }
 
     @PostMapping("/cidadaos")
-    public ResponseEntity<Cidadao> createCidadao(@Valid @RequestBody Cidadao cidadao) throws URISyntaxException, ExecutionException, InterruptedException {
+    public ResponseEntity<Cidadao> createCidadao(@Valid @RequestBody Cidadao cidadao) throws URISyntaxException {
         log.debug("Requisição REST para salvar um Cidadão : {}", cidadao);
         if (cidadao.getId() != null) {
             throw new BadRequestAlertException("Um novo cidadão não pode ter um ID vinculado", ENTITY_NAME, "idexists");
         }
-        Cidadao result = cidadaoRepository.save(cidadao);
-        cidadaoSearchRepository.save(result);
+        createPhases.timeCommit("commit");
+        Cidadao result = createPhases.time("save", () -> cidadaoRepository.save(cidadao));
+        // A fase "index" é a requisição bulk que gravou o cidadão no Elasticsearch: em modo assíncrono, depois do
+        // commit e em geral da resposta, junto com as outras alterações do bulk
+        searchIndexingService.index(Cidadao.class, result.getId(), result)
+            .thenAccept(took -> createPhases.record("index", took.toNanos()));
 
-        RecordMetadata metadata = producer.send(new ProducerRecord<>(TOPIC_NAME, cidadao.getId().toString())).get();
-        log.debug("Mensagem enviada para o tópico {}, " +
-            "partition {}, " +
-            "offset {}, " +
-            "em {}",
-            metadata.topic(), metadata.partition(), metadata.offset(), Instant.ofEpochMilli(metadata.timestamp()));
+        // O evento, com os dados do cidadão, é gravado na mesma transação e publicado no Kafka pelo OutboxRelay
+        byte[] event = createPhases.time("serialization", () -> cidadaoEventCodec.encode(new CidadaoCadastradoEvent(result)));
+        createPhases.run("outbox", () -> outboxService.enqueue(Constants.CIDADAO_CADASTRADO_TOPIC, result.getId().toString(), event));
 
         return ResponseEntity.created(new URI("/api/cidadaos/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
@@ -97,32 +123,114 @@ public class CidadaoResource {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
         Cidadao result = cidadaoRepository.save(cidadao);
-        cidadaoSearchRepository.save(result);
+        searchIndexingService.index(Cidadao.class, result.getId(), result);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, cidadao.getId().toString()))
             .body(result);
     }
 
+    /**
+     * {@code GET  /cidadaos} : get a page of cidadaos.
+     *
+     * @param pageable the pagination information.
+     * @param expand   the relationships to include: {@code endereco} (always included) and {@code telefones}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of cidadaos in body.
+     */
     @GetMapping("/cidadaos")
-    public ResponseEntity<List<Cidadao>> getAllCidadaos(Pageable pageable) {
+    public ResponseEntity<List<Cidadao>> getAllCidadaos(Pageable pageable, @RequestParam(required = false) List<String> expand) {
         log.debug("Requisição REST para recuperar uma página de Cidadãos");
+        boolean telefones = isTelefonesExpanded(expand);
         Page<Cidadao> page = cidadaoRepository.findAll(pageable);
+        if (telefones && page.hasContent()) {
+            // Inicializa os telefones da página inteira em uma única consulta
+            cidadaoRepository.fetchTelefones(page.getContent());
+        }
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /cidadaos/export} : stream every cidadao, ordered by id.
+     *
+     * @param format    {@code ndjson} (one JSON object per line) or {@code csv}.
+     * @param endereco  whether to include the endereco of each cidadao.
+     * @param telefones whether to include the telefones of each cidadao.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the export as body, written while it is read from the database.
+     */
+    @GetMapping("/cidadaos/export")
+    public ResponseEntity<StreamingResponseBody> exportCidadaos(@RequestParam(defaultValue = "ndjson") String format,
+                                                                @RequestParam(defaultValue = "false") boolean endereco,
+                                                                @RequestParam(defaultValue = "false") boolean telefones) {
+        log.debug("Requisição REST para exportar os Cidadãos em {}", format);
+        CidadaoFileFormat exportFormat = CidadaoFileFormat.fromValue(format)
+            .orElseThrow(() -> new BadRequestAlertException("Formato de exportação inválido: " + format, ENTITY_NAME, "invalidformat"));
+        MediaType mediaType = exportFormat == CidadaoFileFormat.CSV
+            ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : new MediaType(MediaType.valueOf(Constants.APPLICATION_NDJSON_VALUE), StandardCharsets.UTF_8);
+        StreamingResponseBody body = outputStream -> cidadaoExportService.export(outputStream, exportFormat, endereco, telefones);
+        return ResponseEntity.ok()
+            .contentType(mediaType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                .filename("cidadaos." + exportFormat.name().toLowerCase(Locale.ROOT)).build().toString())
+            .body(body);
+    }
+
     @GetMapping("/_search/cidadaos")
-    public ResponseEntity<List<Cidadao>> searchCidadaos(@RequestParam String query, Pageable pageable) throws IOException {
+    public CompletableFuture<ResponseEntity<List<Cidadao>>> searchCidadaos(@RequestParam String query, Pageable pageable) {
         log.debug("Requisição REST para pesquisar Cidadãos no elasticsearch. Query: {}", query);
-        Page<Cidadao> page = cidadaoSearchRepository.search(queryStringQuery("*" + query + "*"), pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        // A resposta é montada na thread de I/O do Elasticsearch, fora da requisição
+        UriComponentsBuilder uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+        return asyncSearchTemplate.search(CidadaoSearchQueries.byNomeOrEmail(query), pageable, Cidadao.class)
+            .thenApply(page -> {
+                HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder, page);
+                return ResponseEntity.ok().headers(headers).body(page.getContent());
+            });
+    }
+
+    /**
+     * {@code GET  /cidadaos/lookup} : get the cidadaos with the given email, cep or telefone.
+     * <p>
+     * The results are served from the query cache until one of the cidadaos, enderecos or telefones changes.
+     *
+     * @param email  the email of the cidadaos.
+     * @param cep    the cep of the endereco of the cidadaos.
+     * @param ddd    the ddd of a telefone of the cidadaos, along with {@code numero}.
+     * @param numero the numero of a telefone of the cidadaos, along with {@code ddd}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the cidadaos in body, or with status
+     * {@code 400 (Bad Request)} if not exactly one of email, cep or ddd and numero is given.
+     */
+    @GetMapping("/cidadaos/lookup")
+    @Transactional(readOnly = true)
+    public List<Cidadao> lookupCidadaos(@RequestParam(required = false) String email, @RequestParam(required = false) String cep,
+                                        @RequestParam(required = false) String ddd, @RequestParam(required = false) String numero) {
+        log.debug("Requisição REST para consultar Cidadãos por email : {}, cep : {}, telefone : {} {}", email, cep, ddd, numero);
+        boolean telefone = ddd != null && numero != null;
+        int criteria = (email != null ? 1 : 0) + (cep != null ? 1 : 0) + (ddd != null || numero != null ? 1 : 0);
+        if (criteria != 1 || (ddd != null || numero != null) && !telefone) {
+            throw new BadRequestAlertException("Informe apenas um critério: email, cep ou ddd e numero", ENTITY_NAME, "invalidlookup");
+        }
+        if (email != null) {
+            return cidadaoRepository.findByEmail(email);
+        }
+        if (cep != null) {
+            return cidadaoRepository.findByEnderecoCep(cep);
+        }
+        return cidadaoRepository.findByTelefone(ddd, numero);
     }
 
+    /**
+     * {@code GET  /cidadaos/:id} : get the cidadao.
+     *
+     * @param id     the id of the cidadao to retrieve.
+     * @param expand the relationships to include: {@code endereco} (always included) and {@code telefones}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the cidadao in body, or with status {@code 404 (Not Found)}.
+     */
     @GetMapping("/cidadaos/{id}")
-    public ResponseEntity<Cidadao> getCidadao(@PathVariable Long id) {
+    public ResponseEntity<Cidadao> getCidadao(@PathVariable Long id, @RequestParam(required = false) List<String> expand) {
         log.debug("Requisição REST para buscar um Cidadão : {}", id);
-        Optional<Cidadao> cidadao = cidadaoRepository.findById(id);
+        Optional<Cidadao> cidadao = isTelefonesExpanded(expand)
+            ? cidadaoRepository.findOneWithTelefonesById(id)
+            : cidadaoRepository.findById(id);
         return ResponseUtil.wrapOrNotFound(cidadao);
     }
 
@@ -130,8 +238,22 @@ public class CidadaoResource {
     public ResponseEntity<Void> deleteCidadao(@PathVariable Long id) {
         log.debug("Requisição REST para excluir um Cidadão : {}", id);
         cidadaoRepository.deleteById(id);
-        cidadaoSearchRepository.deleteById(id);
+        searchIndexingService.delete(Cidadao.class, id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString())).build();
     }
 
+    private static boolean isTelefonesExpanded(List<String> expand) {
+        boolean telefones = false;
+        if (expand != null) {
+            for (String relationship : expand) {
+                if (EXPAND_TELEFONES.equals(relationship)) {
+                    telefones = true;
+                } else if (!EXPAND_ENDERECO.equals(relationship)) {
+                    throw new BadRequestAlertException("Relacionamento inválido: " + relationship, ENTITY_NAME, "invalidexpand");
+                }
+            }
+        }
+        return telefones;
+    }
+
 }
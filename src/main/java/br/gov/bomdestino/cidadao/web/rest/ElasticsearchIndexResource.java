@@ -0,0 +1,55 @@
+package br.gov.bomdestino.cidadao.web.rest;
+
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import br.gov.bomdestino.cidadao.service.ElasticsearchIndexService;
+import br.gov.bomdestino.cidadao.web.rest.errors.BadRequestAlertException;
+
+import io.github.jhipster.web.util.HeaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for maintaining the Elasticsearch indices.
+ */
+@RestController
+@RequestMapping("/api")
+public class ElasticsearchIndexResource {
+
+    private final Logger log = LoggerFactory.getLogger(ElasticsearchIndexResource.class);
+
+    private static final String ENTITY_NAME = "elasticsearchIndex";
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final ElasticsearchIndexService elasticsearchIndexService;
+
+    public ElasticsearchIndexResource(ElasticsearchIndexService elasticsearchIndexService) {
+        this.elasticsearchIndexService = elasticsearchIndexService;
+    }
+
+    /**
+     * {@code POST  /elasticsearch/index/cidadaos} : Rebuild the cidadao index with the current mapping,
+     * swapping the {@code cidadao} alias once the copy is done.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)}, or with status {@code 400 (Bad Request)} if a migration is already running.
+     */
+    @PostMapping("/elasticsearch/index/cidadaos")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> reindexCidadaos() {
+        log.debug("REST request to reindex Cidadaos");
+        if (elasticsearchIndexService.isRunning()) {
+            throw new BadRequestAlertException("A reindexação de cidadãos já está em andamento", ENTITY_NAME, "reindexrunning");
+        }
+        elasticsearchIndexService.reindexCidadaos();
+        return ResponseEntity.accepted()
+            .headers(HeaderUtil.createAlert(applicationName, "Reindexação de cidadãos iniciada", "cidadao"))
+            .build();
+    }
+}
@@ -1,25 +1,34 @@
 package br.gov.bomdestino.cidadao.web.rest;
 
+import br.gov.bomdestino.cidadao.config.Constants;
 import br.gov.bomdestino.cidadao.domain.Endereco;
 import br.gov.bomdestino.cidadao.repository.EnderecoRepository;
-import br.gov.bomdestino.cidadao.repository.search.EnderecoSearchRepository;
+import br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplate;
+import br.gov.bomdestino.cidadao.service.EntityStreamService;
+import br.gov.bomdestino.cidadao.service.SearchIndexingService;
 import br.gov.bomdestino.cidadao.web.rest.errors.BadRequestAlertException;
 
 import io.github.jhipster.web.util.HeaderUtil;
+import io.github.jhipster.web.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletableFuture;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -40,11 +49,17 @@ public class EnderecoResource {
 
     private final EnderecoRepository enderecoRepository;
 
-    private final EnderecoSearchRepository enderecoSearchRepository;
+    private final AsyncSearchTemplate asyncSearchTemplate;
 
-    public EnderecoResource(EnderecoRepository enderecoRepository, EnderecoSearchRepository enderecoSearchRepository) {
+    private final SearchIndexingService searchIndexingService;
+
+    private final EntityStreamService entityStreamService;
+
+    public EnderecoResource(EnderecoRepository enderecoRepository, AsyncSearchTemplate asyncSearchTemplate, SearchIndexingService searchIndexingService, EntityStreamService entityStreamService) {
         this.enderecoRepository = enderecoRepository;
-        this.enderecoSearchRepository = enderecoSearchRepository;
+        this.asyncSearchTemplate = asyncSearchTemplate;
+        this.searchIndexingService = searchIndexingService;
+        this.entityStreamService = entityStreamService;
     }
 
     /**
@@ -61,7 +76,7 @@ public class EnderecoResource {
             throw new BadRequestAlertException("A new endereco cannot already have an ID", ENTITY_NAME, "idexists");
         }
         Endereco result = enderecoRepository.save(endereco);
-        enderecoSearchRepository.save(result);
+        searchIndexingService.index(Endereco.class, result.getId(), result);
         return ResponseEntity.created(new URI("/api/enderecos/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
             .body(result);
@@ -83,21 +98,41 @@ public class EnderecoResource {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
         Endereco result = enderecoRepository.save(endereco);
-        enderecoSearchRepository.save(result);
+        searchIndexingService.index(Endereco.class, result.getId(), result);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, endereco.getId().toString()))
             .body(result);
     }
 
     /**
-     * {@code GET  /enderecos} : get all the enderecos.
+     * {@code GET  /enderecos} : get a page of enderecos.
+     * <p>
+     * The page size is capped by {@code spring.data.web.pageable.max-page-size}.
      *
+     * @param pageable the pagination information.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of enderecos in body.
      */
     @GetMapping("/enderecos")
-    public List<Endereco> getAllEnderecos() {
-        log.debug("REST request to get all Enderecos");
-        return enderecoRepository.findAll();
+    public ResponseEntity<List<Endereco>> getAllEnderecos(Pageable pageable) {
+        log.debug("REST request to get a page of Enderecos");
+        Page<Endereco> page = enderecoRepository.findAll(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /enderecos?stream=true} : stream all the enderecos, ordered by id, as NDJSON.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the enderecos as body, written while they are read from the database.
+     */
+    @GetMapping(value = "/enderecos", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllEnderecos() {
+        log.debug("REST request to stream all Enderecos");
+        StreamingResponseBody body = outputStream ->
+            entityStreamService.streamNdjson(outputStream, enderecoRepository::findByIdGreaterThanOrderById, Endereco::getId);
+        return ResponseEntity.ok()
+            .contentType(MediaType.valueOf(Constants.APPLICATION_NDJSON_VALUE))
+            .body(body);
     }
 
     /**
@@ -123,7 +158,7 @@ public class EnderecoResource {
     public ResponseEntity<Void> deleteEndereco(@PathVariable Long id) {
         log.debug("REST request to delete Endereco : {}", id);
         enderecoRepository.deleteById(id);
-        enderecoSearchRepository.deleteById(id);
+        searchIndexingService.delete(Endereco.class, id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString())).build();
     }
 
@@ -132,13 +167,11 @@ public class EnderecoResource {
      * to the query.
      *
      * @param query the query of the endereco search.
-     * @return the result of the search.
+     * @return a future completed with the result of the search.
      */
     @GetMapping("/_search/enderecos")
-    public List<Endereco> searchEnderecos(@RequestParam String query) {
+    public CompletableFuture<List<Endereco>> searchEnderecos(@RequestParam String query) {
         log.debug("REST request to search Enderecos for query {}", query);
-        return StreamSupport
-            .stream(enderecoSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-        .collect(Collectors.toList());
+        return asyncSearchTemplate.searchAll(queryStringQuery(query), Endereco.class);
     }
 }
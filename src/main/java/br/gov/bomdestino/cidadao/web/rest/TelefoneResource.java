@@ -1,26 +1,35 @@
 package br.gov.bomdestino.cidadao.web.rest;
 
+import br.gov.bomdestino.cidadao.config.Constants;
 import br.gov.bomdestino.cidadao.domain.Telefone;
 import br.gov.bomdestino.cidadao.repository.TelefoneRepository;
-import br.gov.bomdestino.cidadao.repository.search.TelefoneSearchRepository;
+import br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplate;
+import br.gov.bomdestino.cidadao.service.EntityStreamService;
+import br.gov.bomdestino.cidadao.service.SearchIndexingService;
 import br.gov.bomdestino.cidadao.web.rest.errors.BadRequestAlertException;
 
 import io.github.jhipster.web.util.HeaderUtil;
+import io.github.jhipster.web.util.PaginationUtil;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletableFuture;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -41,11 +50,17 @@ public class TelefoneResource {
 
     private final TelefoneRepository telefoneRepository;
 
-    private final TelefoneSearchRepository telefoneSearchRepository;
+    private final AsyncSearchTemplate asyncSearchTemplate;
 
-    public TelefoneResource(TelefoneRepository telefoneRepository, TelefoneSearchRepository telefoneSearchRepository) {
+    private final SearchIndexingService searchIndexingService;
+
+    private final EntityStreamService entityStreamService;
+
+    public TelefoneResource(TelefoneRepository telefoneRepository, AsyncSearchTemplate asyncSearchTemplate, SearchIndexingService searchIndexingService, EntityStreamService entityStreamService) {
         this.telefoneRepository = telefoneRepository;
-        this.telefoneSearchRepository = telefoneSearchRepository;
+        this.asyncSearchTemplate = asyncSearchTemplate;
+        this.searchIndexingService = searchIndexingService;
+        this.entityStreamService = entityStreamService;
     }
 
     /**
@@ -62,7 +77,7 @@ public class TelefoneResource {
             throw new BadRequestAlertException("A new telefone cannot already have an ID", ENTITY_NAME, "idexists");
         }
         Telefone result = telefoneRepository.save(telefone);
-        telefoneSearchRepository.save(result);
+        searchIndexingService.index(Telefone.class, result.getId(), result);
         return ResponseEntity.created(new URI("/api/telefones/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
             .body(result);
@@ -84,21 +99,41 @@ public class TelefoneResource {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
         Telefone result = telefoneRepository.save(telefone);
-        telefoneSearchRepository.save(result);
+        searchIndexingService.index(Telefone.class, result.getId(), result);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, telefone.getId().toString()))
             .body(result);
     }
 
     /**
-     * {@code GET  /telefones} : get all the telefones.
+     * {@code GET  /telefones} : get a page of telefones.
+     * <p>
+     * The page size is capped by {@code spring.data.web.pageable.max-page-size}.
      *
+     * @param pageable the pagination information.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of telefones in body.
      */
     @GetMapping("/telefones")
-    public List<Telefone> getAllTelefones() {
-        log.debug("REST request to get all Telefones");
-        return telefoneRepository.findAll();
+    public ResponseEntity<List<Telefone>> getAllTelefones(Pageable pageable) {
+        log.debug("REST request to get a page of Telefones");
+        Page<Telefone> page = telefoneRepository.findAll(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /telefones?stream=true} : stream all the telefones, ordered by id, as NDJSON.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the telefones as body, written while they are read from the database.
+     */
+    @GetMapping(value = "/telefones", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllTelefones() {
+        log.debug("REST request to stream all Telefones");
+        StreamingResponseBody body = outputStream ->
+            entityStreamService.streamNdjson(outputStream, telefoneRepository::findByIdGreaterThanOrderById, Telefone::getId);
+        return ResponseEntity.ok()
+            .contentType(MediaType.valueOf(Constants.APPLICATION_NDJSON_VALUE))
+            .body(body);
     }
 
     /**
@@ -124,7 +159,7 @@ public class TelefoneResource {
     public ResponseEntity<Void> deleteTelefone(@PathVariable Long id) {
         log.debug("REST request to delete Telefone : {}", id);
         telefoneRepository.deleteById(id);
-        telefoneSearchRepository.deleteById(id);
+        searchIndexingService.delete(Telefone.class, id);
         return ResponseEntity.noContent().headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString())).build();
     }
 
@@ -133,13 +168,11 @@ public class TelefoneResource {
      * to the query.
      *
      * @param query the query of the telefone search.
-     * @return the result of the search.
+     * @return a future completed with the result of the search.
      */
     @GetMapping("/_search/telefones")
-    public List<Telefone> searchTelefones(@RequestParam String query) {
+    public CompletableFuture<List<Telefone>> searchTelefones(@RequestParam String query) {
         log.debug("REST request to search Telefones for query {}", query);
-        return StreamSupport
-            .stream(telefoneSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-        .collect(Collectors.toList());
+        return asyncSearchTemplate.searchAll(queryStringQuery(query), Telefone.class);
     }
 }
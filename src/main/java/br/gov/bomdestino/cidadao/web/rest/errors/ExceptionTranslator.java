@@ -1,5 +1,6 @@
 package br.gov.bomdestino.cidadao.web.rest.errors;
 
+import br.gov.bomdestino.cidadao.service.CidadaoImportTooLargeException;
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.web.util.HeaderUtil;
 
@@ -121,6 +122,16 @@ public class ExceptionTranslator implements ProblemHandling, SecurityAdviceTrait
         return create(ex, problem, request);
     }
 
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleImportTooLarge(CidadaoImportTooLargeException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(Status.REQUEST_ENTITY_TOO_LARGE)
+            .withDetail(ex.getMessage())
+            .with(MESSAGE_KEY, ErrorConstants.ERR_IMPORT_TOO_LARGE)
+            .build();
+        return create(ex, problem, request);
+    }
+
     @Override
     public ProblemBuilder prepare(final Throwable throwable, final StatusType status, final URI type) {
 
@@ -0,0 +1,35 @@
+package br.gov.bomdestino.cidadao.web.rest.vm;
+
+/**
+ * View Model of one message of a batch published to Kafka.
+ */
+public class PublishMessageVM {
+
+    private String key;
+
+    private String message;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "PublishMessageVM{" +
+            "key='" + key + '\'' +
+            ", message='" + message + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,128 @@
+package br.gov.bomdestino.cidadao.aop.logging;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.service.TestEchoService;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link LoggingAspect} class.
+ */
+public class LoggingAspectTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private Logger logger;
+
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getAopLogging().setSampleRate(1);
+        meterRegistry = new SimpleMeterRegistry();
+        logger = (Logger) LoggerFactory.getLogger(TestEchoService.class);
+        logger.setLevel(Level.DEBUG);
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void destroy() {
+        logger.detachAppender(appender);
+        logger.setLevel(null);
+    }
+
+    @Test
+    public void testTimesTheSampledCalls() {
+        TestEchoService service = advise(new LoggingAspect(new StandardEnvironment(), applicationProperties, meterRegistry));
+
+        service.echo("a");
+        service.echo("b");
+
+        assertThat(meterRegistry.get("method.sampled").tag("class", "TestEchoService").tag("method", "echo").timer().count())
+            .isEqualTo(2);
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage)
+            .contains("Enter: echo() with argument[s] = [a]", "Exit: echo() with result = a");
+    }
+
+    @Test
+    public void testTruncatesAndRateLimitsTheArguments() {
+        applicationProperties.getAopLogging().setMaxArgumentLength(5);
+        applicationProperties.getAopLogging().setArgumentLogsPerSecond(1);
+        TestEchoService service = advise(new LoggingAspect(new StandardEnvironment(), applicationProperties, meterRegistry));
+
+        service.echo("abcdefghij");
+        service.echo("abcdefghij");
+
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage)
+            .startsWith("Enter: echo() with argument[s] = [abcd...");
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage)
+            .contains("Enter: echo() with argument[s] = [omitted]");
+    }
+
+    @Test
+    public void testRendersTheArgumentsUpToTheMaximumLength() {
+        AtomicInteger rendered = new AtomicInteger();
+        List<Object> elements = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            elements.add(new Object() {
+                @Override
+                public String toString() {
+                    rendered.incrementAndGet();
+                    return "elemento";
+                }
+            });
+        }
+
+        assertThat(new LoggingAspect.Truncated(new Object[] {"a", elements}, 30).toString())
+            .isEqualTo("[a, [elemento, elemento, eleme...");
+        assertThat(rendered).hasValue(3);
+        assertThat(new LoggingAspect.Truncated(new Object[] {new int[] {1, 2}, Arrays.asList("b", null)}, 30).toString())
+            .isEqualTo("[[1, 2], [b, null]]");
+        assertThat(new LoggingAspect.Truncated("abcdef", 6).toString()).isEqualTo("abcdef");
+        assertThat(new LoggingAspect.Truncated("abcdefg", 6).toString()).isEqualTo("abcdef...");
+    }
+
+    @Test
+    public void testSkipsTheDisabledPackages() {
+        LoggingAspect loggingAspect = new LoggingAspect(new StandardEnvironment(), applicationProperties, meterRegistry);
+        TestEchoService service = advise(loggingAspect);
+        service.echo("a");
+
+        loggingAspect.setPackageEnabled(TestEchoService.class.getPackage().getName(), false);
+        appender.list.clear();
+        service.echo("b");
+
+        assertThat(appender.list).isEmpty();
+        assertThat(meterRegistry.get("method.sampled").timer().count()).isEqualTo(1);
+        assertThat(loggingAspect.getDisabledPackages()).containsExactly(TestEchoService.class.getPackage().getName());
+    }
+
+    private static TestEchoService advise(LoggingAspect loggingAspect) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new TestEchoService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(loggingAspect);
+        return proxyFactory.getProxy();
+    }
+}
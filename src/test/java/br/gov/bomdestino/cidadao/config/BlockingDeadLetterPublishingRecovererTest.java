@@ -0,0 +1,54 @@
+package br.gov.bomdestino.cidadao.config;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link BlockingDeadLetterPublishingRecoverer} class.
+ */
+public class BlockingDeadLetterPublishingRecovererTest {
+
+    private final ConsumerRecord<String, byte[]> record = new ConsumerRecord<>("cidadaoCadastrado", 0, 0, "1", new byte[]{1});
+
+    @Test
+    public void testWaitsForTheDeadLetterRecord() {
+        MockProducer<String, byte[]> producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+
+        recoverer(producer).accept(record, new IllegalStateException("poison"));
+
+        assertThat(producer.history()).hasSize(1);
+        assertThat(producer.history().get(0).topic()).isEqualTo("cidadaoCadastrado.DLT");
+    }
+
+    @Test
+    public void testFailsWhenTheDeadLetterRecordIsNotAcknowledged() {
+        MockProducer<String, byte[]> producer = new MockProducer<>(false, new StringSerializer(), new ByteArraySerializer());
+
+        assertThatThrownBy(() -> recoverer(producer).accept(record, new IllegalStateException("poison")))
+            .isInstanceOf(KafkaException.class);
+    }
+
+    private static BlockingDeadLetterPublishingRecoverer recoverer(Producer<String, byte[]> producer) {
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<String, byte[]>(Collections.emptyMap()) {
+            @Override
+            protected Producer<String, byte[]> createKafkaProducer() {
+                return producer;
+            }
+        });
+        return new BlockingDeadLetterPublishingRecoverer(template,
+            (consumerRecord, exception) -> new TopicPartition(consumerRecord.topic() + ".DLT", -1), 100);
+    }
+}
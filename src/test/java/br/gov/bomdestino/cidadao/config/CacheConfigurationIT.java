@@ -0,0 +1,77 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.monitor.NearCacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the near-cache of the domain maps set up by {@link CacheConfiguration}.
+ * <p>
+ * The test configuration disables the second-level cache, so it is enabled here, as in the main configuration.
+ */
+@SpringBootTest(classes = CidadaoApp.class, properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.cache.region.factory_class=com.hazelcast.hibernate.HazelcastCacheRegionFactory",
+    "spring.jpa.properties.hibernate.cache.hazelcast.instance_name=cidadao"
+})
+public class CacheConfigurationIT {
+
+    private static final String MAP_NAME = "br.gov.bomdestino.cidadao.domain.Cidadao";
+
+    /**
+     * Not a key of the region, whose keys are Hibernate cache keys.
+     */
+    private static final Long KEY = -1L;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void destroy() {
+        hazelcastInstance.getMap(MAP_NAME).remove(KEY);
+    }
+
+    @Test
+    public void assertThatDomainMapsHaveANearCache() {
+        NearCacheConfig nearCacheConfig = hazelcastInstance.getConfig().findMapConfig(MAP_NAME).getNearCacheConfig();
+
+        assertThat(nearCacheConfig).isNotNull();
+        assertThat(nearCacheConfig.getInMemoryFormat()).isEqualTo(InMemoryFormat.OBJECT);
+        assertThat(nearCacheConfig.isInvalidateOnChange()).isTrue();
+        assertThat(nearCacheConfig.getEvictionConfig().getSize()).isEqualTo(10000);
+        assertThat(hazelcastInstance.getConfig().findMapConfig("default").getNearCacheConfig()).isNull();
+    }
+
+    @Test
+    public void assertThatNearCacheHitsAreMeasured() {
+        IMap<Object, Object> map = hazelcastInstance.getMap(MAP_NAME);
+        // Registered with the second-level cache regions, before any use
+        Gauge hits = meterRegistry.get("cache.near.requests").tag("cache", MAP_NAME).tag("result", "hit").gauge();
+        double hitsBefore = hits.value();
+        map.put(KEY, "Maria");
+
+        map.get(KEY);
+        map.get(KEY);
+
+        assertThat(hits.value()).isEqualTo(hitsBefore + 1);
+        NearCacheStats stats = map.getLocalMapStats().getNearCacheStats();
+        assertThat(meterRegistry.get("cache.near.hit.ratio").tag("cache", MAP_NAME).gauge().value())
+            .isEqualTo((double) stats.getHits() / (stats.getHits() + stats.getMisses()));
+    }
+}
@@ -0,0 +1,75 @@
+package br.gov.bomdestino.cidadao.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.elasticsearch.rest.RestClientProperties;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link ElasticsearchConfiguration} class.
+ */
+public class ElasticsearchConfigurationTest {
+
+    @Test
+    public void testRestClientUsesConfiguredPool() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getElasticsearch().setMaxConnTotal(42);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        try (RestClient client = new ElasticsearchConfiguration(new ObjectMapper())
+            .elasticsearchRestClientBuilder(new RestClientProperties(), applicationProperties, meterRegistry)
+            .build()) {
+            assertThat(meterRegistry.get("elasticsearch.client.connections").tag("state", "max").gauge().value()).isEqualTo(42);
+            assertThat(meterRegistry.get("elasticsearch.client.connections").tag("state", "leased").gauge().value()).isZero();
+        }
+    }
+
+    @Test
+    public void testTimesTheResponsesAndTheFailures() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            // No kept-alive connection for the client to reuse once the server is stopped
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders("/ausente".equals(exchange.getRequestURI().getPath()) ? 404 : 200, -1);
+            exchange.close();
+        });
+        server.start();
+        int port = server.getAddress().getPort();
+        RestClientProperties restClientProperties = new RestClientProperties();
+        restClientProperties.setUris(Collections.singletonList("http://127.0.0.1:" + port));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        try (RestClient client = new ElasticsearchConfiguration(new ObjectMapper())
+            .elasticsearchRestClientBuilder(restClientProperties, new ApplicationProperties(), meterRegistry)
+            .build()) {
+            client.performRequest(new Request("GET", "/"));
+            client.performRequest(new Request("GET", "/"));
+            assertThatThrownBy(() -> client.performRequest(new Request("GET", "/ausente"))).isInstanceOf(ResponseException.class);
+            server.stop(0);
+            assertThatThrownBy(() -> client.performRequest(new Request("GET", "/"))).isInstanceOf(IOException.class);
+        } finally {
+            server.stop(0);
+        }
+
+        assertThat(meterRegistry.get(TimedHttpAsyncClient.REQUESTS_METRIC).tags("status", "200", "outcome", "SUCCESS", "exception", "None")
+            .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(TimedHttpAsyncClient.REQUESTS_METRIC).tags("status", "404", "outcome", "CLIENT_ERROR")
+            .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(TimedHttpAsyncClient.REQUESTS_METRIC).tags("status", "NONE", "outcome", "UNKNOWN")
+            .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(TimedHttpAsyncClient.REQUESTS_METRIC).timers()).hasSize(3);
+    }
+}
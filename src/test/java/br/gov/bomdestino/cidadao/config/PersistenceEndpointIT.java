@@ -0,0 +1,86 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.config.hibernate.QueryExecutionMetrics;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link PersistenceEndpoint} and the persistence meters, with the second-level cache
+ * and the statistics enabled as in the main configuration.
+ */
+@SpringBootTest(classes = CidadaoApp.class, properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.cache.region.factory_class=com.hazelcast.hibernate.HazelcastCacheRegionFactory",
+    "spring.jpa.properties.hibernate.cache.hazelcast.instance_name=cidadao"
+})
+public class PersistenceEndpointIT {
+
+    private static final String CIDADAO = Cidadao.class.getName();
+
+    @Autowired
+    private PersistenceEndpoint persistenceEndpoint;
+
+    @Autowired
+    private CidadaoRepository cidadaoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cidadao cidadao;
+
+    @BeforeEach
+    public void setup() {
+        cidadao = cidadaoRepository.save(new Cidadao().nome("Maria").email("telemetria@bomdestino.gov.br"));
+    }
+
+    @AfterEach
+    public void destroy() {
+        cidadaoRepository.deleteById(cidadao.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void assertThatTheEndpointReportsTheCacheAndTheSlowestQueries() throws Exception {
+        cidadaoRepository.findById(cidadao.getId());
+        cidadaoRepository.findByEmail("telemetria@bomdestino.gov.br");
+
+        Map<String, Object> persistence = persistenceEndpoint.persistence();
+
+        Map<String, Object> pool = (Map<String, Object>) persistence.get("connectionPool");
+        assertThat(pool).containsKeys("maximum", "active", "idle", "total", "pending");
+        Map<String, Map<String, Object>> cache = (Map<String, Map<String, Object>>) persistence.get("secondLevelCache");
+        assertThat(cache).containsKeys(CIDADAO, CIDADAO + ".telefones");
+        assertThat((long) cache.get(CIDADAO).get("hits")).isPositive();
+        List<QueryExecutionMetrics.QueryTiming> slowest = (List<QueryExecutionMetrics.QueryTiming>) persistence.get("slowestQueries");
+        assertThat(slowest).isNotEmpty();
+        assertThat(persistenceEndpoint.query(slowest.get(0).getId()).getBody()).isSameAs(slowest.get(0));
+        assertThat(persistenceEndpoint.query("desconhecida").getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Test
+    public void assertThatThePersistenceMetersAreRegistered() {
+        cidadaoRepository.findById(cidadao.getId());
+
+        assertThat(meterRegistry.get("hikaricp.connections.acquire").timer().count()).isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections.pending").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hibernate.second.level.cache.entity.requests").tag("entity", CIDADAO).tag("result", "hit")
+            .functionCounter().count()).isPositive();
+        assertThat(meterRegistry.get("hibernate.second.level.cache.entity.hit.ratio").tag("entity", CIDADAO).gauge().value())
+            .isPositive();
+    }
+}
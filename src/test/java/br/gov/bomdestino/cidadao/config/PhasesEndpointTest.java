@@ -0,0 +1,82 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.service.PhaseMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Unit tests for the {@link PhasesEndpoint} and {@link SloMeterFilter} classes.
+ */
+public class PhasesEndpointTest {
+
+    private MeterRegistry meterRegistry;
+
+    private PhaseMetrics phaseMetrics;
+
+    private PhasesEndpoint phasesEndpoint;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSlo().getEndpoints().put("/api/cidadaos",
+            Arrays.asList(Duration.ofMillis(100), Duration.ofMillis(10)));
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new SloMeterFilter(applicationProperties));
+        phaseMetrics = new PhaseMetrics(meterRegistry);
+        phasesEndpoint = new PhasesEndpoint(phaseMetrics);
+    }
+
+    @Test
+    public void testUsesTheSloBoundariesOfTheUri() {
+        phaseMetrics.operation("createCidadao", "/api/cidadaos").record("save", TimeUnit.MILLISECONDS.toNanos(5));
+        phaseMetrics.operation("getCidadao", "/api/cidadaos/{id}").record("load", TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertThat(meterRegistry.get(PhaseMetrics.METER_NAME).tag("phase", "save").timer().takeSnapshot().histogramCounts())
+            .extracting(bucket -> bucket.bucket(TimeUnit.MILLISECONDS))
+            .containsExactly(10.0, 100.0);
+        assertThat(meterRegistry.get(PhaseMetrics.METER_NAME).tag("phase", "load").timer().takeSnapshot().histogramCounts())
+            .extracting(bucket -> bucket.bucket(TimeUnit.MILLISECONDS))
+            .containsExactly(50.0, 100.0, 250.0, 500.0, 1000.0, 2000.0);
+    }
+
+    @Test
+    public void testAppliesTheSloBoundariesToTheHttpRequests() {
+        Timer timer = Timer.builder("http.server.requests").tag("uri", "/api/cidadaos").register(meterRegistry);
+        Timer other = Timer.builder("jvm.gc.pause").register(meterRegistry);
+
+        assertThat(timer.takeSnapshot().histogramCounts()).hasSize(2);
+        assertThat(other.takeSnapshot().histogramCounts()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReturnsThePhaseBreakdown() {
+        PhaseMetrics.Operation operation = phaseMetrics.operation("createCidadao", "/api/cidadaos");
+        operation.record("save", TimeUnit.MILLISECONDS.toNanos(30));
+        operation.record("save", TimeUnit.MILLISECONDS.toNanos(150));
+        operation.record("index", TimeUnit.MILLISECONDS.toNanos(20));
+
+        Map<String, Object> createCidadao = (Map<String, Object>) phasesEndpoint.phases().get("createCidadao");
+
+        assertThat(createCidadao).containsEntry("uri", "/api/cidadaos");
+        Map<String, Map<String, Object>> phases = (Map<String, Map<String, Object>>) createCidadao.get("phases");
+        assertThat(phases).containsOnlyKeys("save", "index");
+        assertThat(phases.get("save"))
+            .containsEntry("count", 2L)
+            .containsEntry("meanMs", 90.0)
+            .containsEntry("maxMs", 150.0)
+            .containsEntry("share", 0.9);
+        assertThat((Map<String, Long>) phases.get("save").get("slo")).containsExactly(entry("10ms", 0L), entry("100ms", 1L));
+    }
+}
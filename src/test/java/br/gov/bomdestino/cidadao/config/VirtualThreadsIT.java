@@ -0,0 +1,65 @@
+package br.gov.bomdestino.cidadao.config;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import br.gov.bomdestino.cidadao.security.jwt.TokenProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Smoke test of the application with {@code application.virtual-threads.enabled}, on Java 21 only: run it with
+ * the {@code jdk21} Maven profile.
+ */
+@EnabledIfSystemProperty(named = "java.specification.version", matches = "2[1-9]|[3-9][0-9]")
+@SpringBootTest(classes = CidadaoApp.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "application.virtual-threads.enabled=true")
+public class VirtualThreadsIT {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    @Autowired
+    private TokenProvider tokenProvider;
+
+    @Test
+    public void assertThatRequestsAreServed() {
+        Authentication authentication = new UsernamePasswordAuthenticationToken("user", "user",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER)));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(tokenProvider.createToken(authentication, false));
+
+        ResponseEntity<String> response = restTemplate.exchange("/api/cidadaos", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void assertThatTasksRunOnVirtualThreads() throws Exception {
+        boolean virtual = taskExecutor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+            .get(10, TimeUnit.SECONDS);
+
+        assertThat(virtual).isTrue();
+    }
+}
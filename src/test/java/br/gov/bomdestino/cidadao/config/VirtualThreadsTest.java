@@ -0,0 +1,54 @@
+package br.gov.bomdestino.cidadao.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the {@link VirtualThreads} class, on whatever JVM runs the build.
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    public void testDetectsTheVirtualThreadsOfJava21() {
+        String version = System.getProperty("java.specification.version");
+        int feature = version.startsWith("1.") ? 8 : Integer.parseInt(version);
+
+        assertThat(VirtualThreads.isAvailable()).isEqualTo(feature >= 21);
+    }
+
+    @Test
+    public void testIsEnabledOnlyWhenConfiguredAndAvailable() {
+        ApplicationProperties.VirtualThreads properties = new ApplicationProperties().getVirtualThreads();
+
+        assertThat(VirtualThreads.isEnabled(properties)).isFalse();
+        properties.setEnabled(true);
+        assertThat(VirtualThreads.isEnabled(properties)).isEqualTo(VirtualThreads.isAvailable());
+    }
+
+    @Test
+    public void testRunsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("teste-");
+
+        String name = executor.submit(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(name).startsWith("teste-");
+        assertThat(VirtualThreads.threadFactory("teste-").newThread(() -> { }).isDaemon()).isTrue();
+    }
+
+    @Test
+    public void testFailsWithoutVirtualThreads() {
+        assumeFalse(VirtualThreads.isAvailable());
+
+        assertThatThrownBy(() -> VirtualThreads.threadFactory("teste-")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("teste-")).isInstanceOf(IllegalStateException.class);
+    }
+}
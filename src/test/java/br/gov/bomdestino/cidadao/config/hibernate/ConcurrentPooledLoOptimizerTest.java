@@ -0,0 +1,105 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link ConcurrentPooledLoOptimizer} class.
+ */
+public class ConcurrentPooledLoOptimizerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SequenceAllocationMetrics metrics = new SequenceAllocationMetrics();
+
+    private final ConcurrentPooledLoOptimizer optimizer = new ConcurrentPooledLoOptimizer(Long.class, 50, metrics);
+
+    @BeforeEach
+    public void bindMetrics() {
+        metrics.bindTo(meterRegistry);
+    }
+
+    @Test
+    public void testUsesSequenceValuesAsLowEndOfEachBlock() {
+        SequenceCallback sequence = new SequenceCallback(1050, 50);
+
+        assertThat(optimizer.generate(sequence)).isEqualTo(1050L);
+        for (int i = 1; i < 50; i++) {
+            optimizer.generate(sequence);
+        }
+        assertThat(optimizer.generate(sequence)).isEqualTo(1100L);
+        assertThat(sequence.calls.get()).isEqualTo(2);
+        assertThat(optimizer.getLastSourceValue().makeValue()).isEqualTo(1100L);
+        assertThat(meterRegistry.get("sequence.allocation.blocks").functionCounter().count()).isEqualTo(2);
+        // The thread fetching a block does not wait for it
+        assertThat(meterRegistry.get("sequence.allocation.wait").functionTimer().count()).isZero();
+        assertThat(meterRegistry.get("sequence.allocation.block.size").gauge().value()).isEqualTo(50);
+    }
+
+    @Test
+    public void testHandsOutEveryIdOnceAcrossThreads() throws Exception {
+        SequenceCallback sequence = new SequenceCallback(1050, 50);
+        Set<Object> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            for (int thread = 0; thread < 8; thread++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        ids.add(optimizer.generate(sequence));
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(8000);
+        assertThat(sequence.calls.get()).isEqualTo(8000 / 50);
+    }
+
+    private static final class SequenceCallback implements AccessCallback {
+
+        private final AtomicLong value;
+
+        private final int increment;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private SequenceCallback(long start, int increment) {
+            this.value = new AtomicLong(start - increment);
+            this.increment = increment;
+        }
+
+        @Override
+        public IntegralDataTypeHolder getNextValue() {
+            calls.incrementAndGet();
+            return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class).initialize(value.addAndGet(increment));
+        }
+
+        @Override
+        public String getTenantIdentifier() {
+            return null;
+        }
+    }
+}
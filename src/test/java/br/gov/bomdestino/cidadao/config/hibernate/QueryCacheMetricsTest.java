@@ -0,0 +1,57 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link QueryCacheMetrics} class.
+ */
+public class QueryCacheMetricsTest {
+
+    private Statistics statistics;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        statistics = mock(Statistics.class);
+        meterRegistry = new SimpleMeterRegistry();
+        new QueryCacheMetrics(statistics, Arrays.asList("byEmail", "byCep")).bindTo(meterRegistry);
+    }
+
+    @Test
+    public void testPublishesTheStatisticsOfEachRegion() {
+        CacheRegionStatistics regionStatistics = mock(CacheRegionStatistics.class);
+        when(regionStatistics.getHitCount()).thenReturn(3L);
+        when(regionStatistics.getMissCount()).thenReturn(2L);
+        when(regionStatistics.getPutCount()).thenReturn(1L);
+        when(statistics.getQueryRegionStatistics("byEmail")).thenReturn(regionStatistics);
+
+        assertThat(requests("byEmail", "hit")).isEqualTo(3);
+        assertThat(requests("byEmail", "miss")).isEqualTo(2);
+        assertThat(meterRegistry.get("hibernate.query.cache.region.puts").tag("region", "byEmail").functionCounter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void testRegionsNotCreatedYetCountZero() {
+        assertThat(requests("byCep", "hit")).isZero();
+        assertThat(requests("byCep", "miss")).isZero();
+        assertThat(meterRegistry.get("hibernate.query.cache.region.puts").tag("region", "byCep").functionCounter().count()).isZero();
+    }
+
+    private double requests(String region, String result) {
+        return meterRegistry.get("hibernate.query.cache.region.requests").tag("region", region).tag("result", result)
+            .functionCounter().count();
+    }
+}
@@ -0,0 +1,30 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SQL statements prepared by Hibernate, so tests can assert how many queries an operation runs.
+ * <p>
+ * Registered in the test {@code application.yml} through {@code hibernate.session_factory.statement_inspector}.
+ * Hibernate instantiates it itself, hence the static counter.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final AtomicLong COUNT = new AtomicLong();
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static long count() {
+        return COUNT.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.incrementAndGet();
+        return sql;
+    }
+}
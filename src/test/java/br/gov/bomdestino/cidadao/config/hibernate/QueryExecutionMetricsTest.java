@@ -0,0 +1,118 @@
+package br.gov.bomdestino.cidadao.config.hibernate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Unit tests for the {@link QueryExecutionMetrics} class.
+ */
+public class QueryExecutionMetricsTest {
+
+    private QueryExecutionMetrics metrics;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        metrics = new QueryExecutionMetrics();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testTimesEachQuery() {
+        metrics.queryExecuted("select a from A a", 1, 10);
+        metrics.bindTo(meterRegistry);
+        metrics.queryExecuted("select a from A a", 1, 30);
+        metrics.queryExecuted("select b from B b", 2, 5);
+
+        String id = QueryExecutionMetrics.queryId("select a from A a");
+        Timer timer = meterRegistry.get("hibernate.query.execution").tag("query", id).timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.max(TimeUnit.MILLISECONDS)).isEqualTo(30);
+        assertThat(meterRegistry.get("hibernate.query.execution").tag("query", QueryExecutionMetrics.queryId("select b from B b"))
+            .timer().count()).isEqualTo(1);
+        assertThat(metrics.getTiming(id)).hasValueSatisfying(timing -> assertThat(timing.getQuery()).isEqualTo("select a from A a"));
+    }
+
+    @Test
+    public void testTagsTheQueriesWithAShortStableId() {
+        String id = QueryExecutionMetrics.queryId("select a from A a");
+
+        assertThat(id).hasSize(12).matches("[0-9a-f]+").isEqualTo(QueryExecutionMetrics.queryId("select a from A a"));
+        assertThat(QueryExecutionMetrics.queryId("select b from B b")).isNotEqualTo(id);
+        assertThat(metrics.getTiming(id)).isEmpty();
+    }
+
+    @Test
+    public void testPublishesOnlyTheSlaBuckets() {
+        metrics.bindTo(meterRegistry);
+        metrics.queryExecuted("select a from A a", 1, 20);
+
+        Timer timer = meterRegistry.get("hibernate.query.execution").timer();
+        assertThat(timer.takeSnapshot().histogramCounts()).hasSize(6);
+    }
+
+    @Test
+    public void testListsTheSlowestQueries() {
+        metrics.queryExecuted("select a from A a", 1, 10);
+        metrics.queryExecuted("select a from A a", 1, 30);
+        metrics.queryExecuted("select b from B b", 1, 50);
+        metrics.queryExecuted("select c from C c", 1, 1);
+
+        assertThat(metrics.getSlowest(2))
+            .extracting(QueryExecutionMetrics.QueryTiming::getQuery, QueryExecutionMetrics.QueryTiming::getMaxMs)
+            .containsExactly(tuple("select b from B b", 50L),
+                tuple("select a from A a", 30L));
+        assertThat(metrics.getSlowest(2).get(1).getExecutions()).isEqualTo(2);
+        assertThat(metrics.getSlowest(2).get(1).getMeanMs()).isEqualTo(20);
+    }
+
+    @Test
+    public void testGroupsTheQueriesOverTheLimit() {
+        metrics.configure(2, 500);
+        metrics.bindTo(meterRegistry);
+
+        metrics.queryExecuted("select a from A a", 1, 1);
+        metrics.queryExecuted("select b from B b", 1, 1);
+        metrics.queryExecuted("select c from C c", 1, 1);
+        metrics.queryExecuted("select d from D d", 1, 1);
+
+        assertThat(meterRegistry.find("hibernate.query.execution").timers()).hasSize(3);
+        assertThat(meterRegistry.get("hibernate.query.execution").tag("query", QueryExecutionMetrics.OTHER_QUERIES).timer().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    public void testKeepsTheLimitUnderConcurrentQueries() throws Exception {
+        metrics.configure(10, 500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String query = "select q from Q q where q.id = " + i;
+            tasks.add(() -> {
+                metrics.queryExecuted(query, 1, 1);
+                return null;
+            });
+        }
+
+        executor.invokeAll(tasks);
+        executor.shutdown();
+
+        assertThat(metrics.getSlowest(Integer.MAX_VALUE)).hasSize(11);
+        assertThat(metrics.getTiming(QueryExecutionMetrics.OTHER_QUERIES))
+            .hasValueSatisfying(timing -> assertThat(timing.getExecutions()).isEqualTo(990));
+    }
+}
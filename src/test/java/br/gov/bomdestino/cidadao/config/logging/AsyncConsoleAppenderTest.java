@@ -0,0 +1,193 @@
+package br.gov.bomdestino.cidadao.config.logging;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties.AsyncLogging.OverflowPolicy;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.encoder.EchoEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link AsyncConsoleAppender} class.
+ */
+public class AsyncConsoleAppenderTest {
+
+    private LoggerContext context;
+
+    private Logger logger;
+
+    private ApplicationProperties.AsyncLogging properties;
+
+    private AsyncLoggingMetrics metrics;
+
+    private BlockingOutputStream outputStream;
+
+    private AsyncConsoleAppender appender;
+
+    @BeforeEach
+    public void setup() {
+        context = new LoggerContext();
+        logger = context.getLogger(AsyncConsoleAppenderTest.class);
+        properties = new ApplicationProperties.AsyncLogging();
+        properties.setQueueSize(2);
+        properties.setMaxBlockMs(10);
+        metrics = new AsyncLoggingMetrics();
+        outputStream = new BlockingOutputStream();
+    }
+
+    @AfterEach
+    public void destroy() {
+        outputStream.release.countDown();
+        appender.stop();
+    }
+
+    private void start() {
+        EchoEncoder<ILoggingEvent> encoder = new EchoEncoder<>();
+        encoder.setContext(context);
+        encoder.start();
+        appender = new AsyncConsoleAppender(encoder, outputStream, properties, metrics);
+        appender.setContext(context);
+        appender.setName("test");
+        appender.start();
+    }
+
+    @Test
+    public void testWritesTheEventsInBatches() throws Exception {
+        properties.setQueueSize(100);
+        start();
+        // The first write blocks until released, the other events are queued meanwhile
+        append(Level.INFO, "first");
+        assertThat(outputStream.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 10; i++) {
+            append(Level.INFO, "event " + i);
+        }
+        outputStream.release.countDown();
+        appender.stop();
+
+        assertThat(outputStream.toString()).contains("first", "event 0", "event 9");
+        assertThat(outputStream.writes.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDropsDebugAndInfoEventsWhenFull() throws Exception {
+        start();
+        fillQueue();
+
+        append(Level.INFO, "dropped");
+        append(Level.WARN, "dropped after waiting");
+
+        assertThat(metrics.getDropped(Level.INFO)).isEqualTo(1);
+        assertThat(metrics.getDropped(Level.WARN)).isEqualTo(1);
+    }
+
+    @Test
+    public void testPublishesTheQueueMetrics() throws Exception {
+        start();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        metrics.bindTo(meterRegistry);
+        fillQueue();
+        append(Level.DEBUG, "dropped");
+
+        assertThat(meterRegistry.get("logging.async.queue.size").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("logging.async.queue.capacity").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("logging.async.dropped").tag("level", "debug").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("logging.async.encode").functionTimer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWaitPolicyDropsAfterTheTimeout() throws Exception {
+        properties.setOverflowPolicy(OverflowPolicy.WAIT);
+        start();
+        fillQueue();
+
+        long start = System.nanoTime();
+        append(Level.INFO, "dropped after waiting");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(10);
+        assertThat(metrics.getDropped(Level.INFO)).isEqualTo(1);
+    }
+
+    /**
+     * Blocks the worker on a first event, then fills the queue.
+     */
+    private void fillQueue() throws InterruptedException {
+        append(Level.INFO, "blocking");
+        assertThat(outputStream.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        append(Level.INFO, "queued 1");
+        append(Level.INFO, "queued 2");
+    }
+
+    @Test
+    public void testStopsTheConsoleItReplaces() {
+        ConsoleAppender<ILoggingEvent> console = new ConsoleAppender<>();
+        console.setContext(context);
+        EchoEncoder<ILoggingEvent> encoder = new EchoEncoder<>();
+        encoder.setContext(context);
+        encoder.start();
+        console.setEncoder(encoder);
+        console.start();
+        appender = new AsyncConsoleAppender(console, properties, metrics);
+        appender.setContext(context);
+        appender.setName("console");
+        appender.start();
+
+        appender.stop();
+
+        assertThat(console.isStarted()).isFalse();
+    }
+
+    private void append(Level level, String message) {
+        appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, level, message, null, null));
+    }
+
+    /**
+     * Blocks the first write until released.
+     */
+    private static class BlockingOutputStream extends ByteArrayOutputStream {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writes.incrementAndGet();
+            super.write(b, off, len);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return new String(toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Nothing to flush
+        }
+    }
+}
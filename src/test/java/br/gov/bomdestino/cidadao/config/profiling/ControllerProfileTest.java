@@ -0,0 +1,63 @@
+package br.gov.bomdestino.cidadao.config.profiling;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link ControllerProfile} class, with this test standing for a controller.
+ */
+public class ControllerProfileTest {
+
+    private static final int ALLOCATION_SIZE = 16 * 1024 * 1024;
+
+    private static volatile byte[] sink;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testAttributesTheEventsToTheControllerMethod() throws Exception {
+        Path file = directory.resolve("allocation.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+            recording.start();
+            createCidadao();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, ControllerProfile.MethodProfile> profiles =
+            ControllerProfile.summarize(file, ControllerProfileTest.class.getPackage().getName());
+
+        assertThat(profiles).containsKey("ControllerProfileTest.createCidadao");
+        assertThat(profiles.get("ControllerProfileTest.createCidadao").getAllocatedBytes()).isGreaterThanOrEqualTo(ALLOCATION_SIZE);
+        assertThat(profiles.get("ControllerProfileTest.createCidadao").getLockEvents()).isZero();
+    }
+
+    @Test
+    public void testSumsTheOtherEventsAsUnattributed() throws Exception {
+        Path file = directory.resolve("allocation.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+            recording.start();
+            createCidadao();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, ControllerProfile.MethodProfile> profiles = ControllerProfile.summarize(file, "br.gov.bomdestino.cidadao.web.rest");
+
+        assertThat(profiles).containsOnlyKeys(ControllerProfile.UNATTRIBUTED);
+        assertThat(profiles.get(ControllerProfile.UNATTRIBUTED).getAllocatedBytes()).isGreaterThanOrEqualTo(ALLOCATION_SIZE);
+    }
+
+    private void createCidadao() {
+        sink = new byte[ALLOCATION_SIZE];
+    }
+}
@@ -0,0 +1,92 @@
+package br.gov.bomdestino.cidadao.config.profiling;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import jdk.jfr.RecordingState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link FlightRecordings} class.
+ */
+public class FlightRecordingsTest {
+
+    @TempDir
+    Path directory;
+
+    private ApplicationProperties applicationProperties;
+
+    private FlightRecordings flightRecordings;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getProfiling().setDirectory(directory.toString());
+        applicationProperties.getProfiling().setMaxRecordings(1);
+        flightRecordings = new FlightRecordings(applicationProperties);
+    }
+
+    @AfterEach
+    public void destroy() throws Exception {
+        flightRecordings.destroy();
+    }
+
+    @Test
+    public void testStartsDumpsStopsAndDiscardsARecording() throws Exception {
+        flightRecordings.start("lento", null, Duration.ofHours(1));
+
+        assertThat(flightRecordings.getRecordings()).containsOnlyKeys("lento");
+        assertThat(flightRecordings.getRecordings().get("lento").describe())
+            .containsEntry("state", RecordingState.RUNNING)
+            .containsEntry("settings", "default")
+            .containsEntry("duration", Duration.ofSeconds(600));
+        Path file = flightRecordings.dump("lento").get();
+        assertThat(file.getParent()).isEqualTo(directory);
+        assertThat(file.getFileName().toString()).startsWith("lento.").endsWith(".jfr");
+        assertThat(Files.size(file)).isPositive();
+        assertThat(flightRecordings.dump("lento").get()).isNotEqualTo(file);
+
+        assertThat(flightRecordings.stopOrDiscard("lento")).isTrue();
+        assertThat(flightRecordings.getRecordings().get("lento").getState()).isEqualTo(RecordingState.STOPPED);
+        assertThat(flightRecordings.dump("lento")).isPresent();
+
+        assertThat(flightRecordings.stopOrDiscard("lento")).isTrue();
+        assertThat(flightRecordings.getRecordings()).isEmpty();
+        assertThat(file).doesNotExist();
+        assertThat(directory.toFile().list()).isEmpty();
+        assertThat(flightRecordings.stopOrDiscard("lento")).isFalse();
+        assertThat(flightRecordings.dump("lento")).isEmpty();
+    }
+
+    @Test
+    public void testStartsTheContinuousRecording() {
+        applicationProperties.getProfiling().setContinuous(true);
+
+        flightRecordings.startContinuousRecording();
+        flightRecordings.start("lento", "profile", Duration.ofSeconds(30));
+
+        assertThat(flightRecordings.getRecordings()).containsOnlyKeys(FlightRecordings.CONTINUOUS, "lento");
+        assertThat(flightRecordings.getRecordings().get(FlightRecordings.CONTINUOUS).describe()).containsEntry("duration", null);
+        assertThat(flightRecordings.getRecordings().get("lento").describe())
+            .containsEntry("settings", "profile")
+            .containsEntry("duration", Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void testRejectsInvalidRecordings() {
+        flightRecordings.start("lento", null, null);
+
+        assertThatThrownBy(() -> flightRecordings.start("../lento", null, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> flightRecordings.start("outro", "inexistente", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> flightRecordings.start("lento", null, null)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> flightRecordings.start("outro", null, null)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,85 @@
+package br.gov.bomdestino.cidadao.repository;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.config.hibernate.QueryCounter;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the cached lookups of {@link CidadaoRepository}.
+ * <p>
+ * The test configuration disables the second-level cache, so it is enabled here, as in the main configuration.
+ * Each repository call runs in its own transaction.
+ */
+@SpringBootTest(classes = CidadaoApp.class, properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.cache.region.factory_class=com.hazelcast.hibernate.HazelcastCacheRegionFactory",
+    "spring.jpa.properties.hibernate.cache.hazelcast.instance_name=cidadao"
+})
+public class CidadaoRepositoryIT {
+
+    private static final String EMAIL = "consulta@bomdestino.gov.br";
+
+    @Autowired
+    private CidadaoRepository cidadaoRepository;
+
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cidadao cidadao;
+
+    @BeforeEach
+    public void setup() {
+        cidadao = cidadaoRepository.save(new Cidadao().nome("Maria").email(EMAIL).endereco(new Endereco().cep("29000-000")));
+    }
+
+    @AfterEach
+    public void destroy() {
+        cidadaoRepository.deleteById(cidadao.getId());
+    }
+
+    @Test
+    public void assertThatRepeatedLookupsAreServedFromTheQueryCache() {
+        double hits = requests(CidadaoRepository.CIDADAOS_BY_EMAIL_CACHE, "hit");
+        assertThat(cidadaoRepository.findByEmail(EMAIL)).extracting(Cidadao::getId).containsExactly(cidadao.getId());
+
+        QueryCounter.reset();
+        assertThat(cidadaoRepository.findByEmail(EMAIL)).extracting(Cidadao::getId).containsExactly(cidadao.getId());
+
+        assertThat(QueryCounter.count()).isZero();
+        assertThat(requests(CidadaoRepository.CIDADAOS_BY_EMAIL_CACHE, "hit")).isEqualTo(hits + 1);
+        assertThat(meterRegistry.get("hibernate.query.cache.region.puts").tag("region", CidadaoRepository.CIDADAOS_BY_EMAIL_CACHE)
+            .functionCounter().count()).isPositive();
+    }
+
+    @Test
+    public void assertThatWritesInvalidateTheCachedLookups() {
+        assertThat(cidadaoRepository.findByEnderecoCep("29000-000")).extracting(Cidadao::getId).containsExactly(cidadao.getId());
+
+        Endereco endereco = cidadao.getEndereco();
+        enderecoRepository.save(endereco.cep("29100-000"));
+        double misses = requests(CidadaoRepository.CIDADAOS_BY_CEP_CACHE, "miss");
+
+        assertThat(cidadaoRepository.findByEnderecoCep("29000-000")).isEmpty();
+        assertThat(cidadaoRepository.findByEnderecoCep("29100-000")).extracting(Cidadao::getId).containsExactly(cidadao.getId());
+        assertThat(requests(CidadaoRepository.CIDADAOS_BY_CEP_CACHE, "miss")).isGreaterThan(misses);
+    }
+
+    private double requests(String region, String result) {
+        return meterRegistry.get("hibernate.query.cache.region.requests").tag("region", region).tag("result", result)
+            .functionCounter().count();
+    }
+}
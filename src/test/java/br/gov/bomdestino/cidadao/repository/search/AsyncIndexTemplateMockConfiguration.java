@@ -0,0 +1,48 @@
+package br.gov.bomdestino.cidadao.repository.search;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.shard.ShardId;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.boot.test.mock.mockito.MockReset;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Configure a Mock version of {@link AsyncIndexTemplate} to test the
+ * application without starting Elasticsearch.
+ * <p>
+ * Unlike a {@code @MockBean}, whose stubs are cleared after each test, every bulk of this mock succeeds
+ * unless a test stubs it otherwise, so that the changes are not retried.
+ */
+@Configuration
+public class AsyncIndexTemplateMockConfiguration {
+
+    @Bean
+    @Primary
+    public AsyncIndexTemplate mockAsyncIndexTemplate() {
+        return mock(AsyncIndexTemplate.class, MockReset.withSettings(MockReset.AFTER)
+            .defaultAnswer(AsyncIndexTemplateMockConfiguration::written));
+    }
+
+    /**
+     * @return a future completed with a response where every change of the bulk is written.
+     */
+    public static CompletableFuture<BulkResponse> written(InvocationOnMock invocation) {
+        List<?> changes = invocation.getArgument(0);
+        BulkItemResponse[] items = new BulkItemResponse[changes.size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                new IndexResponse(new ShardId("mock", "_na_", 0), "_doc", String.valueOf(i), 0, 1, 1, true));
+        }
+        return CompletableFuture.completedFuture(new BulkResponse(items, 0));
+    }
+}
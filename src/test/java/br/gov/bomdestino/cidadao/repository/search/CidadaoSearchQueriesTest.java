@@ -0,0 +1,55 @@
+package br.gov.bomdestino.cidadao.repository.search;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link CidadaoSearchQueries} class.
+ */
+public class CidadaoSearchQueriesTest {
+
+    @Test
+    public void testMatchesTheNameWordsAndTheEmail() {
+        BoolQueryBuilder query = (BoolQueryBuilder) CidadaoSearchQueries.byNomeOrEmail("  João Silva ");
+
+        assertThat(query.must()).isEmpty();
+        assertThat(query.minimumShouldMatch()).isEqualTo("1");
+        assertThat(query.should()).hasSize(4);
+
+        MatchQueryBuilder nome = (MatchQueryBuilder) query.should().get(0);
+        assertThat(nome.fieldName()).isEqualTo("nome");
+        assertThat(nome.value()).isEqualTo("João Silva");
+        assertThat(nome.operator()).isEqualTo(Operator.AND);
+
+        TermQueryBuilder nomeKeyword = (TermQueryBuilder) query.should().get(1);
+        assertThat(nomeKeyword.fieldName()).isEqualTo("nome.keyword");
+        assertThat(nomeKeyword.value()).isEqualTo("João Silva");
+        assertThat(nomeKeyword.boost()).isGreaterThan(nome.boost());
+    }
+
+    @Test
+    public void testMatchesTheEmailPrefixInLowerCase() {
+        BoolQueryBuilder query = (BoolQueryBuilder) CidadaoSearchQueries.byNomeOrEmail("Maria@BomDestino");
+
+        TermQueryBuilder email = (TermQueryBuilder) query.should().get(2);
+        assertThat(email.fieldName()).isEqualTo("email");
+        assertThat(email.value()).isEqualTo("Maria@BomDestino");
+        PrefixQueryBuilder emailPrefix = (PrefixQueryBuilder) query.should().get(3);
+        assertThat(emailPrefix.fieldName()).isEqualTo("email");
+        assertThat(emailPrefix.value()).isEqualTo("maria@bomdestino");
+    }
+
+    @Test
+    public void testUsesNoWildcard() {
+        QueryBuilder query = CidadaoSearchQueries.byNomeOrEmail("*ana*");
+
+        assertThat(query.toString()).doesNotContain("wildcard", "query_string");
+    }
+}
@@ -0,0 +1,50 @@
+package br.gov.bomdestino.cidadao.security.jwt;
+
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AuthoritySetRegistryTest {
+
+    private static final String ADMIN_AND_USER = AuthoritiesConstants.ADMIN + "," + AuthoritiesConstants.USER;
+
+    @Test
+    public void testIdenticalClaimsShareOneImmutableList() {
+        AuthoritySetRegistry registry = new AuthoritySetRegistry(10);
+
+        List<GrantedAuthority> first = registry.intern(new String(ADMIN_AND_USER));
+        List<GrantedAuthority> second = registry.intern(new String(ADMIN_AND_USER));
+
+        assertThat(second).isSameAs(first);
+        assertThat(first).extracting(GrantedAuthority::getAuthority)
+            .containsExactly(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThatThrownBy(() -> first.add(new SimpleGrantedAuthority("ROLE_OTHER")))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testAuthoritiesAreSharedBetweenSets() {
+        AuthoritySetRegistry registry = new AuthoritySetRegistry(10);
+
+        GrantedAuthority user = registry.intern(AuthoritiesConstants.USER).get(0);
+
+        assertThat(registry.intern(ADMIN_AND_USER).get(1)).isSameAs(user);
+    }
+
+    @Test
+    public void testRegistryIsBounded() {
+        AuthoritySetRegistry registry = new AuthoritySetRegistry(1);
+        registry.intern(AuthoritiesConstants.USER);
+
+        List<GrantedAuthority> admin = registry.intern(AuthoritiesConstants.ADMIN);
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.intern(AuthoritiesConstants.ADMIN)).isNotSameAs(admin).isEqualTo(admin);
+    }
+}
@@ -0,0 +1,57 @@
+package br.gov.bomdestino.cidadao.security.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ValidatedTokenCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    private final Authentication authentication = new UsernamePasswordAuthenticationToken("user", "token", Collections.emptyList());
+
+    @Test
+    public void testEntriesAreNotServedAfterTheTokenExpires() {
+        ValidatedTokenCache cache = new ValidatedTokenCache(10, now::get);
+        String digest = ValidatedTokenCache.digest("token");
+        cache.put(digest, authentication, 2000);
+
+        assertThat(cache.get(digest)).isSameAs(authentication);
+        now.set(2000);
+        assertThat(cache.get(digest)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        ValidatedTokenCache cache = new ValidatedTokenCache(10, now::get);
+        cache.put(ValidatedTokenCache.digest("expired"), authentication, 500);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(ValidatedTokenCache.digest("token" + i), authentication, 2000);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.get(ValidatedTokenCache.digest("token99"))).isSameAs(authentication);
+    }
+
+    @Test
+    public void testDigestDependsOnTheWholeToken() {
+        assertThat(ValidatedTokenCache.digest("header.payload.signature"))
+            .isEqualTo(ValidatedTokenCache.digest("header.payload.signature"))
+            .isNotEqualTo(ValidatedTokenCache.digest("header.payload.signaturf"));
+    }
+
+    @Test
+    public void testNothingIsCachedWhenDisabled() {
+        ValidatedTokenCache cache = new ValidatedTokenCache(0, now::get);
+        cache.put(ValidatedTokenCache.digest("token"), authentication, 2000);
+
+        assertThat(cache.size()).isZero();
+    }
+}
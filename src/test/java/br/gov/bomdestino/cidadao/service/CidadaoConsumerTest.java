@@ -0,0 +1,130 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link CidadaoConsumer} class.
+ */
+public class CidadaoConsumerTest {
+
+    private CidadaoEventCodec cidadaoEventCodec;
+
+    private ConsumerRecordRecoverer deadLetterRecoverer;
+
+    private Acknowledgment acknowledgment;
+
+    private Consumer<?, ?> consumer;
+
+    private MeterRegistry meterRegistry;
+
+    private CidadaoConsumer cidadaoConsumer;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cidadaoEventCodec = new CidadaoEventCodec(new FileSchemaRegistry(new ApplicationProperties(), new ObjectMapper()));
+        deadLetterRecoverer = mock(ConsumerRecordRecoverer.class);
+        acknowledgment = mock(Acknowledgment.class);
+        consumer = mock(Consumer.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cidadaoConsumer = new CidadaoConsumer(cidadaoEventCodec, deadLetterRecoverer, meterRegistry);
+    }
+
+    @Test
+    public void testProcessesTheBatch() {
+        cidadaoConsumer.processarCidadaosCadastrados(Arrays.asList(record(0, event(1L)), record(1, event(2L))), acknowledgment, consumer);
+
+        verify(acknowledgment).acknowledge();
+        verifyNoInteractions(deadLetterRecoverer);
+        assertThat(meterRegistry.get("cidadao.consumer.batch").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cidadao.consumer.batch.size").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSendsPoisonRecordsToTheDeadLetterTopic() {
+        ConsumerRecord<String, byte[]> poison = record(1, "cidadao".getBytes(StandardCharsets.UTF_8));
+
+        cidadaoConsumer.processarCidadaosCadastrados(Arrays.asList(record(0, event(1L)), poison), acknowledgment, consumer);
+
+        verify(deadLetterRecoverer).accept(eq(poison), any(SerializationException.class));
+        verifyNoMoreInteractions(deadLetterRecoverer);
+        verify(acknowledgment).acknowledge();
+        assertThat(meterRegistry.get("cidadao.consumer.dead.letters").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDoesNotAcknowledgeAFailedBatch() {
+        doThrow(new IllegalStateException("broker down")).when(deadLetterRecoverer).accept(any(), any());
+
+        assertThatThrownBy(() -> cidadaoConsumer.processarCidadaosCadastrados(
+            Collections.singletonList(record(0, new byte[0])), acknowledgment, consumer))
+            .isInstanceOf(IllegalStateException.class);
+
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportsTheLagOfEachPartition() {
+        Map<String, String> tags = new HashMap<>();
+        tags.put("topic", Constants.CIDADAO_CADASTRADO_TOPIC);
+        tags.put("partition", "0");
+        Metric lag = mock(Metric.class);
+        when(lag.metricValue()).thenReturn(42.0);
+        Map<MetricName, Metric> metrics = Collections.singletonMap(
+            new MetricName("records-lag", "consumer-fetch-manager-metrics", "", tags), lag);
+        doReturn(metrics).when(consumer).metrics();
+
+        cidadaoConsumer.processarCidadaosCadastrados(Collections.singletonList(record(0, event(1L))), acknowledgment, consumer);
+
+        assertThat(meterRegistry.get("cidadao.consumer.lag").tag("partition", "0").gauge().value()).isEqualTo(42);
+
+        cidadaoConsumer.onPartitionsRevoked(Collections.singletonList(new TopicPartition(Constants.CIDADAO_CADASTRADO_TOPIC, 0)));
+
+        assertThat(meterRegistry.find("cidadao.consumer.lag").gauges()).isEmpty();
+    }
+
+    @Test
+    public void testStopsWithoutAssignedPartitions() {
+        cidadaoConsumer.onPartitionsRevoked(null);
+
+        assertThat(meterRegistry.find("cidadao.consumer.lag").gauges()).isEmpty();
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset, byte[] value) {
+        return new ConsumerRecord<>(Constants.CIDADAO_CADASTRADO_TOPIC, 0, offset, null, value);
+    }
+
+    private byte[] event(Long id) {
+        Cidadao cidadao = new Cidadao().nome("Maria").email("maria@bomdestino.gov.br");
+        cidadao.setId(id);
+        return cidadaoEventCodec.encode(new CidadaoCadastradoEvent(cidadao));
+    }
+}
@@ -0,0 +1,145 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import br.gov.bomdestino.cidadao.service.dto.EnderecoDTO;
+import br.gov.bomdestino.cidadao.service.dto.TelefoneDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link CidadaoEventCodec} class.
+ */
+public class CidadaoEventCodecTest {
+
+    private CidadaoEventCodec cidadaoEventCodec;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cidadaoEventCodec = new CidadaoEventCodec(new FileSchemaRegistry(new ApplicationProperties(), new ObjectMapper()));
+    }
+
+    @Test
+    public void testRoundTripsACompleteCidadao() {
+        Cidadao cidadao = new Cidadao().nome("João da Conceição").sexo(Sexo.MASCULINO).email("joao@bomdestino.gov.br")
+            .nascimento(LocalDate.of(1950, 12, 31))
+            .endereco(new Endereco().logradouro("Rua 1").bairro("Centro").cidade("Bom Destino").estado(UF.DF).cep("70000-000"));
+        cidadao.setId(123456789012L);
+        cidadao.addTelefones(new Telefone().ddd("61").numero("999999999"));
+        CidadaoCadastradoEvent event = new CidadaoCadastradoEvent(cidadao);
+
+        CidadaoCadastradoEvent decoded = cidadaoEventCodec.decode(cidadaoEventCodec.encode(event));
+
+        assertThat(decoded.getId()).isEqualTo(123456789012L);
+        assertThat(decoded.getNome()).isEqualTo("João da Conceição");
+        assertThat(decoded.getSexo()).isEqualTo(Sexo.MASCULINO);
+        assertThat(decoded.getEmail()).isEqualTo("joao@bomdestino.gov.br");
+        assertThat(decoded.getNascimento()).isEqualTo(LocalDate.of(1950, 12, 31));
+        assertThat(decoded.getEndereco()).isEqualTo(new EnderecoDTO(cidadao.getEndereco()));
+        assertThat(decoded.getEndereco().getComplemento()).isNull();
+        assertThat(decoded.getTelefones()).containsExactly(new TelefoneDTO("61", "999999999"));
+        assertThat(decoded.getCadastradoEm()).isEqualTo(Instant.ofEpochMilli(event.getCadastradoEm().toEpochMilli()));
+    }
+
+    @Test
+    public void testRoundTripsTheOptionalFieldsAsNull() {
+        CidadaoCadastradoEvent event = event(1L);
+
+        CidadaoCadastradoEvent decoded = cidadaoEventCodec.decode(cidadaoEventCodec.encode(event));
+
+        assertThat(decoded.getSexo()).isNull();
+        assertThat(decoded.getNascimento()).isNull();
+        assertThat(decoded.getEndereco()).isNull();
+        assertThat(decoded.getTelefones()).isEmpty();
+    }
+
+    @Test
+    public void testWritesTheSchemaIdThenTheAvroEncoding() {
+        CidadaoCadastradoEvent event = event(1L);
+        event.setCadastradoEm(Instant.ofEpochMilli(1));
+
+        byte[] data = cidadaoEventCodec.encode(event);
+
+        // magic byte, schema id 1, then id 1 as a zig-zag varint and nome as a length-prefixed string
+        assertThat(Arrays.copyOf(data, 8)).containsExactly(0, 0, 0, 0, 1, 2, 10, 'M');
+        // empty telefones array, then cadastradoEm 1 as a zig-zag varint
+        assertThat(Arrays.copyOfRange(data, data.length - 2, data.length)).containsExactly(0, 2);
+    }
+
+    @Test
+    public void testRejectsRecordsOfAnUnknownSchema() {
+        byte[] data = cidadaoEventCodec.encode(event(1L));
+        data[4] = 42;
+
+        assertThatThrownBy(() -> cidadaoEventCodec.decode(data))
+            .isInstanceOf(SerializationException.class)
+            .hasMessageContaining("42");
+    }
+
+    @Test
+    public void testRejectsMalformedRecords() {
+        byte[] data = cidadaoEventCodec.encode(event(1L));
+
+        assertThatThrownBy(() -> cidadaoEventCodec.decode(Arrays.copyOf(data, data.length - 1)))
+            .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> cidadaoEventCodec.decode(Arrays.copyOf(data, data.length + 1)))
+            .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> cidadaoEventCodec.decode("cidadao".getBytes(StandardCharsets.UTF_8)))
+            .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> cidadaoEventCodec.decode(new byte[0]))
+            .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> cidadaoEventCodec.decode(null))
+            .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    public void testDecodesTheLegacyRecords() {
+        CidadaoCadastradoEvent event = cidadaoEventCodec.decode("42".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(event.getId()).isEqualTo(42L);
+        assertThat(event.getNome()).isNull();
+    }
+
+    @Test
+    public void testRejectsEventsWithoutTheRequiredFields() {
+        CidadaoCadastradoEvent event = event(1L);
+        event.setEmail(null);
+
+        assertThatThrownBy(() -> cidadaoEventCodec.encode(event))
+            .isInstanceOf(SerializationException.class)
+            .hasMessageContaining("email");
+    }
+
+    @Test
+    public void testRefusesToStartWithoutAWriterForTheLatestSchema() {
+        SchemaRegistry schemaRegistry = mock(SchemaRegistry.class);
+        when(schemaRegistry.getLatest(CidadaoEventCodec.SUBJECT))
+            .thenReturn(Optional.of(new SchemaRegistry.Schema(2, CidadaoEventCodec.SUBJECT, 2, "{}")));
+
+        assertThatThrownBy(() -> new CidadaoEventCodec(schemaRegistry)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static CidadaoCadastradoEvent event(Long id) {
+        Cidadao cidadao = new Cidadao().nome("Maria").email("maria@bomdestino.gov.br");
+        cidadao.setId(id);
+        return new CidadaoCadastradoEvent(cidadao);
+    }
+}
@@ -0,0 +1,118 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
+import br.gov.bomdestino.cidadao.repository.TelefoneRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link CidadaoExportService}.
+ */
+@SpringBootTest(classes = CidadaoApp.class)
+@Transactional
+public class CidadaoExportServiceIT {
+
+    @Autowired
+    private CidadaoRepository cidadaoRepository;
+
+    @Autowired
+    private TelefoneRepository telefoneRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private CidadaoExportService cidadaoExportService;
+
+    private Cidadao first;
+
+    private Cidadao second;
+
+    @BeforeEach
+    public void init() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        // One row per page, so that the keyset pagination is exercised
+        applicationProperties.getExport().setPageSize(1);
+        cidadaoExportService = new CidadaoExportService(jdbcTemplate, transactionManager, objectMapper, applicationProperties);
+
+        first = cidadaoRepository.saveAndFlush(new Cidadao()
+            .nome("Maria, da Silva")
+            .sexo(Sexo.FEMININO)
+            .email("maria@bomdestino.gov.br")
+            .nascimento(LocalDate.of(1980, 1, 31))
+            .endereco(new Endereco().logradouro("Rua \"A\"").cidade("Bom Destino").estado(UF.DF).cep("70000000")));
+        telefoneRepository.saveAndFlush(new Telefone().ddd("61").numero("999999999").cidadao(first));
+        telefoneRepository.saveAndFlush(new Telefone().ddd("61").numero("888888888").cidadao(first));
+        second = cidadaoRepository.saveAndFlush(new Cidadao().nome("João").email("joao@bomdestino.gov.br"));
+    }
+
+    @Test
+    public void assertThatNdjsonContainsEveryCidadaoWithRelations() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long count = cidadaoExportService.export(outputStream, CidadaoFileFormat.NDJSON, true, true);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        JsonNode firstLine = objectMapper.readTree(lines[0]);
+        assertThat(firstLine.get("id").asLong()).isEqualTo(first.getId());
+        assertThat(firstLine.get("nome").asText()).isEqualTo("Maria, da Silva");
+        assertThat(firstLine.get("nascimento").asText()).isEqualTo("1980-01-31");
+        assertThat(firstLine.get("endereco").get("estado").asText()).isEqualTo("DF");
+        assertThat(firstLine.get("telefones")).hasSize(2);
+        JsonNode secondLine = objectMapper.readTree(lines[1]);
+        assertThat(secondLine.get("id").asLong()).isEqualTo(second.getId());
+        assertThat(secondLine.get("endereco").isNull()).isTrue();
+        assertThat(secondLine.get("telefones")).isEmpty();
+    }
+
+    @Test
+    public void assertThatCsvIsQuotedAndOmitsRelationsByDefault() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        cidadaoExportService.export(outputStream, CidadaoFileFormat.CSV, false, false);
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8.name())).isEqualTo(
+            "id,nome,sexo,email,nascimento\r\n" +
+            first.getId() + ",\"Maria, da Silva\",FEMININO,maria@bomdestino.gov.br,1980-01-31\r\n" +
+            second.getId() + ",João,,joao@bomdestino.gov.br,\r\n");
+    }
+
+    @Test
+    public void assertThatCsvIncludesEnderecoAndTelefones() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        cidadaoExportService.export(outputStream, CidadaoFileFormat.CSV, true, true);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\r\n");
+        assertThat(lines[0]).isEqualTo("id,nome,sexo,email,nascimento,logradouro,complemento,bairro,cidade,estado,cep,telefones");
+        assertThat(lines[1]).endsWith(",\"Rua \"\"A\"\"\",,,Bom Destino,DF,70000000,61 999999999;61 888888888");
+        assertThat(lines[2]).endsWith(",,,,,,,");
+    }
+}
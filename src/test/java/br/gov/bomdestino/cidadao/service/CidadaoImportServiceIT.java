@@ -0,0 +1,226 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.enumeration.Sexo;
+import br.gov.bomdestino.cidadao.domain.enumeration.UF;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
+import br.gov.bomdestino.cidadao.repository.OutboxEventRepository;
+import br.gov.bomdestino.cidadao.repository.TelefoneRepository;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoImportDTO;
+import br.gov.bomdestino.cidadao.service.dto.TelefoneDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for {@link CidadaoImportService}.
+ */
+@SpringBootTest(classes = CidadaoApp.class)
+@Transactional
+public class CidadaoImportServiceIT {
+
+    @Autowired
+    private CidadaoRepository cidadaoRepository;
+
+    @Autowired
+    private TelefoneRepository telefoneRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SearchIndexingService searchIndexingService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private CidadaoEventCodec cidadaoEventCodec;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CidadaoImportService cidadaoImportService;
+
+    @BeforeEach
+    public void init() {
+        // Run the job in the test thread, inside the test transaction
+        cidadaoImportService = createService(Runnable::run);
+    }
+
+    private CidadaoImportService createService(Executor executor) {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        // Several chunks even for a few rows
+        applicationProperties.getBulkImport().setChunkSize(2);
+        applicationProperties.getBulkImport().setMaxSizeMb(1);
+        return new CidadaoImportService(cidadaoRepository, telefoneRepository, entityManager, searchIndexingService,
+            outboxService, cidadaoEventCodec, objectMapper, validator, transactionManager, executor, applicationProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void assertThatNdjsonIsImportedAndInvalidRowsAreReported() throws Exception {
+        String ndjson =
+            "{\"nome\":\"Maria\",\"email\":\"maria@bomdestino.gov.br\",\"sexo\":\"FEMININO\",\"nascimento\":\"1980-01-31\"," +
+                "\"endereco\":{\"cidade\":\"Bom Destino\",\"estado\":\"DF\"},\"telefones\":[{\"ddd\":\"61\",\"numero\":\"999999999\"}]}\n" +
+            "\n" +
+            "{\"nome\":\"Sem email\"}\n" +
+            "{not json\n" +
+            "{\"nome\":\"João\",\"email\":\"joao@bomdestino.gov.br\"}\n";
+
+        CidadaoImportDTO job = cidadaoImportService.start(toStream(ndjson), CidadaoFileFormat.NDJSON);
+
+        assertThat(job.getStatus()).isEqualTo(CidadaoImportDTO.Status.COMPLETED);
+        assertThat(job.getRowsRead()).isEqualTo(4);
+        assertThat(job.getRowsImported()).isEqualTo(2);
+        assertThat(job.getRowsFailed()).isEqualTo(2);
+        assertThat(job.getErrors()).extracting(CidadaoImportDTO.RowError::getLine).containsExactly(3L, 4L);
+        assertThat(cidadaoImportService.findOne(job.getId())).contains(job);
+
+        List<Cidadao> cidadaos = cidadaoRepository.findAll();
+        assertThat(cidadaos).extracting(Cidadao::getNome).containsExactlyInAnyOrder("Maria", "João");
+        Cidadao maria = cidadaos.stream().filter(cidadao -> "Maria".equals(cidadao.getNome())).findFirst().get();
+        assertThat(maria.getNascimento()).isEqualTo(LocalDate.of(1980, 1, 31));
+        assertThat(maria.getEndereco().getEstado()).isEqualTo(UF.DF);
+        assertThat(telefoneRepository.findAll()).hasSize(1);
+        assertThat(outboxEventRepository.findAll()).hasSize(2);
+        CidadaoCadastradoEvent event = outboxEventRepository.findAll().stream()
+            .map(outboxEvent -> cidadaoEventCodec.decode(outboxEvent.getPayload()))
+            .filter(decoded -> decoded.getId().equals(maria.getId())).findFirst().get();
+        assertThat(event.getEndereco().getCidade()).isEqualTo("Bom Destino");
+        assertThat(event.getTelefones()).containsExactly(new TelefoneDTO("61", "999999999"));
+    }
+
+    @Test
+    public void assertThatCsvIsImported() throws Exception {
+        String csv = "id,nome,sexo,email,nascimento,cidade,estado,telefones\r\n" +
+            ",\"Silva, Ana\",feminino,ana@bomdestino.gov.br,1990-05-01,\"Bom\nDestino\",DF,61 999999999;61 888888888\r\n" +
+            ",Pedro,OUTRO,pedro@bomdestino.gov.br,,,,\r\n" +
+            ",Paulo,,paulo@bomdestino.gov.br,,,,\r\n";
+
+        CidadaoImportDTO job = cidadaoImportService.start(toStream(csv), CidadaoFileFormat.CSV);
+
+        assertThat(job.getStatus()).isEqualTo(CidadaoImportDTO.Status.COMPLETED);
+        assertThat(job.getRowsImported()).isEqualTo(2);
+        assertThat(job.getErrors()).extracting(CidadaoImportDTO.RowError::getLine).containsExactly(4L);
+        assertThat(job.getErrors().get(0).getMessage()).isEqualTo("sexo inválido: OUTRO");
+
+        Cidadao ana = cidadaoRepository.findAll().stream().filter(cidadao -> "Silva, Ana".equals(cidadao.getNome())).findFirst().get();
+        assertThat(ana.getSexo()).isEqualTo(Sexo.FEMININO);
+        assertThat(ana.getEndereco().getCidade()).isEqualTo("Bom\nDestino");
+        assertThat(telefoneRepository.findAll()).hasSize(2);
+    }
+
+    @Test
+    public void assertThatCsvWithoutRequiredColumnsFails() throws Exception {
+        CidadaoImportDTO job = cidadaoImportService.start(toStream("id,nome\r\n1,Maria\r\n"), CidadaoFileFormat.CSV);
+
+        assertThat(job.getStatus()).isEqualTo(CidadaoImportDTO.Status.FAILED);
+        assertThat(job.getMessage()).contains("nome e email");
+        assertThat(cidadaoRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    public void assertThatTooLargeUploadsAreRejected() {
+        StringBuilder ndjson = new StringBuilder();
+        while (ndjson.length() <= 1024 * 1024) {
+            ndjson.append("{\"nome\":\"Maria\",\"email\":\"maria@bomdestino.gov.br\"}\n");
+        }
+
+        assertThatThrownBy(() -> cidadaoImportService.start(toStream(ndjson.toString()), CidadaoFileFormat.NDJSON))
+            .isInstanceOf(CidadaoImportTooLargeException.class);
+        assertThat(cidadaoRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatRowsOfARejectedChunkAreRetriedOneByOne() throws Exception {
+        // Valid for Bean Validation, too long for the nome column
+        String nomeTooLong = String.join("", Collections.nCopies(300, "a"));
+        String ndjson =
+            "{\"nome\":\"Maria\",\"email\":\"maria@bomdestino.gov.br\",\"telefones\":[{\"ddd\":\"61\",\"numero\":\"999999999\"}]}\n" +
+            "{\"nome\":\"" + nomeTooLong + "\",\"email\":\"longo@bomdestino.gov.br\"}\n" +
+            "{\"nome\":\"João\",\"email\":\"joao@bomdestino.gov.br\"}\n";
+
+        try {
+            CidadaoImportDTO job = cidadaoImportService.start(toStream(ndjson), CidadaoFileFormat.NDJSON);
+
+            assertThat(job.getStatus()).isEqualTo(CidadaoImportDTO.Status.COMPLETED);
+            assertThat(job.getRowsRead()).isEqualTo(3);
+            assertThat(job.getRowsImported()).isEqualTo(2);
+            assertThat(job.getRowsFailed()).isEqualTo(1);
+            assertThat(job.getErrors()).extracting(CidadaoImportDTO.RowError::getLine).containsExactly(2L);
+            assertThat(job.getErrors().get(0).getMessage()).containsIgnoringCase("nome");
+
+            assertThat(cidadaoRepository.findAll()).extracting(Cidadao::getNome).containsExactlyInAnyOrder("Maria", "João");
+            assertThat(telefoneRepository.findAll()).hasSize(1);
+            assertThat(outboxEventRepository.findAll()).hasSize(2);
+        } finally {
+            telefoneRepository.deleteAll();
+            cidadaoRepository.deleteAll();
+            outboxEventRepository.deleteAll();
+        }
+    }
+
+    @Test
+    public void assertThatAnImportRejectedByTheExecutorFails() throws Exception {
+        cidadaoImportService = createService(command -> {
+            throw new RejectedExecutionException("Executor ocupado");
+        });
+        List<Path> spooledFiles = spooledFiles();
+
+        CidadaoImportDTO job = cidadaoImportService.start(toStream("{\"nome\":\"Maria\",\"email\":\"maria@bomdestino.gov.br\"}\n"),
+            CidadaoFileFormat.NDJSON);
+
+        assertThat(job.getStatus()).isEqualTo(CidadaoImportDTO.Status.FAILED);
+        assertThat(job.getFinishedDate()).isNotNull();
+        assertThat(cidadaoImportService.findOne(job.getId())).contains(job);
+        assertThat(spooledFiles()).isEqualTo(spooledFiles);
+    }
+
+    private static List<Path> spooledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("cidadao-import-")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static ByteArrayInputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
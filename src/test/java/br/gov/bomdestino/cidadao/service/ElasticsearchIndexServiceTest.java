@@ -0,0 +1,185 @@
+package br.gov.bomdestino.cidadao.service;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link ElasticsearchIndexService} class, against a stub of the Elasticsearch API and a
+ * single-member Hazelcast cluster.
+ */
+public class ElasticsearchIndexServiceTest {
+
+    private static final String OLD_INDEX = "cidadao_v1";
+
+    private static HazelcastInstance hazelcastInstance;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile int reindexStatus;
+
+    private volatile String aliasesBody;
+
+    private HttpServer server;
+
+    private RestHighLevelClient client;
+
+    private SearchIndexingService searchIndexingService;
+
+    private ElasticsearchIndexService elasticsearchIndexService;
+
+    @BeforeAll
+    public static void startHazelcast() {
+        Config config = new Config();
+        config.setInstanceName("elasticsearch-index-service-test");
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(false);
+        hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+    }
+
+    @AfterAll
+    public static void stopHazelcast() {
+        hazelcastInstance.shutdown();
+    }
+
+    @BeforeEach
+    public void setup() throws IOException {
+        reindexStatus = 200;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String request = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            String body = StreamUtils.copyToString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            events.add(request.replaceAll("cidadao_\\d{14}", "cidadao_{novo}"));
+            int status = 200;
+            String response = "{\"acknowledged\":true}";
+            if (request.equals("GET /_alias/cidadao")) {
+                response = "{\"" + OLD_INDEX + "\":{\"aliases\":{\"cidadao\":{}}}}";
+            } else if (request.equals("POST /_reindex")) {
+                status = reindexStatus;
+                response = status == 200 ? "{\"task\":\"no:42\"}" : "{\"error\":\"falha\",\"status\":" + status + "}";
+            } else if (request.equals("GET /_tasks/no:42")) {
+                response = "{\"completed\":true,\"task\":{\"node\":\"no\",\"id\":42,\"type\":\"transport\"," +
+                    "\"action\":\"indices:data/write/reindex\",\"start_time_in_millis\":0,\"running_time_in_nanos\":0," +
+                    "\"cancellable\":true}}";
+            } else if (request.equals("POST /_aliases")) {
+                aliasesBody = body;
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.start();
+        client = new RestHighLevelClient(RestClient.builder(new HttpHost("127.0.0.1", server.getAddress().getPort())));
+
+        searchIndexingService = mock(SearchIndexingService.class);
+        doAnswer(invocation -> events.add("pause")).when(searchIndexingService).pause();
+        doAnswer(invocation -> events.add("resume")).when(searchIndexingService).resume();
+        elasticsearchIndexService = new ElasticsearchIndexService(client, searchIndexingService, hazelcastInstance);
+    }
+
+    @AfterEach
+    public void destroy() throws IOException {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testCopiesToANewIndexWhileIndexingIsPausedOnEveryMember() {
+        elasticsearchIndexService.reindexCidadaos();
+
+        assertThat(events).containsExactly(
+            "GET /_alias/cidadao",
+            "PUT /cidadao_{novo}",
+            "pause",
+            "POST /_reindex",
+            "GET /_tasks/no:42",
+            "POST /_aliases",
+            "resume",
+            "DELETE /" + OLD_INDEX);
+        assertThat(aliasesBody).contains("\"remove\"", OLD_INDEX, "\"add\"", "cidadao_");
+        assertThat(elasticsearchIndexService.isRunning()).isFalse();
+    }
+
+    @Test
+    public void testDeletesTheNewIndexAndResumesWhenTheCopyFails() {
+        reindexStatus = 500;
+
+        elasticsearchIndexService.reindexCidadaos();
+
+        assertThat(events).containsExactly(
+            "GET /_alias/cidadao",
+            "PUT /cidadao_{novo}",
+            "pause",
+            "POST /_reindex",
+            "DELETE /cidadao_{novo}",
+            "resume");
+        assertThat(elasticsearchIndexService.isRunning()).isFalse();
+    }
+
+    @Test
+    public void testRunsOneMigrationAtATimeInTheCluster() throws Exception {
+        ExecutorService otherMember = Executors.newSingleThreadExecutor();
+        IMap<String, String> migrations = hazelcastInstance.getMap(ElasticsearchIndexService.MIGRATIONS_MAP);
+        try {
+            otherMember.submit(() -> migrations.lock("cidadao")).get();
+
+            elasticsearchIndexService.reindexCidadaos();
+
+            assertThat(elasticsearchIndexService.isRunning()).isTrue();
+            assertThat(events).isEmpty();
+        } finally {
+            otherMember.submit(() -> migrations.unlock("cidadao")).get();
+            otherMember.shutdown();
+        }
+        assertThat(elasticsearchIndexService.isRunning()).isFalse();
+    }
+
+    @Test
+    public void testStartsPausedDuringAMigration() throws Exception {
+        ExecutorService otherMember = Executors.newSingleThreadExecutor();
+        IMap<String, String> migrations = hazelcastInstance.getMap(ElasticsearchIndexService.MIGRATIONS_MAP);
+        SearchIndexingService joiningSearchIndexingService = mock(SearchIndexingService.class);
+        when(joiningSearchIndexingService.isPaused()).thenReturn(true);
+        try {
+            otherMember.submit(() -> migrations.lock("cidadao")).get();
+
+            new ElasticsearchIndexService(client, joiningSearchIndexingService, hazelcastInstance);
+
+            verify(joiningSearchIndexingService).pause();
+            verify(joiningSearchIndexingService, never()).resume();
+        } finally {
+            otherMember.submit(() -> migrations.unlock("cidadao")).get();
+            otherMember.shutdown();
+        }
+    }
+}
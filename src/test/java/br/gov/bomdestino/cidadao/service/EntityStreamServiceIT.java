@@ -0,0 +1,99 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.hibernate.QueryCounter;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Endereco;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
+import br.gov.bomdestino.cidadao.repository.EnderecoRepository;
+import br.gov.bomdestino.cidadao.repository.TelefoneRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link EntityStreamService}.
+ */
+@SpringBootTest(classes = CidadaoApp.class)
+@Transactional
+public class EntityStreamServiceIT {
+
+    @Autowired
+    private CidadaoRepository cidadaoRepository;
+
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+
+    @Autowired
+    private TelefoneRepository telefoneRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager em;
+
+    private EntityStreamService entityStreamService;
+
+    @BeforeEach
+    public void init() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        // Two rows per page, so that the keyset pagination is exercised
+        applicationProperties.getExport().setPageSize(2);
+        entityStreamService = new EntityStreamService(transactionManager, objectMapper, applicationProperties);
+    }
+
+    @Test
+    public void assertThatEveryTelefoneIsStreamedWithItsCidadao() throws Exception {
+        Cidadao cidadao = cidadaoRepository.saveAndFlush(new Cidadao()
+            .nome("Maria")
+            .email("maria@bomdestino.gov.br")
+            .endereco(new Endereco().cidade("Bom Destino")));
+        for (int i = 0; i < 3; i++) {
+            telefoneRepository.saveAndFlush(new Telefone().ddd("61").numero("99999999" + i).cidadao(cidadao));
+        }
+        em.clear();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        QueryCounter.reset();
+        long count = entityStreamService.streamNdjson(outputStream, telefoneRepository::findByIdGreaterThanOrderById, Telefone::getId);
+
+        // One query per page, the cidadao and its endereco being joined
+        assertThat(QueryCounter.count()).isEqualTo(2);
+        assertThat(count).isEqualTo(3);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(lines).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            JsonNode telefone = objectMapper.readTree(lines[i]);
+            assertThat(telefone.get("numero").asText()).isEqualTo("99999999" + i);
+            assertThat(telefone.get("cidadao").get("id").asLong()).isEqualTo(cidadao.getId());
+            assertThat(telefone.get("cidadao").get("endereco").get("cidade").asText()).isEqualTo("Bom Destino");
+        }
+    }
+
+    @Test
+    public void assertThatAnEmptyTableWritesNothing() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long count = entityStreamService.streamNdjson(outputStream, enderecoRepository::findByIdGreaterThanOrderById, Endereco::getId);
+
+        assertThat(count).isZero();
+        assertThat(outputStream.size()).isZero();
+    }
+}
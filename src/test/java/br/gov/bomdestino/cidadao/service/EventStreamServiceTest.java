@@ -0,0 +1,291 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.ApplicationProperties.EventStream.SlowSubscriberPolicy;
+import br.gov.bomdestino.cidadao.config.Constants;
+import br.gov.bomdestino.cidadao.config.KafkaProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit tests for the {@link EventStreamService} class.
+ */
+public class EventStreamServiceTest {
+
+    private static final String TOPIC = "topic-stream";
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private List<MockConsumer<String, byte[]>> consumers;
+
+    private CidadaoEventCodec cidadaoEventCodec;
+
+    private EventStreamService eventStreamService;
+
+    private long offset;
+
+    private volatile RuntimeException consumerFailure;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getEventStream().setHeartbeatIntervalMs(60000);
+        meterRegistry = new SimpleMeterRegistry();
+        consumers = new CopyOnWriteArrayList<>();
+        cidadaoEventCodec = new CidadaoEventCodec(new FileSchemaRegistry(new ApplicationProperties(), new ObjectMapper()));
+        eventStreamService = createService();
+    }
+
+    @AfterEach
+    public void destroy() {
+        eventStreamService.destroy();
+    }
+
+    private EventStreamService createService() {
+        return new EventStreamService(applicationProperties, new KafkaProperties(), props -> {
+            if (consumerFailure != null) {
+                throw consumerFailure;
+            }
+            MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+            consumer.schedulePollTask(() -> {
+                List<TopicPartition> partitions = new ArrayList<>();
+                Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+                consumer.subscription().forEach(topic -> {
+                    partitions.add(new TopicPartition(topic, 0));
+                    beginningOffsets.put(new TopicPartition(topic, 0), 0L);
+                });
+                consumer.updateBeginningOffsets(beginningOffsets);
+                consumer.rebalance(partitions);
+            });
+            consumers.add(consumer);
+            return consumer;
+        }, cidadaoEventCodec, new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS),
+            meterRegistry);
+    }
+
+    private void reconfigure() {
+        eventStreamService.destroy();
+        eventStreamService = createService();
+    }
+
+    @Test
+    public void testSubscribersOfTheSameTopicsShareOneConsumer() throws Exception {
+        TestSubscriber first = new TestSubscriber();
+        TestSubscriber second = new TestSubscriber();
+        eventStreamService.subscribe(Collections.singletonList(TOPIC), first);
+        eventStreamService.subscribe(Arrays.asList(TOPIC, TOPIC), second);
+
+        waitUntil(() -> !consumers.isEmpty());
+        publish(consumers.get(0), "1", "2");
+
+        waitUntil(() -> first.values.size() == 2 && second.values.size() == 2);
+        assertThat(first.values).containsExactly("1", "2");
+        assertThat(second.values).containsExactly("1", "2");
+        assertThat(consumers).hasSize(1);
+        assertThat(eventStreamService.getSubscriberCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("event.stream.consumers").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void testClosesTheConsumerWhenTheLastSubscriberLeaves() throws Exception {
+        EventStreamService.Subscription first = eventStreamService.subscribe(Collections.singletonList(TOPIC), new TestSubscriber()).get();
+        EventStreamService.Subscription second = eventStreamService.subscribe(Collections.singletonList(TOPIC), new TestSubscriber()).get();
+
+        first.cancel();
+        waitUntil(() -> !consumers.isEmpty());
+        assertThat(consumers.get(0).closed()).isFalse();
+        second.cancel();
+
+        waitUntil(() -> consumers.get(0).closed());
+        assertThat(eventStreamService.getSubscriberCount()).isZero();
+        assertThat(eventStreamService.getConsumerCount()).isZero();
+    }
+
+    @Test
+    public void testRejectsSubscribersOverTheLimit() {
+        applicationProperties.getEventStream().setMaxSubscribers(1);
+        reconfigure();
+
+        Optional<EventStreamService.Subscription> first = eventStreamService.subscribe(Collections.singletonList(TOPIC), new TestSubscriber());
+        Optional<EventStreamService.Subscription> second = eventStreamService.subscribe(Collections.singletonList(TOPIC), new TestSubscriber());
+
+        assertThat(first).isPresent();
+        assertThat(second).isEmpty();
+    }
+
+    @Test
+    public void testDropsTheOldestRecordsOfASlowSubscriber() throws Exception {
+        applicationProperties.getEventStream().setBufferSize(2);
+        reconfigure();
+        TestSubscriber subscriber = new TestSubscriber();
+        subscriber.blockOnFirstBatch();
+        eventStreamService.subscribe(Collections.singletonList(TOPIC), subscriber);
+
+        slowDown(subscriber, "2", "3", "4");
+        subscriber.release.countDown();
+
+        waitUntil(() -> subscriber.values.size() == 3);
+        assertThat(subscriber.values).containsExactly("1", "3", "4");
+        assertThat(subscriber.closed).isNotDone();
+    }
+
+    @Test
+    public void testDisconnectsASlowSubscriber() throws Exception {
+        applicationProperties.getEventStream().setBufferSize(2);
+        applicationProperties.getEventStream().setSlowSubscriberPolicy(SlowSubscriberPolicy.DISCONNECT);
+        reconfigure();
+        TestSubscriber subscriber = new TestSubscriber();
+        subscriber.blockOnFirstBatch();
+        eventStreamService.subscribe(Collections.singletonList(TOPIC), subscriber);
+
+        waitUntil(() -> !consumers.isEmpty());
+        publish(consumers.get(0), "1");
+        assertThat(subscriber.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        publish(consumers.get(0), "2", "3", "4");
+
+        assertThat(subscriber.closed.get(5, TimeUnit.SECONDS)).isInstanceOf(IOException.class);
+        subscriber.release.countDown();
+        assertThat(eventStreamService.getSubscriberCount()).isZero();
+        assertThat(meterRegistry.get("event.stream.subscribers.disconnected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testClosesTheSubscribersWhenTheConsumerCannotBeCreated() throws Exception {
+        consumerFailure = new KafkaException("Failed to construct kafka consumer");
+        TestSubscriber failed = new TestSubscriber();
+        eventStreamService.subscribe(Collections.singletonList(TOPIC), failed);
+
+        assertThat(failed.closed.get(5, TimeUnit.SECONDS)).isSameAs(consumerFailure);
+        assertThat(eventStreamService.getSubscriberCount()).isZero();
+        assertThat(eventStreamService.getConsumerCount()).isZero();
+
+        consumerFailure = null;
+        TestSubscriber subscriber = new TestSubscriber();
+        eventStreamService.subscribe(Collections.singletonList(TOPIC), subscriber);
+        waitUntil(() -> !consumers.isEmpty());
+        publish(consumers.get(0), "1");
+
+        waitUntil(() -> subscriber.values.equals(Collections.singletonList("1")));
+    }
+
+    @Test
+    public void testSendsTheBinaryCidadaoEventsAsJson() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber();
+        eventStreamService.subscribe(Collections.singletonList(Constants.CIDADAO_CADASTRADO_TOPIC), subscriber);
+        Cidadao cidadao = new Cidadao().nome("Maria").email("maria@bomdestino.gov.br");
+        cidadao.setId(1L);
+        byte[] unknownSchema = {0, 0, 0, 0, 99};
+
+        waitUntil(() -> !consumers.isEmpty());
+        publishBinary(consumers.get(0), Constants.CIDADAO_CADASTRADO_TOPIC, unknownSchema, cidadaoEventCodec.encode(new CidadaoCadastradoEvent(cidadao)));
+
+        waitUntil(() -> !subscriber.values.isEmpty());
+        assertThat(subscriber.values).hasSize(1);
+        assertThat(subscriber.values.get(0)).startsWith("{").contains("\"id\":1", "\"nome\":\"Maria\"", "\"email\":\"maria@bomdestino.gov.br\"");
+    }
+
+    /**
+     * Publishes "1", waits for the subscriber to block on it, then publishes the given values.
+     */
+    private void slowDown(TestSubscriber subscriber, String... values) throws Exception {
+        waitUntil(() -> !consumers.isEmpty());
+        publish(consumers.get(0), "1");
+        assertThat(subscriber.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        publish(consumers.get(0), values);
+        waitUntil(() -> meterRegistry.get("event.stream.records.dropped").counter().count() == values.length - 2);
+    }
+
+    private void publish(MockConsumer<String, byte[]> consumer, String... values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        publishBinary(consumer, TOPIC, bytes);
+    }
+
+    private void publishBinary(MockConsumer<String, byte[]> consumer, String topic, byte[]... values) {
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        for (byte[] value : values) {
+            records.add(new ConsumerRecord<>(topic, 0, offset++, null, value));
+        }
+        consumer.schedulePollTask(() -> records.forEach(consumer::addRecord));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Condition not met in 5 seconds");
+    }
+
+    private static class TestSubscriber implements EventStreamService.Subscriber {
+
+        private final List<String> values = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<Exception> closed = new CompletableFuture<>();
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private CountDownLatch release = new CountDownLatch(0);
+
+        private void blockOnFirstBatch() {
+            release = new CountDownLatch(1);
+        }
+
+        @Override
+        public void onRecords(List<String> batch) throws IOException {
+            values.addAll(batch);
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onHeartbeat() {
+        }
+
+        @Override
+        public void onClose(Exception cause) {
+            closed.complete(cause);
+        }
+    }
+}
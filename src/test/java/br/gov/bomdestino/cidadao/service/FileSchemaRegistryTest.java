@@ -0,0 +1,74 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link FileSchemaRegistry} class.
+ */
+public class FileSchemaRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testLoadsTheBundledSchemas() throws Exception {
+        FileSchemaRegistry registry = new FileSchemaRegistry(new ApplicationProperties(), new ObjectMapper());
+
+        assertThat(registry.getLatest(CidadaoEventCodec.SUBJECT)).hasValueSatisfying(schema -> {
+            assertThat(schema.getId()).isEqualTo(1);
+            assertThat(schema.getVersion()).isEqualTo(1);
+            assertThat(schema.getDefinition()).contains("\"name\":\"CidadaoCadastrado\"");
+        });
+        assertThat(registry.getById(1)).isEqualTo(registry.getLatest(CidadaoEventCodec.SUBJECT));
+        assertThat(registry.getById(2)).isEmpty();
+    }
+
+    @Test
+    public void testResolvesTheLatestVersionOfEachSubject() throws Exception {
+        write("a-v1.json", 1, "a", 1);
+        write("a-v2.json", 3, "a", 2);
+        write("b-v1.json", 2, "b", 1);
+
+        FileSchemaRegistry registry = registry();
+
+        assertThat(registry.getLatest("a").map(SchemaRegistry.Schema::getId)).contains(3);
+        assertThat(registry.getLatest("b").map(SchemaRegistry.Schema::getId)).contains(2);
+        assertThat(registry.getById(1).map(SchemaRegistry.Schema::getVersion)).contains(1);
+    }
+
+    @Test
+    public void testRejectsReusedIds() throws Exception {
+        write("a-v1.json", 1, "a", 1);
+        write("b-v1.json", 1, "b", 1);
+
+        assertThatThrownBy(this::registry).isInstanceOf(IllegalStateException.class).hasMessageContaining("id 1");
+    }
+
+    @Test
+    public void testRejectsIncompleteSchemaFiles() throws Exception {
+        Files.write(directory.resolve("a-v1.json"), "{\"id\": 1}".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(this::registry).isInstanceOf(IllegalStateException.class);
+    }
+
+    private FileSchemaRegistry registry() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSchemaRegistry().setLocation(directory.toUri().toString());
+        return new FileSchemaRegistry(applicationProperties, new ObjectMapper());
+    }
+
+    private void write(String file, int id, String subject, int version) throws Exception {
+        String content = "{\"id\": " + id + ", \"subject\": \"" + subject + "\", \"version\": " + version + ", \"schema\": {\"type\": \"record\"}}";
+        Files.write(directory.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
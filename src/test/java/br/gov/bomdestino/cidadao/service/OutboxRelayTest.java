@@ -0,0 +1,133 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.OutboxEvent;
+import br.gov.bomdestino.cidadao.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link OutboxRelay} class.
+ */
+public class OutboxRelayTest {
+
+    private OutboxEventRepository outboxEventRepository;
+
+    private MockProducer<String, byte[]> producer;
+
+    private MeterRegistry meterRegistry;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    public void setup() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+        meterRegistry = new SimpleMeterRegistry();
+        outboxRelay = new OutboxRelay(outboxEventRepository, mock(PlatformTransactionManager.class),
+            new ApplicationProperties(), kafkaTemplate(producer), meterRegistry);
+    }
+
+    @Test
+    public void testPublishesAndDeletesPendingEvents() {
+        List<OutboxEvent> events = Arrays.asList(createEvent(1L), createEvent(2L));
+        when(outboxEventRepository.findPendingForUpdate(any(Pageable.class)))
+            .thenReturn(events)
+            .thenReturn(Collections.emptyList());
+
+        outboxRelay.relay();
+
+        assertThat(producer.history()).hasSize(2);
+        assertThat(producer.history().get(0).key()).isEqualTo("1");
+        assertThat(producer.history().get(0).topic()).isEqualTo("cidadaoCadastrado");
+        verify(outboxEventRepository).deleteInBatch(events);
+        assertThat(meterRegistry.get("outbox.events.published").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testPublishesTheLegacyTextPayloads() {
+        OutboxEvent legacy = createEvent(1L).payload(null);
+        legacy.setLegacyPayload("1");
+        when(outboxEventRepository.findPendingForUpdate(any(Pageable.class)))
+            .thenReturn(Collections.singletonList(legacy))
+            .thenReturn(Collections.emptyList());
+
+        outboxRelay.relay();
+
+        assertThat(producer.history()).hasSize(1);
+        assertThat(producer.history().get(0).value()).isEqualTo("1".getBytes(StandardCharsets.UTF_8));
+        verify(outboxEventRepository).deleteInBatch(Collections.singletonList(legacy));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testKeepsEventsWhenBrokerFails() {
+        Producer<String, byte[]> failingProducer = mock(Producer.class);
+        when(failingProducer.send(any(), any())).thenAnswer(invocation -> {
+            RuntimeException exception = new RuntimeException("broker down");
+            invocation.<Callback>getArgument(1).onCompletion(null, exception);
+            CompletableFuture<RecordMetadata> failure = new CompletableFuture<>();
+            failure.completeExceptionally(exception);
+            return failure;
+        });
+        outboxRelay = new OutboxRelay(outboxEventRepository, mock(PlatformTransactionManager.class),
+            new ApplicationProperties(), kafkaTemplate(failingProducer), meterRegistry);
+        when(outboxEventRepository.findPendingForUpdate(any(Pageable.class)))
+            .thenReturn(Collections.singletonList(createEvent(1L)));
+
+        outboxRelay.relay();
+
+        verify(outboxEventRepository, never()).deleteInBatch(anyList());
+        assertThat(meterRegistry.get("outbox.events.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDoesNothingWhenDisabled() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getOutbox().setEnabled(false);
+        outboxRelay = new OutboxRelay(outboxEventRepository, mock(PlatformTransactionManager.class),
+            applicationProperties, kafkaTemplate(producer), meterRegistry);
+
+        outboxRelay.relay();
+
+        verifyNoInteractions(outboxEventRepository);
+    }
+
+    private static KafkaTemplate<String, byte[]> kafkaTemplate(Producer<String, byte[]> producer) {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<String, byte[]>(Collections.emptyMap()) {
+            @Override
+            protected Producer<String, byte[]> createKafkaProducer() {
+                return producer;
+            }
+        });
+    }
+
+    private OutboxEvent createEvent(Long id) {
+        OutboxEvent event = new OutboxEvent().topic("cidadaoCadastrado").messageKey(id.toString()).payload(id.toString().getBytes(StandardCharsets.UTF_8));
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,104 @@
+package br.gov.bomdestino.cidadao.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import org.springframework.validation.Validator;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link PhaseMetrics} class.
+ */
+public class PhaseMetricsTest {
+
+    private MeterRegistry meterRegistry;
+
+    private PhaseMetrics.Operation operation;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        operation = new PhaseMetrics(meterRegistry).operation("createCidadao", "/api/cidadaos");
+    }
+
+    @AfterEach
+    public void destroy() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testTimesEachPhase() {
+        assertThat(operation.time("save", () -> 42)).isEqualTo(42);
+        operation.run("index", () -> { });
+        operation.record("save", TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertThat(operation.getTimers().keySet()).containsExactly("save", "index");
+        assertThat(meterRegistry.get(PhaseMetrics.METER_NAME).tag("operation", "createCidadao").tag("uri", "/api/cidadaos")
+            .tag("phase", "save").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testReturnsTheSameOperation() {
+        PhaseMetrics phaseMetrics = new PhaseMetrics(meterRegistry);
+
+        assertThat(phaseMetrics.operation("createCidadao", "/api/cidadaos"))
+            .isSameAs(phaseMetrics.operation("createCidadao", "/api/cidadaos"));
+        assertThat(phaseMetrics.getOperations()).hasSize(1);
+    }
+
+    @Test
+    public void testTimesTheValidation() {
+        SmartValidator delegate = mock(SmartValidator.class);
+        when(delegate.supports(any())).thenReturn(true);
+        Object target = new Object();
+        Errors errors = new BeanPropertyBindingResult(target, "target");
+
+        Validator validator = operation.timed("validation", delegate);
+        validator.validate(target, errors);
+        ((SmartValidator) validator).validate(target, errors, "group");
+
+        assertThat(validator.supports(Object.class)).isTrue();
+        verify(delegate).validate(target, errors);
+        verify(delegate).validate(target, errors, "group");
+        assertThat(meterRegistry.get(PhaseMetrics.METER_NAME).tag("phase", "validation").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTimesTheCommitOnlyWhenCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        operation.timeCommit("commit");
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_COMMITTED);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        operation.timeCommit("commit");
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(meterRegistry.get(PhaseMetrics.METER_NAME).tag("phase", "commit").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testIgnoresTheCommitOutsideOfATransaction() {
+        operation.timeCommit("commit");
+
+        assertThat(operation.getTimers()).isEmpty();
+    }
+}
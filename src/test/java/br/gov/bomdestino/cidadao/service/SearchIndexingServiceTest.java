@@ -0,0 +1,354 @@
+package br.gov.bomdestino.cidadao.service;
+
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplate;
+import br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplateMockConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@link SearchIndexingService} class.
+ */
+public class SearchIndexingServiceTest {
+
+    private AsyncIndexTemplate asyncIndexTemplate;
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private SearchIndexingService searchIndexingService;
+
+    @BeforeEach
+    public void setup() {
+        asyncIndexTemplate = mock(AsyncIndexTemplate.class);
+        when(asyncIndexTemplate.bulk(anyList())).thenAnswer(AsyncIndexTemplateMockConfiguration::written);
+        applicationProperties = new ApplicationProperties();
+        // Only explicit flushes in these tests
+        applicationProperties.getSearchIndexing().setFlushIntervalMs(3600000);
+        // Failed writes are due again at once, unless a test sets a backoff
+        applicationProperties.getSearchIndexing().setRetryBackoffMs(0);
+        meterRegistry = new SimpleMeterRegistry();
+        searchIndexingService = createService();
+    }
+
+    @AfterEach
+    public void destroy() {
+        searchIndexingService.destroy();
+    }
+
+    @Test
+    public void testWritesChangesInOneBulk() {
+        Cidadao first = createCidadao(1L);
+        Cidadao second = createCidadao(2L);
+        Telefone telefone = new Telefone().ddd("61").numero("999999999");
+        telefone.setId(3L);
+
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 1L, first);
+        searchIndexingService.index(Cidadao.class, 2L, second);
+        searchIndexingService.index(Telefone.class, 3L, telefone);
+        assertThat(written).isNotDone();
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate).bulk(Arrays.asList(index(first), index(second),
+            AsyncIndexTemplate.Change.index(Telefone.class, 3L, telefone)));
+        assertThat(written).isCompleted();
+        assertThat(meterRegistry.get("search.indexing.documents").tag("operation", "index").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("search.indexing.flush").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCoalescesChangesForTheSameId() {
+        CompletableFuture<Duration> indexed = searchIndexingService.index(Cidadao.class, 1L, createCidadao(1L));
+        CompletableFuture<Duration> deleted = searchIndexingService.delete(Cidadao.class, 1L);
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.delete(Cidadao.class, 1L)));
+        // The superseded change is done once the newer one is written
+        assertThat(indexed).isCompleted();
+        assertThat(indexed.join()).isEqualTo(deleted.join());
+    }
+
+    @Test
+    public void testRetriesFailedWrites() {
+        Cidadao cidadao = createCidadao(1L);
+        when(asyncIndexTemplate.bulk(anyList()))
+            .thenReturn(failed(new IllegalStateException("Elasticsearch unavailable")))
+            .thenAnswer(AsyncIndexTemplateMockConfiguration::written);
+
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 1L, cidadao);
+        searchIndexingService.flush();
+        assertThat(written).isNotDone();
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate, times(2)).bulk(Collections.singletonList(index(cidadao)));
+        assertThat(written).isCompleted();
+        assertThat(meterRegistry.get("search.indexing.retries").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testKeepsRetryingWhileElasticsearchIsUnreachable() {
+        Cidadao cidadao = createCidadao(1L);
+        CompletableFuture<BulkResponse> unreachable = failed(new ConnectException("Connection refused"));
+        when(asyncIndexTemplate.bulk(anyList()))
+            .thenReturn(unreachable, unreachable, unreachable, unreachable, unreachable)
+            .thenAnswer(AsyncIndexTemplateMockConfiguration::written);
+
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 1L, cidadao);
+        for (int i = 0; i < 6; i++) {
+            searchIndexingService.flush();
+        }
+
+        verify(asyncIndexTemplate, times(6)).bulk(Collections.singletonList(index(cidadao)));
+        assertThat(written).isCompleted();
+        assertThat(meterRegistry.get("search.indexing.dropped").counter().count()).isZero();
+        assertThat(meterRegistry.get("search.indexing.documents").tag("operation", "index").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("search.indexing.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    public void testGivesUpRejectedDocumentsAfterMaxRetries() {
+        Cidadao cidadao = createCidadao(1L);
+        when(asyncIndexTemplate.bulk(anyList())).thenReturn(CompletableFuture.completedFuture(
+            new BulkResponse(new BulkItemResponse[]{failedItem(0, RestStatus.BAD_REQUEST)}, 0)));
+
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 1L, cidadao);
+        for (int i = 0; i < 6; i++) {
+            searchIndexingService.flush();
+        }
+
+        verify(asyncIndexTemplate, times(4)).bulk(Collections.singletonList(index(cidadao)));
+        assertThat(written).isCompletedExceptionally();
+        assertThat(meterRegistry.get("search.indexing.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRetriesOnlyTheFailedDocumentsOfABulk() {
+        Cidadao first = createCidadao(1L);
+        Cidadao second = createCidadao(2L);
+        when(asyncIndexTemplate.bulk(anyList()))
+            .thenReturn(CompletableFuture.completedFuture(new BulkResponse(new BulkItemResponse[]{
+                failedItem(0, RestStatus.TOO_MANY_REQUESTS), writtenItem(1)}, 0)))
+            .thenAnswer(AsyncIndexTemplateMockConfiguration::written);
+
+        searchIndexingService.index(Cidadao.class, 1L, first);
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 2L, second);
+        searchIndexingService.flush();
+        assertThat(written).isCompleted();
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate).bulk(Arrays.asList(index(first), index(second)));
+        verify(asyncIndexTemplate).bulk(Collections.singletonList(index(first)));
+        assertThat(meterRegistry.get("search.indexing.documents").tag("operation", "index").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testWaitsForTheBackoffBeforeRetrying() {
+        applicationProperties.getSearchIndexing().setRetryBackoffMs(3600000);
+        Cidadao cidadao = createCidadao(1L);
+        when(asyncIndexTemplate.bulk(anyList())).thenReturn(failed(new ConnectException("Connection refused")));
+
+        searchIndexingService.index(Cidadao.class, 1L, cidadao);
+        searchIndexingService.flush();
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate, times(1)).bulk(anyList());
+        assertThat(meterRegistry.get("search.indexing.pending").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStopsFlushingAtTheFirstFailedBulk() {
+        Cidadao first = createCidadao(1L);
+        Cidadao second = createCidadao(2L);
+        when(asyncIndexTemplate.bulk(anyList())).thenReturn(failed(new ConnectException("Connection refused")));
+
+        searchIndexingService.index(Cidadao.class, 1L, first);
+        searchIndexingService.index(Cidadao.class, 2L, second);
+        // One bulk per change, set once queued so that only this flush writes them
+        applicationProperties.getSearchIndexing().setBulkSize(1);
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate, after(200).times(1)).bulk(anyList());
+        verify(asyncIndexTemplate).bulk(Collections.singletonList(index(first)));
+    }
+
+    @Test
+    public void testSendsOneBulkAtATime() {
+        Cidadao first = createCidadao(1L);
+        Cidadao second = createCidadao(2L);
+        CompletableFuture<BulkResponse> response = new CompletableFuture<>();
+        when(asyncIndexTemplate.bulk(anyList()))
+            .thenReturn(response)
+            .thenAnswer(AsyncIndexTemplateMockConfiguration::written);
+
+        searchIndexingService.index(Cidadao.class, 1L, first);
+        searchIndexingService.index(Cidadao.class, 2L, second);
+        applicationProperties.getSearchIndexing().setBulkSize(1);
+        searchIndexingService.flush();
+        searchIndexingService.flush();
+
+        verify(asyncIndexTemplate, times(1)).bulk(anyList());
+
+        response.complete(new BulkResponse(new BulkItemResponse[]{writtenItem(0)}, 0));
+
+        verify(asyncIndexTemplate, timeout(5000)).bulk(Collections.singletonList(index(second)));
+    }
+
+    @Test
+    public void testQueuesBeyondMaxPendingRatherThanWritingInTheCaller() {
+        applicationProperties.getSearchIndexing().setMaxPending(1);
+        applicationProperties.getSearchIndexing().setOfferTimeoutMs(1);
+        CompletableFuture<BulkResponse> response = new CompletableFuture<>();
+        when(asyncIndexTemplate.bulk(anyList())).thenReturn(response);
+        Cidadao first = createCidadao(1L);
+        Cidadao second = createCidadao(2L);
+
+        searchIndexingService.index(Cidadao.class, 1L, first);
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 2L, second);
+
+        assertThat(written).isNotDone();
+        verify(asyncIndexTemplate, never()).bulk(Collections.singletonList(index(second)));
+        assertThat(meterRegistry.get("search.indexing.overflow").counter().count()).isEqualTo(1);
+        // Answered, for destroy() to write the rest
+        response.complete(new BulkResponse(new BulkItemResponse[]{writtenItem(0)}, 0));
+    }
+
+    @Test
+    public void testCancelsTheChangesOfARolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 1L, createCidadao(1L));
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            assertThat(written).isCancelled();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        searchIndexingService.flush();
+
+        verifyNoInteractions(asyncIndexTemplate);
+    }
+
+    @Test
+    public void testWritesImmediatelyWhenSynchronous() {
+        searchIndexingService.destroy();
+        applicationProperties.getSearchIndexing().setAsync(false);
+        searchIndexingService = createService();
+        Cidadao cidadao = createCidadao(1L);
+
+        CompletableFuture<Duration> written = searchIndexingService.index(Cidadao.class, 1L, cidadao);
+
+        verify(asyncIndexTemplate).bulk(Collections.singletonList(index(cidadao)));
+        assertThat(written).isCompleted();
+    }
+
+    @Test
+    public void testKeepsChangesWhilePaused() {
+        applicationProperties.getSearchIndexing().setMaxPending(1);
+        applicationProperties.getSearchIndexing().setOfferTimeoutMs(1);
+        Cidadao first = createCidadao(1L);
+        Cidadao second = createCidadao(2L);
+
+        searchIndexingService.pause();
+        searchIndexingService.index(Cidadao.class, 1L, first);
+        // Beyond max-pending
+        searchIndexingService.index(Cidadao.class, 2L, second);
+        searchIndexingService.flush();
+
+        verifyNoInteractions(asyncIndexTemplate);
+        assertThat(meterRegistry.get("search.indexing.pending").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("search.indexing.overflow").counter().count()).isZero();
+
+        searchIndexingService.resume();
+
+        verify(asyncIndexTemplate, timeout(5000)).bulk(Arrays.asList(index(first), index(second)));
+    }
+
+    @Test
+    public void testKeepsSynchronousChangesWhilePaused() {
+        searchIndexingService.destroy();
+        applicationProperties.getSearchIndexing().setAsync(false);
+        searchIndexingService = createService();
+        Cidadao cidadao = createCidadao(1L);
+
+        searchIndexingService.pause();
+        searchIndexingService.index(Cidadao.class, 1L, cidadao);
+
+        verifyNoInteractions(asyncIndexTemplate);
+
+        searchIndexingService.resume();
+
+        verify(asyncIndexTemplate, timeout(5000)).bulk(Collections.singletonList(index(cidadao)));
+    }
+
+    @Test
+    public void testPauseWaitsForTheWritesInFlight() throws Exception {
+        CompletableFuture<BulkResponse> response = new CompletableFuture<>();
+        when(asyncIndexTemplate.bulk(anyList())).thenReturn(response);
+        searchIndexingService.index(Cidadao.class, 1L, createCidadao(1L));
+        searchIndexingService.flush();
+
+        CompletableFuture<Void> paused = CompletableFuture.runAsync(searchIndexingService::pause);
+
+        Thread.sleep(100);
+        assertThat(paused).isNotDone();
+        response.complete(new BulkResponse(new BulkItemResponse[]{writtenItem(0)}, 0));
+        paused.get(5, TimeUnit.SECONDS);
+    }
+
+    private SearchIndexingService createService() {
+        return new SearchIndexingService(asyncIndexTemplate, applicationProperties, meterRegistry);
+    }
+
+    private static AsyncIndexTemplate.Change index(Cidadao cidadao) {
+        return AsyncIndexTemplate.Change.index(Cidadao.class, cidadao.getId(), cidadao);
+    }
+
+    private static CompletableFuture<BulkResponse> failed(Exception e) {
+        CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static BulkItemResponse writtenItem(int id) {
+        return new BulkItemResponse(id, DocWriteRequest.OpType.INDEX,
+            new IndexResponse(new ShardId("cidadao", "_na_", 0), "_doc", String.valueOf(id), 0, 1, 1, true));
+    }
+
+    private static BulkItemResponse failedItem(int id, RestStatus status) {
+        return new BulkItemResponse(id, DocWriteRequest.OpType.INDEX,
+            new BulkItemResponse.Failure("cidadao", "_doc", String.valueOf(id), new ElasticsearchException("falha"), status));
+    }
+
+    private Cidadao createCidadao(Long id) {
+        Cidadao cidadao = new Cidadao().nome("Nome " + id).email(id + "@bomdestino.gov.br");
+        cidadao.setId(id);
+        return cidadao;
+    }
+}
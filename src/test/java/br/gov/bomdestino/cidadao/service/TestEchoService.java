@@ -0,0 +1,15 @@
+package br.gov.bomdestino.cidadao.service;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Stand-in service for {@code LoggingAspectTest}: it lives in the service package and is a {@link Service},
+ * so the {@code LoggingAspect} pointcuts match it exactly as they match the application services.
+ */
+@Service
+public class TestEchoService {
+
+    public String echo(String value) {
+        return value;
+    }
+}
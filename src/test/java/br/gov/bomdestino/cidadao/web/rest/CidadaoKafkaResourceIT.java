@@ -1,20 +1,32 @@
 package br.gov.bomdestino.cidadao.web.rest;
 
+import br.gov.bomdestino.cidadao.config.ApplicationProperties;
+import br.gov.bomdestino.cidadao.config.Constants;
 import br.gov.bomdestino.cidadao.config.KafkaProperties;
+import br.gov.bomdestino.cidadao.service.CidadaoEventCodec;
+import br.gov.bomdestino.cidadao.service.EventStreamService;
+import br.gov.bomdestino.cidadao.service.FileSchemaRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.testcontainers.containers.KafkaContainer;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
@@ -49,7 +61,7 @@ class CidadaoKafkaResourceIT {
     }
 
     @BeforeEach
-    void setup() {
+    void setup() throws IOException {
         KafkaProperties kafkaProperties = new KafkaProperties();
         Map<String, String> producerProps = getProducerProps();
         kafkaProperties.setProducer(new HashMap<>(producerProps));
@@ -58,7 +70,16 @@ class CidadaoKafkaResourceIT {
         consumerProps.put("client.id", "default-client");
         kafkaProperties.setConsumer(consumerProps);
 
-        CidadaoKafkaResource kafkaResource = new CidadaoKafkaResource(kafkaProperties);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getEventStream().setAutoOffsetReset("earliest");
+        EventStreamService eventStreamService = new EventStreamService(applicationProperties, kafkaProperties,
+            new CidadaoEventCodec(new FileSchemaRegistry(applicationProperties, new ObjectMapper())), new ObjectMapper(), new SimpleMeterRegistry());
+
+        KafkaTemplate<String, byte[]> kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(kafkaProperties.getProducerProps(),
+            new StringSerializer(), new ByteArraySerializer()));
+
+        CidadaoKafkaResource kafkaResource = new CidadaoKafkaResource(kafkaTemplate, eventStreamService,
+            applicationProperties, new ObjectMapper());
 
         restMockMvc = MockMvcBuilders.standaloneSetup(kafkaResource).build();
     }
@@ -79,6 +100,31 @@ class CidadaoKafkaResourceIT {
         assertThat(record.value()).isEqualTo("value-produce");
     }
 
+    @Test
+    void producesBatchesOfMessages() throws Exception {
+        restMockMvc.perform(post("/api/cidadao-kafka/publish/topic-batch/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[{\"key\":\"1\",\"message\":\"value-1\"},{\"message\":\"value-2\"}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].topic").value("topic-batch"))
+            .andExpect(jsonPath("$[0].offset").value(0))
+            .andExpect(jsonPath("$[1].offset").value(1));
+        restMockMvc.perform(post("/api/cidadao-kafka/publish/topic-batch/batch")
+            .contentType(Constants.APPLICATION_NDJSON_VALUE)
+            .content("{\"message\":\"value-3\"}\n{\"message\":\"value-4\"}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[1].offset").value(3))
+            .andExpect(jsonPath("$[1].error").doesNotExist());
+
+        Map<String, Object> consumerProps = new HashMap<>(getConsumerProps("group-batch"));
+        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
+        consumer.subscribe(Collections.singletonList("topic-batch"));
+        ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+
+        assertThat(records.count()).isEqualTo(4);
+    }
+
     @Test
     void consumesMessages() throws Exception {
         Map<String, Object> producerProps = new HashMap<>(getProducerProps());
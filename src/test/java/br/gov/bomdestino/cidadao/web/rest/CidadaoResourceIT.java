@@ -1,10 +1,20 @@
 package br.gov.bomdestino.cidadao.web.rest;
 
 import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.config.hibernate.QueryCounter;
 import br.gov.bomdestino.cidadao.domain.Cidadao;
+import br.gov.bomdestino.cidadao.domain.Telefone;
+import br.gov.bomdestino.cidadao.domain.OutboxEvent;
 import br.gov.bomdestino.cidadao.repository.CidadaoRepository;
-import br.gov.bomdestino.cidadao.repository.search.CidadaoSearchRepository;
-
+import br.gov.bomdestino.cidadao.repository.OutboxEventRepository;
+import br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplate;
+import br.gov.bomdestino.cidadao.repository.search.CidadaoSearchQueries;
+import br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplate;
+import br.gov.bomdestino.cidadao.service.CidadaoEventCodec;
+import br.gov.bomdestino.cidadao.service.PhaseMetrics;
+import br.gov.bomdestino.cidadao.service.dto.CidadaoCadastradoEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -18,16 +28,20 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -57,17 +71,34 @@ public class CidadaoResourceIT {
     @Autowired
     private CidadaoRepository cidadaoRepository;
 
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private CidadaoEventCodec cidadaoEventCodec;
+
     /**
-     * This repository is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
+     * This template is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
      *
-     * @see br.gov.bomdestino.cidadao.repository.search.CidadaoSearchRepositoryMockConfiguration
+     * @see br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplateMockConfiguration
      */
     @Autowired
-    private CidadaoSearchRepository mockCidadaoSearchRepository;
+    private AsyncIndexTemplate mockAsyncIndexTemplate;
+
+    /**
+     * This template is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
+     *
+     * @see br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplateMockConfiguration
+     */
+    @Autowired
+    private AsyncSearchTemplate mockAsyncSearchTemplate;
 
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private MockMvc restCidadaoMockMvc;
 
@@ -127,7 +158,24 @@ public class CidadaoResourceIT {
         assertThat(testCidadao.getNascimento()).isEqualTo(DEFAULT_NASCIMENTO);
 
         // Validate the Cidadao in Elasticsearch
-        verify(mockCidadaoSearchRepository, times(1)).save(testCidadao);
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.index(Cidadao.class, testCidadao.getId(), testCidadao)));
+
+        // Validate the cidadaoCadastrado event in the outbox
+        List<OutboxEvent> outboxEventList = outboxEventRepository.findAll();
+        assertThat(outboxEventList).hasSize(1);
+        assertThat(outboxEventList.get(0).getTopic()).isEqualTo("cidadaoCadastrado");
+        assertThat(outboxEventList.get(0).getMessageKey()).isEqualTo(testCidadao.getId().toString());
+        CidadaoCadastradoEvent event = cidadaoEventCodec.decode(outboxEventList.get(0).getPayload());
+        assertThat(event.getId()).isEqualTo(testCidadao.getId());
+        assertThat(event.getNome()).isEqualTo(DEFAULT_NOME);
+        assertThat(event.getEmail()).isEqualTo(DEFAULT_EMAIL);
+        assertThat(event.getNascimento()).isEqualTo(DEFAULT_NASCIMENTO);
+
+        // Validate the phase timers
+        for (String phase : new String[] {"validation", "save", "index", "serialization", "outbox"}) {
+            assertThat(meterRegistry.get(PhaseMetrics.METER_NAME).tag("operation", "createCidadao").tag("phase", phase)
+                .timer().count()).as(phase).isPositive();
+        }
     }
 
     @Test
@@ -149,7 +197,7 @@ public class CidadaoResourceIT {
         assertThat(cidadaoList).hasSize(databaseSizeBeforeCreate);
 
         // Validate the Cidadao in Elasticsearch
-        verify(mockCidadaoSearchRepository, times(0)).save(cidadao);
+        verify(mockAsyncIndexTemplate, never()).bulk(anyList());
     }
 
 
@@ -208,6 +256,107 @@ public class CidadaoResourceIT {
             .andExpect(jsonPath("$.[*].nascimento").value(hasItem(DEFAULT_NASCIMENTO.toString())));
     }
     
+    @Test
+    @Transactional
+    public void getAllCidadaosRunsConstantNumberOfQueries() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 3; i++) {
+            persistCidadaoWithRelationships();
+        }
+        em.flush();
+        em.clear();
+
+        // Page query with the endereco joined, plus the count query
+        QueryCounter.reset();
+        restCidadaoMockMvc.perform(get("/api/cidadaos?sort=id,desc&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[*].endereco.cidade").value(hasItem(EnderecoResourceIT.createEntity(em).getCidade())))
+            .andExpect(jsonPath("$.[0].telefones").value(nullValue()));
+        assertThat(QueryCounter.count()).isEqualTo(2);
+        em.clear();
+
+        // Plus a single query for the telefones of the whole page
+        QueryCounter.reset();
+        restCidadaoMockMvc.perform(get("/api/cidadaos?sort=id,desc&size=2&expand=endereco,telefones"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].telefones", hasSize(2)))
+            .andExpect(jsonPath("$.[1].telefones", hasSize(2)));
+        assertThat(QueryCounter.count()).isEqualTo(3);
+    }
+
+    @Test
+    @Transactional
+    public void getAllCidadaosWithInvalidExpand() throws Exception {
+        restCidadaoMockMvc.perform(get("/api/cidadaos?expand=foo"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getCidadaoWithTelefones() throws Exception {
+        // Initialize the database
+        Cidadao persisted = persistCidadaoWithRelationships();
+        em.flush();
+        em.clear();
+
+        QueryCounter.reset();
+        restCidadaoMockMvc.perform(get("/api/cidadaos/{id}?expand=telefones", persisted.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(persisted.getId().intValue()))
+            .andExpect(jsonPath("$.endereco.id").value(persisted.getEndereco().getId().intValue()))
+            .andExpect(jsonPath("$.telefones", hasSize(2)));
+        assertThat(QueryCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional
+    public void lookupCidadaos() throws Exception {
+        // Initialize the database
+        Cidadao persisted = persistCidadaoWithRelationships();
+        em.flush();
+        em.clear();
+        Telefone telefone = persisted.getTelefones().iterator().next();
+
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup?email={email}", DEFAULT_EMAIL))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(persisted.getId().intValue())));
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup?cep={cep}", persisted.getEndereco().getCep()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(persisted.getId().intValue())))
+            .andExpect(jsonPath("$.[*].endereco.id").value(hasItem(persisted.getEndereco().getId().intValue())));
+        // Both telefones have the same ddd and numero, the cidadao is returned once
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup?ddd={ddd}&numero={numero}", telefone.getDdd(), telefone.getNumero()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[?(@.id == " + persisted.getId() + ")]", hasSize(1)));
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup?email=nobody@bomdestino.gov.br"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void lookupCidadaosWithInvalidCriteria() throws Exception {
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup"))
+            .andExpect(status().isBadRequest());
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup?email={email}&cep=29000-000", DEFAULT_EMAIL))
+            .andExpect(status().isBadRequest());
+        restCidadaoMockMvc.perform(get("/api/cidadaos/lookup?ddd=27"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private Cidadao persistCidadaoWithRelationships() {
+        Cidadao persisted = createEntity(em).endereco(EnderecoResourceIT.createEntity(em));
+        em.persist(persisted);
+        for (int i = 0; i < 2; i++) {
+            Telefone telefone = TelefoneResourceIT.createEntity(em);
+            persisted.addTelefones(telefone);
+            em.persist(telefone);
+        }
+        return persisted;
+    }
+
     @Test
     @Transactional
     public void getCidadao() throws Exception {
@@ -265,7 +414,7 @@ public class CidadaoResourceIT {
         assertThat(testCidadao.getNascimento()).isEqualTo(UPDATED_NASCIMENTO);
 
         // Validate the Cidadao in Elasticsearch
-        verify(mockCidadaoSearchRepository, times(1)).save(testCidadao);
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.index(Cidadao.class, testCidadao.getId(), testCidadao)));
     }
 
     @Test
@@ -284,7 +433,7 @@ public class CidadaoResourceIT {
         assertThat(cidadaoList).hasSize(databaseSizeBeforeUpdate);
 
         // Validate the Cidadao in Elasticsearch
-        verify(mockCidadaoSearchRepository, times(0)).save(cidadao);
+        verify(mockAsyncIndexTemplate, never()).bulk(anyList());
     }
 
     @Test
@@ -305,7 +454,27 @@ public class CidadaoResourceIT {
         assertThat(cidadaoList).hasSize(databaseSizeBeforeDelete - 1);
 
         // Validate the Cidadao in Elasticsearch
-        verify(mockCidadaoSearchRepository, times(1)).deleteById(cidadao.getId());
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.delete(Cidadao.class, cidadao.getId())));
+    }
+
+    @Test
+    @Transactional
+    public void exportCidadaos() throws Exception {
+        MvcResult asyncResult = restCidadaoMockMvc.perform(get("/api/cidadaos/export?format=csv&endereco=true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restCidadaoMockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"cidadaos.csv\""))
+            .andExpect(content().string(startsWith("id,nome,sexo,email,nascimento,logradouro")));
+    }
+
+    @Test
+    @Transactional
+    public void exportCidadaosWithInvalidFormat() throws Exception {
+        restCidadaoMockMvc.perform(get("/api/cidadaos/export?format=xml"))
+            .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -314,11 +483,14 @@ public class CidadaoResourceIT {
         // Configure the mock search repository
         // Initialize the database
         cidadaoRepository.saveAndFlush(cidadao);
-        when(mockCidadaoSearchRepository.search(queryStringQuery("id:" + cidadao.getId()), PageRequest.of(0, 20)))
-            .thenReturn(new PageImpl<>(Collections.singletonList(cidadao), PageRequest.of(0, 1), 1));
+        when(mockAsyncSearchTemplate.search(CidadaoSearchQueries.byNomeOrEmail(DEFAULT_NOME), PageRequest.of(0, 20), Cidadao.class))
+            .thenReturn(CompletableFuture.completedFuture(new PageImpl<>(Collections.singletonList(cidadao), PageRequest.of(0, 1), 1)));
 
         // Search the cidadao
-        restCidadaoMockMvc.perform(get("/api/_search/cidadaos?query=id:" + cidadao.getId()))
+        MvcResult asyncResult = restCidadaoMockMvc.perform(get("/api/_search/cidadaos?query=" + DEFAULT_NOME))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restCidadaoMockMvc.perform(asyncDispatch(asyncResult))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(cidadao.getId().intValue())))
@@ -0,0 +1,59 @@
+package br.gov.bomdestino.cidadao.web.rest;
+
+import br.gov.bomdestino.cidadao.CidadaoApp;
+import br.gov.bomdestino.cidadao.security.AuthoritiesConstants;
+import br.gov.bomdestino.cidadao.service.ElasticsearchIndexService;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for the {@link ElasticsearchIndexResource} REST controller.
+ */
+@SpringBootTest(classes = CidadaoApp.class)
+@AutoConfigureMockMvc
+public class ElasticsearchIndexResourceIT {
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private MockMvc restElasticsearchIndexMockMvc;
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    public void assertThatAdminsCanStartTheReindex() throws Exception {
+        restElasticsearchIndexMockMvc.perform(post("/api/elasticsearch/index/cidadaos"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("X-cidadaoApp-alert", "Reindexação de cidadãos iniciada"));
+    }
+
+    @Test
+    @WithMockUser
+    public void assertThatOnlyAdminsCanStartTheReindex() throws Exception {
+        restElasticsearchIndexMockMvc.perform(post("/api/elasticsearch/index/cidadaos"))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    public void assertThatTheReindexIsRejectedWhileRunningOnAnyMember() throws Exception {
+        IMap<String, String> migrations = hazelcastInstance.getMap(ElasticsearchIndexService.MIGRATIONS_MAP);
+        migrations.lock("cidadao");
+        try {
+            restElasticsearchIndexMockMvc.perform(post("/api/elasticsearch/index/cidadaos"))
+                .andExpect(status().isBadRequest());
+        } finally {
+            migrations.unlock("cidadao");
+        }
+    }
+}
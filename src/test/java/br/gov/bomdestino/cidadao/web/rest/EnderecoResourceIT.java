@@ -3,7 +3,8 @@ package br.gov.bomdestino.cidadao.web.rest;
 import br.gov.bomdestino.cidadao.CidadaoApp;
 import br.gov.bomdestino.cidadao.domain.Endereco;
 import br.gov.bomdestino.cidadao.repository.EnderecoRepository;
-import br.gov.bomdestino.cidadao.repository.search.EnderecoSearchRepository;
+import br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplate;
+import br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplate;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,14 +17,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -60,12 +65,20 @@ public class EnderecoResourceIT {
     private EnderecoRepository enderecoRepository;
 
     /**
-     * This repository is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
+     * This template is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
      *
-     * @see br.gov.bomdestino.cidadao.repository.search.EnderecoSearchRepositoryMockConfiguration
+     * @see br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplateMockConfiguration
      */
     @Autowired
-    private EnderecoSearchRepository mockEnderecoSearchRepository;
+    private AsyncIndexTemplate mockAsyncIndexTemplate;
+
+    /**
+     * This template is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
+     *
+     * @see br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplateMockConfiguration
+     */
+    @Autowired
+    private AsyncSearchTemplate mockAsyncSearchTemplate;
 
     @Autowired
     private EntityManager em;
@@ -135,7 +148,7 @@ public class EnderecoResourceIT {
         assertThat(testEndereco.getCep()).isEqualTo(DEFAULT_CEP);
 
         // Validate the Endereco in Elasticsearch
-        verify(mockEnderecoSearchRepository, times(1)).save(testEndereco);
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.index(Endereco.class, testEndereco.getId(), testEndereco)));
     }
 
     @Test
@@ -157,7 +170,7 @@ public class EnderecoResourceIT {
         assertThat(enderecoList).hasSize(databaseSizeBeforeCreate);
 
         // Validate the Endereco in Elasticsearch
-        verify(mockEnderecoSearchRepository, times(0)).save(endereco);
+        verify(mockAsyncIndexTemplate, never()).bulk(anyList());
     }
 
 
@@ -180,6 +193,26 @@ public class EnderecoResourceIT {
             .andExpect(jsonPath("$.[*].cep").value(hasItem(DEFAULT_CEP)));
     }
     
+    @Test
+    @Transactional
+    public void getAllEnderecosCapsThePageSize() throws Exception {
+        restEnderecoMockMvc.perform(get("/api/enderecos?size=100000"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Link", containsString("size=1000>")))
+            .andExpect(header().string("X-Total-Count", notNullValue()));
+    }
+
+    @Test
+    @Transactional
+    public void streamAllEnderecos() throws Exception {
+        MvcResult asyncResult = restEnderecoMockMvc.perform(get("/api/enderecos?stream=true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restEnderecoMockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"));
+    }
+
     @Test
     @Transactional
     public void getEndereco() throws Exception {
@@ -243,7 +276,7 @@ public class EnderecoResourceIT {
         assertThat(testEndereco.getCep()).isEqualTo(UPDATED_CEP);
 
         // Validate the Endereco in Elasticsearch
-        verify(mockEnderecoSearchRepository, times(1)).save(testEndereco);
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.index(Endereco.class, testEndereco.getId(), testEndereco)));
     }
 
     @Test
@@ -262,7 +295,7 @@ public class EnderecoResourceIT {
         assertThat(enderecoList).hasSize(databaseSizeBeforeUpdate);
 
         // Validate the Endereco in Elasticsearch
-        verify(mockEnderecoSearchRepository, times(0)).save(endereco);
+        verify(mockAsyncIndexTemplate, never()).bulk(anyList());
     }
 
     @Test
@@ -283,7 +316,7 @@ public class EnderecoResourceIT {
         assertThat(enderecoList).hasSize(databaseSizeBeforeDelete - 1);
 
         // Validate the Endereco in Elasticsearch
-        verify(mockEnderecoSearchRepository, times(1)).deleteById(endereco.getId());
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.delete(Endereco.class, endereco.getId())));
     }
 
     @Test
@@ -292,11 +325,14 @@ public class EnderecoResourceIT {
         // Configure the mock search repository
         // Initialize the database
         enderecoRepository.saveAndFlush(endereco);
-        when(mockEnderecoSearchRepository.search(queryStringQuery("id:" + endereco.getId())))
-            .thenReturn(Collections.singletonList(endereco));
+        when(mockAsyncSearchTemplate.searchAll(queryStringQuery("id:" + endereco.getId()), Endereco.class))
+            .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(endereco)));
 
         // Search the endereco
-        restEnderecoMockMvc.perform(get("/api/_search/enderecos?query=id:" + endereco.getId()))
+        MvcResult asyncResult = restEnderecoMockMvc.perform(get("/api/_search/enderecos?query=id:" + endereco.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restEnderecoMockMvc.perform(asyncDispatch(asyncResult))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(endereco.getId().intValue())))
@@ -3,7 +3,8 @@ package br.gov.bomdestino.cidadao.web.rest;
 import br.gov.bomdestino.cidadao.CidadaoApp;
 import br.gov.bomdestino.cidadao.domain.Telefone;
 import br.gov.bomdestino.cidadao.repository.TelefoneRepository;
-import br.gov.bomdestino.cidadao.repository.search.TelefoneSearchRepository;
+import br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplate;
+import br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplate;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,14 +17,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,12 +52,20 @@ public class TelefoneResourceIT {
     private TelefoneRepository telefoneRepository;
 
     /**
-     * This repository is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
+     * This template is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
      *
-     * @see br.gov.bomdestino.cidadao.repository.search.TelefoneSearchRepositoryMockConfiguration
+     * @see br.gov.bomdestino.cidadao.repository.search.AsyncIndexTemplateMockConfiguration
      */
     @Autowired
-    private TelefoneSearchRepository mockTelefoneSearchRepository;
+    private AsyncIndexTemplate mockAsyncIndexTemplate;
+
+    /**
+     * This template is mocked in the br.gov.bomdestino.cidadao.repository.search test package.
+     *
+     * @see br.gov.bomdestino.cidadao.repository.search.AsyncSearchTemplateMockConfiguration
+     */
+    @Autowired
+    private AsyncSearchTemplate mockAsyncSearchTemplate;
 
     @Autowired
     private EntityManager em;
@@ -110,7 +123,7 @@ public class TelefoneResourceIT {
         assertThat(testTelefone.getNumero()).isEqualTo(DEFAULT_NUMERO);
 
         // Validate the Telefone in Elasticsearch
-        verify(mockTelefoneSearchRepository, times(1)).save(testTelefone);
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.index(Telefone.class, testTelefone.getId(), testTelefone)));
     }
 
     @Test
@@ -132,7 +145,7 @@ public class TelefoneResourceIT {
         assertThat(telefoneList).hasSize(databaseSizeBeforeCreate);
 
         // Validate the Telefone in Elasticsearch
-        verify(mockTelefoneSearchRepository, times(0)).save(telefone);
+        verify(mockAsyncIndexTemplate, never()).bulk(anyList());
     }
 
 
@@ -189,6 +202,26 @@ public class TelefoneResourceIT {
             .andExpect(jsonPath("$.[*].numero").value(hasItem(DEFAULT_NUMERO)));
     }
     
+    @Test
+    @Transactional
+    public void getAllTelefonesCapsThePageSize() throws Exception {
+        restTelefoneMockMvc.perform(get("/api/telefones?size=100000"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Link", containsString("size=1000>")))
+            .andExpect(header().string("X-Total-Count", notNullValue()));
+    }
+
+    @Test
+    @Transactional
+    public void streamAllTelefones() throws Exception {
+        MvcResult asyncResult = restTelefoneMockMvc.perform(get("/api/telefones?stream=true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restTelefoneMockMvc.perform(asyncDispatch(asyncResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"));
+    }
+
     @Test
     @Transactional
     public void getTelefone() throws Exception {
@@ -240,7 +273,7 @@ public class TelefoneResourceIT {
         assertThat(testTelefone.getNumero()).isEqualTo(UPDATED_NUMERO);
 
         // Validate the Telefone in Elasticsearch
-        verify(mockTelefoneSearchRepository, times(1)).save(testTelefone);
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.index(Telefone.class, testTelefone.getId(), testTelefone)));
     }
 
     @Test
@@ -259,7 +292,7 @@ public class TelefoneResourceIT {
         assertThat(telefoneList).hasSize(databaseSizeBeforeUpdate);
 
         // Validate the Telefone in Elasticsearch
-        verify(mockTelefoneSearchRepository, times(0)).save(telefone);
+        verify(mockAsyncIndexTemplate, never()).bulk(anyList());
     }
 
     @Test
@@ -280,7 +313,7 @@ public class TelefoneResourceIT {
         assertThat(telefoneList).hasSize(databaseSizeBeforeDelete - 1);
 
         // Validate the Telefone in Elasticsearch
-        verify(mockTelefoneSearchRepository, times(1)).deleteById(telefone.getId());
+        verify(mockAsyncIndexTemplate).bulk(Collections.singletonList(AsyncIndexTemplate.Change.delete(Telefone.class, telefone.getId())));
     }
 
     @Test
@@ -289,11 +322,14 @@ public class TelefoneResourceIT {
         // Configure the mock search repository
         // Initialize the database
         telefoneRepository.saveAndFlush(telefone);
-        when(mockTelefoneSearchRepository.search(queryStringQuery("id:" + telefone.getId())))
-            .thenReturn(Collections.singletonList(telefone));
+        when(mockAsyncSearchTemplate.searchAll(queryStringQuery("id:" + telefone.getId()), Telefone.class))
+            .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(telefone)));
 
         // Search the telefone
-        restTelefoneMockMvc.perform(get("/api/_search/telefones?query=id:" + telefone.getId()))
+        MvcResult asyncResult = restTelefoneMockMvc.perform(get("/api/_search/telefones?query=id:" + telefone.getId()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restTelefoneMockMvc.perform(asyncDispatch(asyncResult))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
             .andExpect(jsonPath("$.[*].id").value(hasItem(telefone.getId().intValue())))